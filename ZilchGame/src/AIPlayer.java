@@ -4,6 +4,8 @@
  */
 public class AIPlayer extends Player {
 
+    private int bankThreshold = 1000;
+
     /**
      * The constructor for the AIPlayer class.
      * @param name The name of the AI player.
@@ -12,12 +14,33 @@ public class AIPlayer extends Player {
         super(name);
     } // end Constructor
 
+    /**
+     * A constructor for an AI player with its own banking strategy and seed, used
+     * when simulating games between different strategies.
+     * @param name The name of the AI player.
+     * @param bankThreshold The player always banks once the turn score is over
+     * this value.
+     * @param seed The seed for the player's dice.
+     */
+    public AIPlayer(String name, int bankThreshold, long seed) {
+        super(name, seed);
+        this.bankThreshold = bankThreshold;
+    } // end strategy Constructor
+
     // Use the Javadoc comment from Player
     public char makePlayChoice() {
-        if ((int)(6 * Math.random()) + 1 > getDiceAvailable() || getTurnScore() > 1000)
+        if (getDice().nextInt(6) + 1 > getDiceAvailable() || getTurnScore() > bankThreshold)
             return 'b';
         else
             return 'r';
     } // end makePlayChoice
 
+    /**
+     * Returns the turn score over which this player always banks.
+     * @return The bank threshold.
+     */
+    public int getBankThreshold() {
+        return bankThreshold;
+    } // end getBankThreshold
+
 } // end AIPlayer class
@@ -0,0 +1,19 @@
+/**
+ * Decides whether an AI player in the game of Zilch should bank its turn score or
+ * roll again.  Policies are usually tables calculated in advance, so that a choice
+ * can be made in constant time.
+ */
+public interface BankPolicy {
+
+    /**
+     * Returns true if the player should bank in the supplied state.
+     * @param myBank The player's banked score.
+     * @param opponentBank The highest banked score of the player's opponents.
+     * @param zilchCount The number of zilches the player has rolled in a row (0 to 2).
+     * @param diceAvailable The number of dice available to roll (1 to 6).
+     * @param turnScore The current turn score.
+     * @return True if the player should bank, false if they should roll.
+     */
+    boolean shouldBank(int myBank, int opponentBank, int zilchCount, int diceAvailable, int turnScore);
+
+} // end BankPolicy interface
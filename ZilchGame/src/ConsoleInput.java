@@ -0,0 +1,22 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+// The source of InputSource.CONSOLE, which prints prompts to System.out and reads
+// lines from System.in.
+class ConsoleInput implements InputSource {
+
+    private final BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+
+    // Use the Javadoc comment from InputSource
+    public synchronized String readLine(String prompt) {
+        System.out.print(prompt);
+        System.out.flush();
+        try {
+            return in.readLine();
+        } catch (IOException e) {
+            return null;
+        } // end try/catch
+    } // end readLine
+
+} // end ConsoleInput class
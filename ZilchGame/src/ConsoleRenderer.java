@@ -0,0 +1,386 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Shows the events of games of Zilch as text: the rolls, scores and choices of every
+ * turn, the scores at the start of each round and the winner.  It is the turn
+ * listener for games that are watched or logged, and ConsoleTurnListener and
+ * ZilchGame.playGame show everything through one.
+ *
+ * A renderer works in one of two modes.  The CONSOLE renderer is synchronous: each
+ * event is written to System.out by the thread that reports it, as soon as it
+ * happens, which is what an interactive game needs.  A synchronous renderer can
+ * also write to any other PrintStream, such as the output of a scripted session.  A renderer created with an
+ * output stream is asynchronous: the game threads only copy the values of each
+ * event into a queue, and a single writer thread turns them into text and writes
+ * them a batch at a time, so a game never waits for the terminal or a log file.
+ * Before prompting the user, call flush so that everything shown so far is on the
+ * screen.
+ */
+// The queue is a ring of event slots allocated once, so queueing an event
+// allocates nothing.  Its values are copied while holding the renderer's lock, and
+// the writer takes every event queued so far as one batch, formats them into the
+// same StringBuilder and char array each time, and writes and flushes the batch
+// with the lock released.  A game thread only waits if it gets a whole ring of
+// events ahead of the writer.
+public class ConsoleRenderer implements TurnListener, Closeable {
+
+    /**
+     * The synchronous renderer that writes to System.out.  Each event is written to
+     * whatever System.out is when the event happens.
+     */
+    public static final ConsoleRenderer CONSOLE = new ConsoleRenderer();
+
+    /**
+     * The number of events an asynchronous renderer queues by default.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private static final int ROLLING = 0;
+    private static final int SCORED = 1;
+    private static final int FREE_ROLL = 2;
+    private static final int MUST_ROLL = 3;
+    private static final int CHOOSING = 4;
+    private static final int ROLL_AGAIN = 5;
+    private static final int BANK = 6;
+    private static final int TURN_OVER = 7;
+    private static final int LINE = 8;
+    private static final int SCORES = 9;
+    private static final int WINNER = 10;
+
+    private final Event[] ring;
+    private final PrintStream console;
+    private final Writer out;
+    private final Thread writer;
+    private final StringBuilder text = new StringBuilder();
+    private char[] chars = new char[1024];
+    // The number of events queued and written since the renderer was created.  The
+    // events not yet written are in the ring from written to queued.
+    private long queued = 0;
+    private long written = 0;
+    private boolean closed = false;
+    private IOException error;
+
+    // The values of one event.  Which fields are used depends on the type.
+    private static final class Event {
+
+        int type;
+        String name;
+        int first;
+        int second;
+        int third;
+        RuleSet rules;
+        final int[] dice = new int[6];
+        String[] names = new String[0];
+        int[] scores = new int[0];
+
+    } // end Event class
+
+    // Creates the synchronous CONSOLE renderer.
+    private ConsoleRenderer() {
+        this((PrintStream)null);
+    } // end Constructor
+
+    /**
+     * The constructor for a synchronous renderer, which writes each event to the
+     * supplied stream as it happens.  A synchronous renderer needs room for one
+     * event and has no writer thread.
+     * @param console The stream the text is written to, or null to write to whatever
+     * System.out is when each event happens, as CONSOLE does.
+     */
+    public ConsoleRenderer(PrintStream console) {
+        ring = new Event[] {new Event()};
+        this.console = console;
+        out = null;
+        writer = null;
+    } // end synchronous Constructor
+
+    /**
+     * The constructor for an asynchronous renderer, which starts its writer thread.
+     * @param out The stream the text is written to.
+     * @param capacity The most events that can be waiting to be written.
+     * @throws ZilchException If the stream is null or the capacity is not positive.
+     */
+    public ConsoleRenderer(OutputStream out, int capacity) throws ZilchException {
+        if (out == null)
+            throw new ZilchException("Output not defined!");
+        if (capacity < 1)
+            throw new ZilchException("Capacity: " + capacity + " not legal.");
+        ring = new Event[capacity];
+        for (int i = 0; i < capacity; i++)
+            ring[i] = new Event();
+        console = null;
+        this.out = new OutputStreamWriter(out);
+        writer = new Thread(this::write, "zilch-renderer");
+        writer.setDaemon(true);
+        writer.start();
+    } // end stream Constructor
+
+    // Returns the next free slot of the ring for an event, waiting for the writer
+    // if the ring is full.  Called while holding the lock, and followed by publish.
+    private Event claim(int type, String name) {
+        while (queued - written == ring.length)
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } // end try/catch
+        Event event = ring[(int)(queued % ring.length)];
+        event.type = type;
+        event.name = name;
+        return event;
+    } // end claim
+
+    // Adds the event just filled in to the queue.  A synchronous renderer writes it
+    // straight away.
+    private void publish() {
+        queued++;
+        if (writer == null)
+            writeBatch(queued);
+        else if (queued - written == 1)
+            notifyAll();
+    } // end publish
+
+    // Queues an event with up to three numbers.
+    private synchronized void add(int type, String name, int first, int second, int third) {
+        if (closed)
+            return;
+        Event event = claim(type, name);
+        if (event == null)
+            return;
+        event.first = first;
+        event.second = second;
+        event.third = third;
+        publish();
+    } // end add
+
+    // Use the Javadoc comments from TurnListener
+    public void rolling(Player player, int numDice, int rollNumber) {
+        add(ROLLING, player.getName(), numDice, rollNumber, 0);
+    } // end rolling
+
+    public synchronized void scored(Player player, ScoreResult result) {
+        if (closed)
+            return;
+        Event event = claim(SCORED, player.getName());
+        if (event == null)
+            return;
+        event.rules = player.getRules();
+        event.first = result.getScore();
+        event.second = result.getNumDice();
+        event.third = result.getKey();
+        for (int i = 0; i < event.second; i++)
+            event.dice[i] = result.getDie(i);
+        publish();
+    } // end scored
+
+    public void freeRoll(Player player) {
+        add(FREE_ROLL, player.getName(), 0, 0, 0);
+    } // end freeRoll
+
+    public void mustRoll(Player player, int turnScore) {
+        add(MUST_ROLL, player.getName(), turnScore, player.getRules().getMinimumBank(), 0);
+    } // end mustRoll
+
+    public void choosing(Player player, int turnScore, int diceAvailable) {
+        add(CHOOSING, player.getName(), turnScore, diceAvailable, 0);
+    } // end choosing
+
+    public void rollAgain(Player player) {
+        add(ROLL_AGAIN, player.getName(), 0, 0, 0);
+    } // end rollAgain
+
+    public void bank(Player player, int turnScore) {
+        add(BANK, player.getName(), turnScore, 0, 0);
+    } // end bank
+
+    public void turnOver(Player player) {
+        add(TURN_OVER, player.getName(), player.getScore(), player.getZilchCount(), 0);
+    } // end turnOver
+
+    /**
+     * Shows a line of text.
+     * @param line The text, which is shown followed by a new line.
+     */
+    public void line(String line) {
+        add(LINE, line, 0, 0, 0);
+    } // end line
+
+    /**
+     * Shows the banked score of every player, as at the start of a round.
+     * @param players The players, in the order they are shown.
+     */
+    public synchronized void scores(List<? extends Player> players) {
+        if (closed)
+            return;
+        Event event = claim(SCORES, null);
+        if (event == null)
+            return;
+        if (event.names.length < players.size()) {
+            event.names = new String[players.size()];
+            event.scores = new int[players.size()];
+        }
+        event.first = players.size();
+        for (int i = 0; i < players.size(); i++) {
+            event.names[i] = players.get(i).getName();
+            event.scores[i] = players.get(i).getScore();
+        }
+        publish();
+    } // end scores
+
+    /**
+     * Shows the winner of a game.
+     * @param winner The player who won.
+     */
+    public void winner(Player winner) {
+        add(WINNER, winner.getName(), winner.getScore(), winner.getRollCount(), 0);
+    } // end winner
+
+    /**
+     * Waits until every event reported so far has been written and flushed.  The
+     * CONSOLE renderer writes every event as it happens, so it never waits.
+     */
+    public synchronized void flush() {
+        long target = queued;
+        while (written < target && writer != null && writer.isAlive())
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } // end try/catch
+    } // end flush
+
+    /**
+     * Writes every event reported so far, then stops the writer thread.  Events
+     * reported after the renderer is closed are ignored.  The CONSOLE renderer
+     * cannot be closed.
+     * @throws IOException If writing the text failed at any point.
+     */
+    public void close() throws IOException {
+        if (writer == null)
+            return;
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        } // end synchronized
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } // end try/catch
+        if (error != null)
+            throw error;
+    } // end close
+
+    // The writer thread.  Writes each batch of events queued, until the renderer is
+    // closed and every event has been written.
+    private void write() {
+        while (true) {
+            long end;
+            synchronized (this) {
+                while (written == queued && !closed)
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    } // end try/catch
+                if (written == queued)
+                    break;
+                end = queued;
+            } // end synchronized
+            writeBatch(end);
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            if (error == null)
+                error = e;
+        } // end try/catch
+    } // end write
+
+    // Formats the events from written up to end and writes them as one block of
+    // text.  The slots of those events are not reused until written is moved on.
+    private void writeBatch(long end) {
+        text.setLength(0);
+        for (long i = written; i < end; i++)
+            format(ring[(int)(i % ring.length)]);
+        if (out == null) {
+            PrintStream target = console != null ? console : System.out;
+            target.print(text);
+            target.flush();
+        } else if (error == null) {
+            if (chars.length < text.length())
+                chars = new char[Math.max(text.length(), 2 * chars.length)];
+            text.getChars(0, text.length(), chars, 0);
+            try {
+                out.write(chars, 0, text.length());
+                out.flush();
+            } catch (IOException e) {
+                error = e;
+            } // end try/catch
+        }
+        synchronized (this) {
+            written = end;
+            notifyAll();
+        } // end synchronized
+    } // end writeBatch
+
+    // Appends the text of an event, in the same words the console has always used.
+    private void format(Event event) {
+        switch (event.type) {
+            case ROLLING:
+                text.append('\n').append(event.name).append(" Rolling ").append(event.first)
+                        .append(" dice (roll ").append(event.second).append("):\n");
+                break;
+            case SCORED:
+                Scoring.describeRoll(event.rules, event.dice, event.second, event.third, text);
+                text.append(' ').append(event.first).append(" points.\n");
+                break;
+            case FREE_ROLL:
+                text.append("You get a free roll!\n");
+                break;
+            case MUST_ROLL:
+                text.append("Turn score: ").append(event.first).append(" is less than ").append(event.second)
+                        .append(". ").append(event.name).append(" must roll again.\n");
+                break;
+            case CHOOSING:
+                text.append("Turn score is: ").append(event.first).append(" and ").append(event.name)
+                        .append(" can roll ").append(event.second).append(" dice.\n");
+                break;
+            case ROLL_AGAIN:
+                text.append(event.name).append(" choosing to roll again.\n");
+                break;
+            case BANK:
+                text.append(event.name).append(" choosing to bank score.\n");
+                break;
+            case TURN_OVER:
+                text.append(event.name).append("\'s Bank: ").append(event.first).append(" Zilch count: ")
+                        .append(event.second).append('\n');
+                break;
+            case LINE:
+                text.append(event.name).append('\n');
+                break;
+            case SCORES:
+                text.append('\n');
+                for (int i = 0; i < event.first; i++) {
+                    if (i > 0)
+                        text.append(", ");
+                    text.append(event.names[i]).append(" has ").append(event.scores[i]).append(" points");
+                }
+                text.append(".\n");
+                break;
+            case WINNER:
+                text.append('\n').append(event.name).append(" wins with ").append(event.first)
+                        .append(" points, after ").append(event.second).append(" dice rolls!\n");
+                break;
+        } // end switch
+    } // end format
+
+} // end ConsoleRenderer class
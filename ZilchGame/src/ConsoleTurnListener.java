@@ -0,0 +1,79 @@
+/**
+ * Shows a player's turn on the console and waits for the user to press <enter>
+ * before each roll.  The turn is shown by a ConsoleRenderer, which is flushed
+ * before the user is asked for anything.
+ */
+public class ConsoleTurnListener implements TurnListener {
+
+    private final InputSource input;
+    private final ConsoleRenderer renderer;
+
+    /**
+     * The constructor for a listener that waits for <enter> on the console.
+     */
+    public ConsoleTurnListener() {
+        this(InputSource.CONSOLE);
+    } // end Constructor
+
+    /**
+     * The constructor for a listener that reads the <enter> before each roll from
+     * the supplied source of the user's input, such as a ScriptedInput, and shows the
+     * turn on the source's output.
+     * @param input The source of the user's input.
+     */
+    public ConsoleTurnListener(InputSource input) {
+        this(input, input == InputSource.CONSOLE ? ConsoleRenderer.CONSOLE :
+                new ConsoleRenderer(input.getOutput()));
+    } // end source Constructor
+
+    /**
+     * The constructor for a listener that reads from the supplied source of the
+     * user's input and shows the turn with the supplied renderer.
+     * @param input The source of the user's input.
+     * @param renderer The renderer the turn is shown by.
+     */
+    public ConsoleTurnListener(InputSource input, ConsoleRenderer renderer) {
+        this.input = input;
+        this.renderer = renderer;
+    } // end source and renderer Constructor
+
+    // Use the Javadoc comments from TurnListener
+    public void rolling(Player player, int numDice, int rollNumber) {
+        renderer.flush();
+        @SuppressWarnings("unused")
+        char dummy = Player.getChar(input, "\n" + player.getName() + " Rolling " + numDice +
+                " dice (roll " + rollNumber + "): (Press <enter>)");
+    } // end rolling
+
+    public void scored(Player player, ScoreResult result) {
+        renderer.scored(player, result);
+    } // end scored
+
+    public void freeRoll(Player player) {
+        renderer.freeRoll(player);
+    } // end freeRoll
+
+    public void mustRoll(Player player, int turnScore) {
+        renderer.mustRoll(player, turnScore);
+    } // end mustRoll
+
+    // The player may be asked to choose next, so the turn so far is flushed.
+    public void choosing(Player player, int turnScore, int diceAvailable) {
+        renderer.choosing(player, turnScore, diceAvailable);
+        renderer.flush();
+    } // end choosing
+
+    public void rollAgain(Player player) {
+        renderer.rollAgain(player);
+    } // end rollAgain
+
+    public void bank(Player player, int turnScore) {
+        renderer.bank(player, turnScore);
+    } // end bank
+
+    // Displays the status of the player
+    public void turnOver(Player player) {
+        renderer.turnOver(player);
+    } // end turnOver
+
+} // end ConsoleTurnListener class
@@ -0,0 +1,51 @@
+/**
+ * A source of random dice rolls for the game of Zilch.  Each player rolls from its
+ * own source, so players in different games, or different threads, never share
+ * random numbers.
+ */
+public interface DiceSource {
+
+    /**
+     * Fills the supplied array with random dice values between 1 and 6.
+     * @param dice The array to fill.  Its length is the number of dice rolled.
+     */
+    void roll(int[] dice);
+
+    /**
+     * Rolls dice and returns only how many of each value came up, packed with three
+     * bits for each value from the count of ones in the lowest bits to the count of
+     * sixes in the highest.  It must roll the same dice as roll would.  By default
+     * it rolls into a new array, so sources used for bulk simulation should override
+     * it to roll without allocating.
+     * @param numDice The number of dice to roll, from 0 to 6.
+     * @return The packed counts of the roll.
+     */
+    default int rollCounts(int numDice) {
+        int[] dice = new int[numDice];
+        roll(dice);
+        return Scoring.countKey(dice);
+    } // end rollCounts
+
+    /**
+     * Called by Player at the start of each of its turns, for sources whose rolls
+     * depend on where they fall in the game.  By default it does nothing.
+     */
+    default void startTurn() {
+    } // end startTurn
+
+    /**
+     * Returns a random number between 0 (inclusive) and bound (exclusive), for
+     * players that make random choices.
+     * @param bound The upper limit of the number.  Must be positive.
+     * @return A random number less than bound.
+     */
+    int nextInt(int bound);
+
+    /**
+     * Returns a new, statistically independent source split off from this one.
+     * Splitting the same seeded source always gives the same new source.
+     * @return A new dice source.
+     */
+    DiceSource split();
+
+} // end DiceSource interface
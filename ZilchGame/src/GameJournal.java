@@ -0,0 +1,307 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of games of Zilch, kept in a directory of memory-mapped
+ * segment files.  Every roll with its score, every choice to roll or bank, every
+ * player who quits and the bank at the end of every turn is written to the
+ * journal, so that the games can be replayed exactly by GameReplay and games that
+ * were being played when a program stopped can be carried on.
+ *
+ * Each game is recorded by a GameRecorder, which writes a whole turn at a time.
+ * How often the journal is forced to disk is set when it is opened: after every
+ * turn, every so many milliseconds, or only when the operating system chooses.
+ */
+// Segment layout, all values big-endian:
+//
+//     int  MAGIC
+//     int  FORMAT_VERSION
+//     int  Scoring.RULES_VERSION of the rules the games were played under
+//     int  reserved (zero)
+//     frames, up to the end of the segment or a frame length of zero
+//
+// Each frame is an int length of the payload, an int CRC-32 of the payload, and
+// the payload: a long game id followed by the records written together, each a
+// record type byte and its fields:
+//
+//     START   int game limit, byte first seat, byte seats, then for each seat a
+//             byte kind and a name, and finally the table name
+//     ROLL    byte seat, int roll, char score
+//     CHOICE  byte seat, byte 'r' or 'b'
+//     QUIT    byte seat
+//     TURN    byte seat, int banked score, byte zilch count; ends the turn
+//     END     byte winning seat, or -1 if every player quit
+//
+// A roll is packed as three bits for each die, the number of dice in bits 18 to
+// 20, the dice left in bits 21 to 23 and the free roll flag in bit 24.  Names are
+// a short length followed by UTF-8 bytes.  A frame that was only partly written
+// when a program stopped fails its CRC and ends the segment; the journal carries on
+// from that point when it is opened again.
+public class GameJournal implements AutoCloseable {
+
+    static final int MAGIC = 0x5A494C4A;	// "ZILJ"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int FRAME_HEADER_SIZE = 8;
+
+    static final byte START = 1;
+    static final byte ROLL = 2;
+    static final byte CHOICE = 3;
+    static final byte QUIT = 4;
+    static final byte TURN = 5;
+    static final byte END = 6;
+
+    static final byte REMOTE_PLAYER = 'R';
+    static final byte AI_PLAYER = 'A';
+    static final byte OTHER_PLAYER = 'O';
+
+    /**
+     * The default size of a segment file.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private final File directory;
+    private final int segmentSize;
+    private final long syncMillis;
+    private final CRC32 crc = new CRC32();
+    private final Map<Long, GameReplay> games;
+    private ScheduledExecutorService syncer;
+    private MappedByteBuffer segment;
+    private int segmentNumber;
+    private long nextGameId;
+
+    /**
+     * Opens the journal in a directory, replaying the games already recorded there,
+     * and carries on writing after the last complete frame.
+     * @param directory The directory holding the segment files.  It is created if
+     * it does not exist.
+     * @param segmentSize The size of each segment file.
+     * @param syncMillis How often the journal is forced to disk: 0 after every
+     * frame, a positive number of milliseconds between forces, or a negative number
+     * to leave it to the operating system.
+     * @throws IOException If the directory cannot be used, a segment was written for
+     * different scoring rules, or the recorded games do not follow the rules.
+     */
+    public GameJournal(File directory, int segmentSize, long syncMillis) throws IOException {
+        if (segmentSize < 4096)
+            throw new IOException("Segment size: " + segmentSize + " is less than 4096.");
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Cannot create journal directory " + directory + ".");
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.syncMillis = syncMillis;
+        games = new LinkedHashMap<>();
+        File[] files = segmentFiles(directory);
+        int end = HEADER_SIZE;
+        for (File file : files)
+            end = readSegment(file, games);
+        for (long id : games.keySet())
+            nextGameId = Math.max(nextGameId, id + 1);
+        if (files.length == 0)
+            openSegment(1, HEADER_SIZE);
+        else
+            openSegment(segmentNumber(files[files.length - 1]), end);
+        if (syncMillis > 0) {
+            syncer = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "zilch-journal");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncer.scheduleWithFixedDelay(this::sync, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+        }
+    } // end Constructor
+
+    /**
+     * Replays every game recorded in a directory without opening it for writing.
+     * @param directory The directory holding the segment files.
+     * @return The replayed games in the order they were started.
+     * @throws IOException If a segment cannot be read or was written for different
+     * scoring rules, or the recorded games do not follow the rules.
+     */
+    public static List<GameReplay> replay(File directory) throws IOException {
+        Map<Long, GameReplay> games = new LinkedHashMap<>();
+        for (File file : segmentFiles(directory))
+            readSegment(file, games);
+        return new ArrayList<>(games.values());
+    } // end replay
+
+    // Returns the segment files in a directory in the order they were written.
+    private static File[] segmentFiles(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.matches("journal-\\d{8}\\.zj"));
+        if (files == null)
+            return new File[0];
+        Arrays.sort(files);
+        return files;
+    } // end segmentFiles
+
+    // Returns the name of a segment file.
+    private static String segmentName(int number) {
+        return String.format("journal-%08d.zj", number);
+    } // end segmentName
+
+    // Returns the number of a segment file.
+    private static int segmentNumber(File file) {
+        return Integer.parseInt(file.getName().substring(8, 16));
+    } // end segmentNumber
+
+    // Replays the frames of a segment into the games, and returns the position just
+    // after the last complete frame.
+    private static int readSegment(File file, Map<Long, GameReplay> games) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION)
+                throw new IOException(file + " is not a Zilch journal segment.");
+            int rules = buffer.getInt();
+            if (rules != Scoring.RULES_VERSION)
+                throw new IOException(file + " was recorded under scoring rules version " + rules +
+                        ", not " + Scoring.RULES_VERSION + ".");
+            buffer.position(HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            while (buffer.remaining() >= FRAME_HEADER_SIZE) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length < Long.BYTES || length > buffer.remaining()) {
+                    buffer.position(start);
+                    break;
+                }
+                ByteBuffer payload = buffer.slice(buffer.position(), length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int)crc.getValue() != checksum) {
+                    buffer.position(start);
+                    break;
+                }
+                buffer.position(buffer.position() + length);
+                long gameId = payload.getLong();
+                GameReplay game = games.get(gameId);
+                if (game == null) {
+                    game = GameReplay.start(gameId, payload);
+                    games.put(gameId, game);
+                }
+                game.apply(payload);
+            } // end while
+            return buffer.position();
+        } // end try
+    } // end readSegment
+
+    // Maps a segment for writing from the supplied position, writing its header if
+    // it is new.  Anything after the position, such as a frame that was only partly
+    // written, is cleared.
+    private void openSegment(int number, int position) throws IOException {
+        File file = new File(directory, segmentName(number));
+        boolean exists = file.exists();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, channel.size()));
+        } // end try
+        segment.putInt(0, MAGIC);
+        segment.putInt(4, FORMAT_VERSION);
+        segment.putInt(8, Scoring.RULES_VERSION);
+        segment.putInt(12, 0);
+        if (exists)
+            for (int i = position; i < segment.capacity(); i++)
+                segment.put(i, (byte)0);
+        segment.position(position);
+        segmentNumber = number;
+    } // end openSegment
+
+    /**
+     * Starts recording a new game.  The start of the game is written immediately.
+     * @param tableId The name of the table the game is played at.
+     * @param game The game, which must not have started.
+     * @param next The listener that the recorder passes every event on to.
+     * @return The recorder, which must be made the turn listener of every player in
+     * the game.
+     * @throws IOException If the journal cannot be written.
+     */
+    public GameRecorder record(String tableId, ZilchGame game, TurnListener next) throws IOException {
+        long gameId;
+        synchronized (this) {
+            gameId = nextGameId++;
+        }
+        GameRecorder recorder = new GameRecorder(this, gameId, game, next);
+        recorder.writeStart(tableId, game);
+        return recorder;
+    } // end record
+
+    /**
+     * Carries on recording a game recovered from the journal.
+     * @param replay The replay of the game as recorded so far.
+     * @param game The game carrying on from the replay.
+     * @param next The listener that the recorder passes every event on to.
+     * @return The recorder, which must be made the turn listener of every player in
+     * the game.
+     */
+    public GameRecorder resume(GameReplay replay, ZilchGame game, TurnListener next) {
+        return new GameRecorder(this, replay.getGameId(), game, next);
+    } // end resume
+
+    /**
+     * Returns the games that were recorded before the journal was opened and had
+     * not finished, so that they can be carried on.
+     * @return The unfinished games in the order they were started.
+     */
+    public List<GameReplay> getUnfinishedGames() {
+        List<GameReplay> unfinished = new ArrayList<>();
+        for (GameReplay game : games.values())
+            if (!game.isFinished())
+                unfinished.add(game);
+        return unfinished;
+    } // end getUnfinishedGames
+
+    // Appends the records of a game as one frame, starting a new segment if the
+    // frame does not fit in this one.
+    synchronized void append(long gameId, ByteBuffer records) throws IOException {
+        int length = Long.BYTES + records.remaining();
+        if (HEADER_SIZE + FRAME_HEADER_SIZE + length > segmentSize)
+            throw new IOException("Journal frame of " + length + " bytes does not fit in a segment.");
+        if (segment.remaining() < FRAME_HEADER_SIZE + length) {
+            segment.force();
+            openSegment(segmentNumber + 1, HEADER_SIZE);
+        }
+        int start = segment.position();
+        segment.position(start + FRAME_HEADER_SIZE);
+        segment.putLong(gameId);
+        segment.put(records);
+        ByteBuffer payload = segment.slice(start + FRAME_HEADER_SIZE, length);
+        crc.reset();
+        crc.update(payload);
+        segment.putInt(start + 4, (int)crc.getValue());
+        // The length is written last, so a frame is never seen before it is complete.
+        segment.putInt(start, length);
+        if (syncMillis == 0)
+            segment.force();
+    } // end append
+
+    /**
+     * Forces everything written so far to disk.
+     */
+    public synchronized void sync() {
+        segment.force();
+    } // end sync
+
+    /**
+     * Forces the journal to disk and stops the thread forcing it at intervals.
+     * Nothing can be written once the journal is closed.
+     */
+    public void close() {
+        if (syncer != null)
+            syncer.shutdown();
+        sync();
+    } // end close
+
+} // end GameJournal class
@@ -0,0 +1,197 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Records one game of Zilch in a GameJournal.  The recorder is the turn listener of
+ * every player in the game: it writes the events needed to replay the game and
+ * passes every event on to the next listener.
+ */
+// The records of a turn are collected in a buffer and appended to the journal as one
+// frame when the turn is over, so a turn is either replayed completely or not at
+// all.  A player who quits during a turn is recorded with the turn, and a player who
+// quits between turns is recorded on their own.
+public class GameRecorder implements TurnListener {
+
+    private final GameJournal journal;
+    private final long gameId;
+    private final List<Player> players;
+    private final TurnListener next;
+    private ByteBuffer records = ByteBuffer.allocate(1024);
+    private boolean turnActive = false;
+
+    // Called by GameJournal to record a game.
+    GameRecorder(GameJournal journal, long gameId, ZilchGame game, TurnListener next) {
+        this.journal = journal;
+        this.gameId = gameId;
+        this.players = game.getPlayers();
+        this.next = next;
+    } // end Constructor
+
+    // Writes the start of the game: the game limit, the first seat and the players.
+    synchronized void writeStart(String tableId, ZilchGame game) throws IOException {
+        records.put(GameJournal.START);
+        records.putInt(game.getGameLimit());
+        records.put((byte)game.getFirstSeat());
+        records.put((byte)players.size());
+        for (Player player : players) {
+            ensureRoom(1);
+            if (player instanceof RemotePlayer)
+                records.put(GameJournal.REMOTE_PLAYER);
+            else if (player instanceof AIPlayer)
+                records.put(GameJournal.AI_PLAYER);
+            else
+                records.put(GameJournal.OTHER_PLAYER);
+            putName(player.getName());
+        }
+        putName(tableId);
+        flush();
+    } // end writeStart
+
+    /**
+     * Records the end of the game.
+     * @param winner The winner, or null if every player quit.
+     * @throws IOException If the journal cannot be written.
+     */
+    public synchronized void finish(Player winner) throws IOException {
+        records.put(GameJournal.END);
+        records.put((byte)(winner == null ? -1 : players.indexOf(winner)));
+        flush();
+    } // end finish
+
+    // Writes a name as a length and UTF-8 bytes.
+    private void putName(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        ensureRoom(Short.BYTES + bytes.length);
+        records.putShort((short)bytes.length);
+        records.put(bytes);
+    } // end putName
+
+    // Makes sure the buffer has room for a record, doubling it if it is full.
+    private void ensureRoom(int size) {
+        if (records.remaining() < size) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(records.capacity() * 2, records.position() + size));
+            records.flip();
+            bigger.put(records);
+            records = bigger;
+        }
+    } // end ensureRoom
+
+    // Appends the records collected so far to the journal as one frame.
+    private void flush() throws IOException {
+        records.flip();
+        try {
+            journal.append(gameId, records);
+        } finally {
+            records.clear();
+        } // end try/finally
+    } // end flush
+
+    // Records a roll and its score.
+    private synchronized void recordRoll(Player player, ScoreResult result) {
+        int roll = 0;
+        for (int i = 0; i < result.getNumDice(); i++)
+            roll |= result.getDie(i) << (3 * i);
+        roll |= result.getNumDice() << 18 | result.getDiceLeft() << 21;
+        if (result.getRollAgain())
+            roll |= 1 << 24;
+        ensureRoom(8);
+        records.put(GameJournal.ROLL);
+        records.put((byte)players.indexOf(player));
+        records.putInt(roll);
+        records.putChar((char)result.getScore());
+    } // end recordRoll
+
+    // Records a choice to roll again or bank.
+    private synchronized void recordChoice(Player player, char choice) {
+        ensureRoom(3);
+        records.put(GameJournal.CHOICE);
+        records.put((byte)players.indexOf(player));
+        records.put((byte)choice);
+    } // end recordChoice
+
+    // Records a player who quit, with the turn if one is being played.
+    private synchronized void recordQuit(Player player) {
+        ensureRoom(2);
+        records.put(GameJournal.QUIT);
+        records.put((byte)players.indexOf(player));
+        if (!turnActive)
+            write();
+    } // end recordQuit
+
+    // Records the end of a turn and writes the turn to the journal.
+    private synchronized void recordTurn(Player player) {
+        ensureRoom(7);
+        records.put(GameJournal.TURN);
+        records.put((byte)players.indexOf(player));
+        records.putInt(player.getScore());
+        records.put((byte)player.getZilchCount());
+        turnActive = false;
+        write();
+    } // end recordTurn
+
+    // Flushes the records, for the listener methods that cannot throw an IOException.
+    private void write() {
+        try {
+            flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } // end try/catch
+    } // end write
+
+    // Use the Javadoc comments from TurnListener
+    public void rolling(Player player, int numDice, int rollNumber) {
+        synchronized (this) {
+            turnActive = true;
+        }
+        next.rolling(player, numDice, rollNumber);
+    } // end rolling
+
+    public void scored(Player player, ScoreResult result) {
+        recordRoll(player, result);
+        next.scored(player, result);
+    } // end scored
+
+    public void zilch(Player player, int zilchCount) {
+        next.zilch(player, zilchCount);
+    } // end zilch
+
+    public void penalty(Player player) {
+        next.penalty(player);
+    } // end penalty
+
+    public void freeRoll(Player player) {
+        next.freeRoll(player);
+    } // end freeRoll
+
+    public void mustRoll(Player player, int turnScore) {
+        next.mustRoll(player, turnScore);
+    } // end mustRoll
+
+    public void choosing(Player player, int turnScore, int diceAvailable) {
+        next.choosing(player, turnScore, diceAvailable);
+    } // end choosing
+
+    public void rollAgain(Player player) {
+        recordChoice(player, 'r');
+        next.rollAgain(player);
+    } // end rollAgain
+
+    public void bank(Player player, int turnScore) {
+        recordChoice(player, 'b');
+        next.bank(player, turnScore);
+    } // end bank
+
+    public void quit(Player player) {
+        recordQuit(player);
+        next.quit(player);
+    } // end quit
+
+    public void turnOver(Player player) {
+        recordTurn(player);
+        next.turnOver(player);
+    } // end turnOver
+
+} // end GameRecorder class
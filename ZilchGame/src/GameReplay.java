@@ -0,0 +1,316 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A game of Zilch rebuilt from the records of a GameJournal.  The recorded rolls and
+ * choices are played through ZilchGame again, one turn at a time, so the banks and
+ * counts of every player come from the rules of the game rather than from the
+ * journal, and are checked against the recorded scores and banks as they go.
+ *
+ * A replay of a game that had not finished can be carried on with new players.
+ */
+public class GameReplay {
+
+    private final long gameId;
+    private final String tableId;
+    private final byte[] kinds;
+    private final List<ReplayPlayer> players = new ArrayList<>();
+    private final ZilchGame game;
+    private final boolean[] pendingQuits;
+    private boolean finished = false;
+    private int winnerSeat = -1;
+    private int turns = 0;
+
+    // Called with the payload of the first frame of a game, positioned at its START
+    // record, which is read.
+    private GameReplay(long gameId, ByteBuffer records) throws IOException, ZilchException {
+        this.gameId = gameId;
+        if (records.get() != GameJournal.START)
+            throw new IOException("Game " + gameId + " does not begin with its start.");
+        int gameLimit = records.getInt();
+        int firstSeat = records.get();
+        int seats = records.get();
+        kinds = new byte[seats];
+        for (int seat = 0; seat < seats; seat++) {
+            kinds[seat] = records.get();
+            ReplayPlayer player = new ReplayPlayer(getName(records));
+            player.setTurnListener(verifier);
+            players.add(player);
+        }
+        tableId = getName(records);
+        pendingQuits = new boolean[seats];
+        game = new ZilchGame(players, gameLimit, firstSeat);
+    } // end Constructor
+
+    // Starts the replay of a game from its first frame.
+    static GameReplay start(long gameId, ByteBuffer records) throws IOException {
+        try {
+            return new GameReplay(gameId, records);
+        } catch (ZilchException | RuntimeException e) {
+            throw new IOException("Game " + gameId + " has a bad start: " + e.getMessage());
+        } // end try/catch
+    } // end start
+
+    // Reads a name written as a length and UTF-8 bytes.
+    private static String getName(ByteBuffer records) {
+        byte[] bytes = new byte[records.getShort()];
+        records.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    } // end getName
+
+    // Applies the rest of the records of a frame.  A frame holding a turn is played
+    // through the game.  Players who quit during the turn leave after it, and players
+    // who quit between turns leave before the next turn that is not their own.
+    void apply(ByteBuffer records) throws IOException {
+        if (finished)
+            return;
+        try {
+            boolean[] frameQuits = new boolean[kinds.length];
+            while (records.hasRemaining()) {
+                byte type = records.get();
+                if (type == GameJournal.ROLL)
+                    players.get(records.get()).addRoll(records.getInt(), records.getChar());
+                else if (type == GameJournal.CHOICE)
+                    players.get(records.get()).addChoice((char)records.get());
+                else if (type == GameJournal.QUIT)
+                    frameQuits[records.get()] = true;
+                else if (type == GameJournal.TURN) {
+                    playTurn(records.get(), records.getInt(), records.get());
+                    for (int seat = 0; seat < kinds.length; seat++)
+                        if (frameQuits[seat] || pendingQuits[seat]) {
+                            players.get(seat).quit();
+                            pendingQuits[seat] = false;
+                        }
+                    return;
+                }
+                else if (type == GameJournal.END) {
+                    winnerSeat = records.get();
+                    finished = true;
+                    return;
+                }
+                else
+                    throw new IOException("unknown record type " + type);
+            } // end while
+            for (int seat = 0; seat < kinds.length; seat++)
+                pendingQuits[seat] |= frameQuits[seat];
+        } catch (IOException | RuntimeException e) {
+            throw new IOException("Game " + gameId + " cannot be replayed at turn " + (turns + 1) + ": " +
+                    e.getMessage());
+        } // end try/catch
+    } // end apply
+
+    // Plays the next turn of the game from the recorded rolls and choices, and checks
+    // that it was the recorded player's turn and ended with the recorded bank.
+    private void playTurn(int seat, int gameScore, int zilchCount) throws IOException {
+        for (int other = 0; other < kinds.length; other++)
+            if (other != seat && pendingQuits[other]) {
+                players.get(other).quit();
+                pendingQuits[other] = false;
+            }
+        int played = game.playNextTurn();
+        turns++;
+        if (played != seat)
+            throw new IOException("the turn was recorded for seat " + seat + ", not seat " + played);
+        ReplayPlayer player = players.get(seat);
+        if (!player.isUsedUp())
+            throw new IOException("the turn ended before all its rolls and choices were used");
+        if (player.getScore() != gameScore || player.getZilchCount() != zilchCount)
+            throw new IOException("the bank is " + player.getScore() + " with " + player.getZilchCount() +
+                    " zilches, not " + gameScore + " with " + zilchCount);
+    } // end playTurn
+
+    /**
+     * Returns a new game carrying on from the last complete turn of this one, with
+     * the supplied players taking over the banks and counts of the players in the
+     * same seats.  A turn that was being played when the journal stopped is played
+     * again from its start.
+     * @param newPlayers The players, in the same seats as the recorded players.
+     * @return The game, ready to carry on.
+     * @throws ZilchException If the number of players is wrong.
+     */
+    public ZilchGame resume(List<? extends Player> newPlayers) throws ZilchException {
+        return game.resume(newPlayers);
+    } // end resume
+
+    /**
+     * Returns the id of the game in the journal.
+     * @return The game id.
+     */
+    public long getGameId() {
+        return gameId;
+    } // end getGameId
+
+    /**
+     * Returns the name of the table the game was played at.
+     * @return The table's name.
+     */
+    public String getTableId() {
+        return tableId;
+    } // end getTableId
+
+    /**
+     * Returns the replayed game.  Its players are stand-ins holding the banks and
+     * counts of the recorded players, and it must not be played any further.
+     * @return The game as of its last complete turn.
+     */
+    public ZilchGame getGame() {
+        return game;
+    } // end getGame
+
+    /**
+     * Returns true if the seat was held by a remote player.
+     * @param seat The seat.
+     * @return True if the seat was held by a RemotePlayer.
+     */
+    public boolean isRemoteSeat(int seat) {
+        return kinds[seat] == GameJournal.REMOTE_PLAYER;
+    } // end isRemoteSeat
+
+    /**
+     * Returns true if the seat was held by an AI player.
+     * @param seat The seat.
+     * @return True if the seat was held by an AIPlayer.
+     */
+    public boolean isAISeat(int seat) {
+        return kinds[seat] == GameJournal.AI_PLAYER;
+    } // end isAISeat
+
+    /**
+     * Returns true if the end of the game was recorded.
+     * @return True if the game finished.
+     */
+    public boolean isFinished() {
+        return finished;
+    } // end isFinished
+
+    /**
+     * Returns the recorded winner.
+     * @return The winner, or null if the game has not finished or every player quit.
+     */
+    public Player getWinner() {
+        return winnerSeat < 0 ? null : players.get(winnerSeat);
+    } // end getWinner
+
+    /**
+     * Returns the number of turns replayed.
+     * @return The number of turns.
+     */
+    public int getTurnCount() {
+        return turns;
+    } // end getTurnCount
+
+    // Checks every replayed roll against the score recorded for it, so that a game
+    // recorded under different rules is not replayed.
+    private final TurnListener verifier = new TurnListener() {
+        public void scored(Player player, ScoreResult result) {
+            ReplayPlayer replayer = (ReplayPlayer)player;
+            int roll = replayer.lastRoll;
+            if (result.getScore() != replayer.lastScore || result.getDiceLeft() != (roll >> 21 & 7) ||
+                    result.getRollAgain() != ((roll & 1 << 24) != 0))
+                throw new IllegalStateException("roll " + result.getScoreDescription().replace('\n', ' ') +
+                        " was recorded with a score of " + replayer.lastScore);
+        } // end scored
+    };
+
+    // A stand-in for a recorded player, who rolls the recorded dice and makes the
+    // recorded choices.  A turn that runs out of recorded choices when the player
+    // must choose is one in which the player quit.
+    private static class ReplayPlayer extends Player {
+
+        private final RecordedDice dice;
+        private final List<Character> choices = new ArrayList<>();
+        private int lastRoll;
+        private int lastScore;
+
+        ReplayPlayer(String name) {
+            this(name, new RecordedDice());
+        } // end Constructor
+
+        private ReplayPlayer(String name, RecordedDice dice) {
+            super(name, dice);
+            this.dice = dice;
+            dice.player = this;
+        } // end dice Constructor
+
+        void addRoll(int roll, int score) {
+            dice.rolls.add(roll);
+            dice.scores.add(score);
+        } // end addRoll
+
+        void addChoice(char choice) {
+            choices.add(choice);
+        } // end addChoice
+
+        boolean isUsedUp() {
+            return dice.rolls.isEmpty() && choices.isEmpty();
+        } // end isUsedUp
+
+        public char makePlayChoice() {
+            return choices.isEmpty() ? 'q' : choices.remove(0);
+        } // end makePlayChoice
+
+    } // end ReplayPlayer class
+
+    // The dice of a ReplayPlayer, which give the recorded rolls in order.
+    private static class RecordedDice implements DiceSource {
+
+        private final List<Integer> rolls = new ArrayList<>();
+        private final List<Integer> scores = new ArrayList<>();
+        private ReplayPlayer player;
+
+        public void roll(int[] dice) {
+            if (rolls.isEmpty())
+                throw new IllegalStateException("the turn needs more rolls than were recorded");
+            int roll = rolls.remove(0);
+            if ((roll >> 18 & 7) != dice.length)
+                throw new IllegalStateException((roll >> 18 & 7) + " dice were recorded, not " + dice.length);
+            for (int i = 0; i < dice.length; i++)
+                dice[i] = roll >> (3 * i) & 7;
+            player.lastRoll = roll;
+            player.lastScore = scores.remove(0);
+        } // end roll
+
+        // A ReplayPlayer makes the recorded choices instead of asking its dice for
+        // random numbers, and nothing splits a player's dice once a game has started,
+        // so these cannot be reached.  If they were, the replay would no longer follow
+        // the recording, so they fail the replay the same way a missing roll does, and
+        // apply adds the game and turn to the message.
+        public int nextInt(int bound) {
+            throw new IllegalStateException(player.getName() + " asked the recorded dice for a random number " +
+                    "after roll " + player.getRollCount());
+        } // end nextInt
+
+        public DiceSource split() {
+            throw new IllegalStateException(player.getName() + " asked to split the recorded dice after roll " +
+                    player.getRollCount());
+        } // end split
+
+    } // end RecordedDice class
+
+    // Replays every game in the journal directory given on the command line, and
+    // shows the banks at the end of each game or as of its last complete turn.
+    public static void main(String[] args) {
+        File directory = new File(args.length > 0 ? args[0] : "zilch-journal");
+        try {
+            for (GameReplay replay : GameJournal.replay(directory)) {
+                String out = "Game " + replay.getGameId() + " at table " + replay.getTableId() + ", " +
+                        replay.getTurnCount() + " turns";
+                if (replay.isFinished())
+                    out += replay.getWinner() == null ? ", abandoned" : ", won by " + replay.getWinner().getName();
+                else
+                    out += ", unfinished";
+                System.out.println(out + ":");
+                for (Player player : replay.getGame().getPlayers())
+                    System.out.println("    " + player.getName() + " has " + player.getScore() + " points after " +
+                            player.getRollCount() + " rolls" + (player.hasQuit() ? " and quit" : ""));
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot replay journal: " + e.getMessage());
+        } // end try/catch
+    } // end main method
+
+} // end GameReplay class
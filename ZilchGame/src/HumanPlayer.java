@@ -1,22 +1,49 @@
 
 /**
  * A class representing a human player in the game of Zilch.
+ *
+ * The player answers from a source of input, which is the console unless another
+ * is supplied.  On the console, quitting ends the program.  With any other source,
+ * such as a ScriptedInput, quitting removes the player from the game, so that many
+ * sessions can be played in one program.  The end of the input counts as quitting.
  */
 public class HumanPlayer extends Player {
 
+    private final InputSource source;
+
     /**
      * The constructor for the HumanPlayer class.
      * @param name The name of the human player.
      */
     public HumanPlayer(String name) {
-        super(name);
+        this(name, InputSource.CONSOLE, new SplittableDice());
     } // end Constructor
 
+    /**
+     * A constructor for a human player who answers from the supplied source, with
+     * seeded dice so that a scripted session plays the same way every time.  The
+     * player's turns are shown by a ConsoleTurnListener reading from the same source.
+     * @param name The name of the human player.
+     * @param source The source of the player's input.
+     * @param seed The seed for the player's dice.
+     */
+    public HumanPlayer(String name, InputSource source, long seed) {
+        this(name, source, new SplittableDice(seed));
+    } // end source Constructor
+
+    private HumanPlayer(String name, InputSource source, DiceSource dice) {
+        super(name, dice);
+        this.source = source;
+        setTurnListener(new ConsoleTurnListener(source));
+    } // end private Constructor
+
     // Use the Javadoc comment from Player
     public char makePlayChoice() {
         char input = playerPrompt("Do you want to (r)oll or (b)ank your turn sum? ");
-        if (input == 'q' || input == 'Q') {
-            System.out.println("\nQuitting early!!\n");
+        if (input == 'q' || input == 'Q' || input == '\0') {
+            if (source != InputSource.CONSOLE)
+                return 'q';
+            source.getOutput().println("\nQuitting early!!\n");
             System.exit(0);;
         }
         return input;
@@ -31,17 +58,17 @@ public class HumanPlayer extends Player {
     } // end inArray
 
     // Prompts for, obtains and returns a single character from the user. If the
-    // character is not legal, the user is prompted again.
-    private static char playerPrompt(String prompt) {
+    // character is not legal, the user is prompted again.  Returns the null
+    // character at the end of the input.
+    private char playerPrompt(String prompt) {
         char response = '?';
-        char[] legalResponses = {'r', 'R', 'b', 'B', 'q', 'Q'};
+        char[] legalResponses = {'r', 'R', 'b', 'B', 'q', 'Q', '\0'};
         while (true) {
-            System.out.print(prompt);
-            response = getChar();
+            response = getChar(source, prompt);
             if (inArray(legalResponses, response))
                 return response;
             else
-                System.out.print("Illegal entry, please try again. ");
+                source.getOutput().print("Illegal entry, please try again. ");
         }
     } // end playerPrompt
 
@@ -9,37 +9,57 @@
  * 		- the low legal limit
  * 		- the high legal limit
  * 		- a String prompt
+ * Each method can also be given the InputSource to read from, such as a
+ * ScriptedInput, and then shows its messages on the source's output.  Otherwise it
+ * reads from the console.  As with a Scanner, a
+ * number is the first word on the next line that is not blank, and the end of
+ * the input throws a NoSuchElementException.
  */
-import java.util.InputMismatchException;
-import java.util.Scanner;
+import java.util.NoSuchElementException;
 
 public class IOHelper {
 
-    private static Scanner screenInput = new Scanner(System.in);
+    // Shows the prompt and returns the next line that is not blank, without any
+    // white space in front of it.
+    private static String nextEntry(InputSource input, String prompt) {
+        String line = input.readLine(prompt);
+        while (line != null && line.isBlank())
+            line = input.readLine("");
+        if (line == null)
+            throw new NoSuchElementException("No more input.");
+        return line.stripLeading();
+    } // end nextEntry
+
+    // Returns the first word of an entry.
+    private static String firstWord(String entry) {
+        return entry.split("\\s", 2)[0];
+    } // end firstWord
 
     public static int getInt(int low, String prompt, int high) {
+        return getInt(InputSource.CONSOLE, low, prompt, high);
+    } // end full parameter getInt method
+
+    public static int getInt(InputSource input, int low, String prompt, int high) {
         int numFromUser = 0;
-        String dummy;
+        String entry;
         boolean numericEntryOK;
         do {
-            System.out.print(prompt);
             numericEntryOK = false;
+            entry = nextEntry(input, prompt);
             try {
-                numFromUser = screenInput.nextInt();
-                dummy = screenInput.nextLine();
+                numFromUser = Integer.parseInt(firstWord(entry));
                 numericEntryOK = true;
-            } catch (InputMismatchException e) {
-                dummy = screenInput.nextLine();
-                System.out.println(dummy + " is not an integer!");
+            } catch (NumberFormatException e) {
+                input.getOutput().println(entry + " is not an integer!");
                 numFromUser = low;
             } // end try-catch
             // Indicate to the user why he is being prompted again.
             if (numFromUser < low || numFromUser > high) {
-                System.out.println("The number is outside the legal limits.");
+                input.getOutput().println("The number is outside the legal limits.");
             }
         } while (!numericEntryOK || numFromUser < low || numFromUser > high);
         return numFromUser;
-    } // end full parameter getInt method
+    } // end source getInt method
 
     public static int getInt() {
         int low = Integer.MIN_VALUE;
@@ -65,28 +85,30 @@ public class IOHelper {
     } // end two parameter getInt method
 
     public static double getDouble(double low, String prompt, double high) {
+        return getDouble(InputSource.CONSOLE, low, prompt, high);
+    } // end full parameter getDouble method
+
+    public static double getDouble(InputSource input, double low, String prompt, double high) {
         double numFromUser = 0;
-        String dummy;
+        String entry;
         boolean numericEntryOK;
         do {
-            System.out.print(prompt);
             numericEntryOK = false;
+            entry = nextEntry(input, prompt);
             try {
-                numFromUser = screenInput.nextDouble();
-                dummy = screenInput.nextLine();
+                numFromUser = Double.parseDouble(firstWord(entry));
                 numericEntryOK = true;
-            } catch (InputMismatchException e) {
-                dummy = screenInput.nextLine();
-                System.out.println(dummy + " is not a double!");
+            } catch (NumberFormatException e) {
+                input.getOutput().println(entry + " is not a double!");
                 numFromUser = low;
             } // end try-catch
             // Indicate to the user why he is being prompted again.
             if (numFromUser < low || numFromUser > high) {
-                System.out.println("The number is outside the legal limits.");
+                input.getOutput().println("The number is outside the legal limits.");
             }
         } while (!numericEntryOK || numFromUser < low || numFromUser > high);
         return numFromUser;
-    } // end full parameter getDouble method
+    } // end source getDouble method
 
     public static double getDouble() {
         double low = -Double.MAX_VALUE;
@@ -112,11 +134,15 @@ public class IOHelper {
     } // end two parameter getDouble method
 
     public static String getString(String prompt) {
-        String userText;
-        System.out.print(prompt);
-        userText = screenInput.nextLine();
-        return userText;
+        return getString(InputSource.CONSOLE, prompt);
     } // end getString method
 
+    public static String getString(InputSource input, String prompt) {
+        String userText = input.readLine(prompt);
+        if (userText == null)
+            throw new NoSuchElementException("No more input.");
+        return userText;
+    } // end source getString method
+
 } // end IOHelper class
 
@@ -0,0 +1,92 @@
+import java.util.SplittableRandom;
+
+/**
+ * A dice source whose rolls depend only on its seed and on which roll of which turn
+ * they are, for playing common random numbers.  Two players given sources with the
+ * same seed roll exactly the same dice on the first roll of their first turn, the
+ * second roll of it and so on, whatever they choose, so any difference between
+ * their games is down to their choices rather than their luck.  Because each turn
+ * starts afresh, a player that rolls more often in one turn still rolls the same
+ * dice as the other player in the turns after it.
+ *
+ * Random numbers taken by nextInt come from a separate stream, so a player that
+ * makes random choices does not change the dice it rolls.
+ */
+// Each roll of up to six dice uses one 64 bit number, the SplitMix64 finaliser of
+// the turn's seed plus a multiple of the golden ratio for each roll, which is how
+// SplittableRandom steps through its numbers.  The turn's seed is made from the
+// source's seed and the number of the turn in the same way.  The dice are the digits of that
+// number in base 6, as in SplittableDice.
+public class IndexedDice implements DiceSource {
+
+    private static final int DICE_PER_DRAW = 6;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final long seed;
+    private final SplittableRandom choices;
+    private long turns = 0;
+    private long turnSeed;
+    private long draws = 0;
+
+    /**
+     * The constructor for a source that rolls the same dice as every other source
+     * with the same seed.
+     * @param seed The seed for the dice.
+     */
+    public IndexedDice(long seed) {
+        this.seed = seed;
+        choices = new SplittableRandom(mix(seed));
+        turnSeed = seed;
+    } // end Constructor
+
+    // Returns the SplitMix64 finaliser of a number.
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    } // end mix
+
+    // Returns the random number for the next draw of up to six dice.
+    private long nextDraw() {
+        return mix(turnSeed + ++draws * GOLDEN_GAMMA);
+    } // end nextDraw
+
+    // Use the Javadoc comments from DiceSource
+    public void startTurn() {
+        turnSeed = mix(seed + ++turns * GOLDEN_GAMMA);
+        draws = 0;
+    } // end startTurn
+
+    public void roll(int[] dice) {
+        long bits = 0;
+        for (int i = 0; i < dice.length; i++) {
+            if (i % DICE_PER_DRAW == 0)
+                bits = nextDraw();
+            // Unsigned high 64 bits of bits * 6
+            dice[i] = (int)(Math.multiplyHigh(bits, 6) + ((bits >> 63) & 6)) + 1;
+            bits *= 6;
+        } // end for
+    } // end roll
+
+    public int rollCounts(int numDice) {
+        long bits = 0;
+        int counts = 0;
+        for (int i = 0; i < numDice; i++) {
+            if (i % DICE_PER_DRAW == 0)
+                bits = nextDraw();
+            // Adds one to the three bits counting the die's value
+            counts += 1 << (3 * (int)(Math.multiplyHigh(bits, 6) + ((bits >> 63) & 6)));
+            bits *= 6;
+        } // end for
+        return counts;
+    } // end rollCounts
+
+    public int nextInt(int bound) {
+        return choices.nextInt(bound);
+    } // end nextInt
+
+    public DiceSource split() {
+        return new IndexedDice(choices.nextLong());
+    } // end split
+
+} // end IndexedDice class
@@ -0,0 +1,38 @@
+import java.io.PrintStream;
+
+/**
+ * A source of the lines a user types, for the parts of the game of Zilch that read
+ * from the user: HumanPlayer, ConsoleTurnListener and IOHelper.  The CONSOLE source
+ * reads from the terminal, and a ScriptedInput supplies the lines of a script so
+ * that sessions can be played without a terminal.
+ *
+ * A source also says where the user it reads from is shown things, so that
+ * everything a session shows goes to the same place as its prompts.
+ */
+public interface InputSource {
+
+    /**
+     * The source that reads from System.in.  Everything that reads from the console
+     * shares it, so no reader buffers input meant for another.
+     */
+    InputSource CONSOLE = new ConsoleInput();
+
+    /**
+     * Shows a prompt to the user and reads the next line they enter.
+     * @param prompt The prompt, printed without starting a new line.  It may be
+     * empty.
+     * @return The line, without its line terminator, or null at the end of the
+     * input.
+     */
+    String readLine(String prompt);
+
+    /**
+     * Returns the stream that the user this source reads from is shown things on.
+     * By default it is System.out.
+     * @return The stream.
+     */
+    default PrintStream getOutput() {
+        return System.out;
+    } // end getOutput
+
+} // end InputSource interface
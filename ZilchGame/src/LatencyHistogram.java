@@ -0,0 +1,131 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records how long something takes, in nanoseconds, with a fixed relative precision
+ * of about six percent from one nanosecond to many years.  Recording a value takes
+ * two atomic additions and never allocates, so the histogram can be used on hot
+ * paths by many threads at once.
+ */
+// Values are kept in buckets on a log-linear scale, in the same way as
+// HdrHistogram: values below SUB_BUCKETS have a bucket each, and every power of two
+// above that is split into SUB_BUCKETS / 2 equal buckets.
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * HALF + HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Records a value.
+     * @param nanos The value in nanoseconds.  Negative values are recorded as zero.
+     */
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        counts.incrementAndGet(bucket(nanos));
+        sum.add(nanos);
+    } // end record
+
+    // Returns the bucket holding a value.
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS)
+            return (int)value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return (exponent + 1) * HALF + (int)(value >>> exponent) - HALF;
+    } // end bucket
+
+    // Returns the highest value held in a bucket.
+    static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int exponent = bucket / HALF - 1;
+        long sub = bucket % HALF + HALF;
+        return ((sub + 1) << exponent) - 1;
+    } // end highestValue
+
+    /**
+     * Returns a copy of the values recorded so far.  Values recorded while the copy
+     * is taken may or may not be included.
+     * @return The snapshot.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, sum.sum());
+    } // end snapshot
+
+    /**
+     * The values recorded by a histogram up to the time the snapshot was taken.
+     */
+    public static class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+
+        // Called by LatencyHistogram.snapshot.
+        private Snapshot(long[] counts, long count, long sum) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+        } // end Constructor
+
+        /**
+         * Returns the number of values recorded.
+         * @return The count.
+         */
+        public long getCount() {
+            return count;
+        } // end getCount
+
+        /**
+         * Returns the total of the values recorded.
+         * @return The sum in nanoseconds.
+         */
+        public long getSum() {
+            return sum;
+        } // end getSum
+
+        /**
+         * Returns the value below which the supplied fraction of values fall.
+         * @param quantile The fraction, between 0 and 1.
+         * @return The value in nanoseconds, rounded up to the top of its bucket, or 0
+         * if nothing was recorded.
+         */
+        public long getValueAt(double quantile) {
+            if (count == 0)
+                return 0;
+            long rank = Math.max(1, (long)Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank)
+                    return highestValue(i);
+            }
+            return getMax();
+        } // end getValueAt
+
+        /**
+         * Returns the largest value recorded.
+         * @return The value in nanoseconds, rounded up to the top of its bucket, or 0
+         * if nothing was recorded.
+         */
+        public long getMax() {
+            for (int i = counts.length - 1; i >= 0; i--)
+                if (counts[i] > 0)
+                    return highestValue(i);
+            return 0;
+        } // end getMax
+
+    } // end Snapshot class
+
+} // end LatencyHistogram class
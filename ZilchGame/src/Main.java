@@ -1,19 +1,76 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.SplittableRandom;
+
 // All this class has is a main method.  It obtains parameters for the Zilch game
-// from the user and starts up the game.
+// from the user and starts up the game.  A session can also be recorded to a file
+// as it is played, or played again from its recording.
 public class Main {
 
-    public static void main(String[] args) {
-        String humanName = IOHelper.getString("Enter the human player\'s name: ");
-        String botName = IOHelper.getString("Enter the AI player\'s name: ");
-        int gameLimit = IOHelper.getInt(300, "Enter the game limit: ", 100000);
-        HumanPlayer human = new HumanPlayer(humanName);
-        AIPlayer bot = new AIPlayer(botName);
+    // Plays a game on the console with the parameters obtained from the user through
+    // the supplied source of input, and shows it on the source's output.  The seed
+    // decides both players' dice and who goes first, so a scripted session plays the
+    // same way every time.  Sessions with their own sources can be played at once.
+    static void playSession(InputSource input, long seed) {
+        String humanName = IOHelper.getString(input, "Enter the human player\'s name: ");
+        String botName = IOHelper.getString(input, "Enter the AI player\'s name: ");
+        int gameLimit = IOHelper.getInt(input, 300, "Enter the game limit: ", 100000);
+        SplittableRandom random = new SplittableRandom(seed);
+        HumanPlayer human = new HumanPlayer(humanName, input, random.nextLong());
+        AIPlayer bot = new AIPlayer(botName, 1000, random.nextLong());
+        bot.setTurnListener(new ConsoleTurnListener(input));
         try {
-            ZilchGame game = new ZilchGame(human, bot, gameLimit);
+            ZilchGame game = new ZilchGame(List.of(human, bot), gameLimit, random);
+            if (input != InputSource.CONSOLE)
+                game.setRenderer(new ConsoleRenderer(input.getOutput()));
             game.playGame();
         } catch (ZilchException e) {
             System.err.println("Cannot play game: " + e.getMessage());
         } // end try/catch
+    } // end playSession
+
+    // With no arguments a game is played on the console.  "record file seed" plays
+    // a game on the console and records everything the user enters in the file.
+    // "replay file seed sessions" plays a recorded session again on the console, then
+    // replays it the number of times asked without showing it, and reports how many
+    // sessions a second were played.  The seed is shown so that a recorded session
+    // can be replayed with the same dice.  Any other first argument is refused.
+    public static void main(String[] args) {
+        if (args.length > 0 && (args.length < 2 || !args[0].equals("record") && !args[0].equals("replay"))) {
+            System.err.println("Usage: java Main [record file [seed] | replay file [seed [sessions]]]");
+            return;
+        }
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        if (args.length == 0) {
+            playSession(InputSource.CONSOLE, seed);
+            return;
+        }
+        try {
+            File file = new File(args[1]);
+            System.out.println("Seed: " + seed);
+            if (args[0].equals("record")) {
+                try (RecordingInput input = new RecordingInput(InputSource.CONSOLE, file)) {
+                    playSession(input, seed);
+                } // end try
+                return;
+            }
+            playSession(ScriptedInput.load(file), seed);
+            long sessions = args.length > 3 ? Long.parseLong(args[3]) : 0;
+            ScriptedInput quiet = ScriptedInput.load(file, new PrintStream(OutputStream.nullOutputStream()));
+            long start = System.nanoTime();
+            for (long i = 0; i < sessions; i++) {
+                quiet.reset();
+                playSession(quiet, seed);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (sessions > 0)
+                System.out.printf("%d sessions replayed, %.0f sessions per second%n", sessions, sessions / seconds);
+        } catch (IOException e) {
+            System.err.println("Cannot use session file: " + e.getMessage());
+        } // end try/catch
     } // end main method
 
 } // end Main class
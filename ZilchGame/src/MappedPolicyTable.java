@@ -0,0 +1,156 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A policy table for the game of Zilch that is read directly from a file written by
+ * PolicyFileBuilder.  The file is memory-mapped rather than loaded, so opening a
+ * table is instant however large it is, and every program on the same computer
+ * using the table shares one copy of it in memory.
+ *
+ * The table holds a roll or bank choice for every combination of the player's
+ * banked score, the best opponent's banked score, the zilch count, the number of
+ * dice available and the turn score.  A file is only good for the rules it was
+ * calculated for, so it records the identity of its rules and is refused when
+ * opened for any others.
+ */
+// File layout, all values big-endian:
+//
+//     int  MAGIC
+//     int  FORMAT_VERSION
+//     int  Scoring.RULES_VERSION of the rules the table was calculated for
+//     int  game limit
+//     int  bank bucket size
+//     int  highest turn score held in the table
+//     int  turn score unit
+//     int  RuleSet.getIdentity of the rules the table was calculated for
+//     choices, one bit per state, least significant bit first in each byte
+//
+// Banked scores are quantised into buckets of the bucket size; scores below zero
+// use the first bucket and scores at or above the game limit use the last.  The
+// state index is laid out as [my bucket][opponent bucket][zilch count][dice - 1]
+// [turn score / unit].  A file may be larger than one mapping can hold, so it is
+// mapped in segments.
+public class MappedPolicyTable implements BankPolicy {
+
+    static final int MAGIC = 0x5A494C54;	// "ZILT"
+    static final int FORMAT_VERSION = 2;
+    static final int HEADER_SIZE = 32;
+    static final int TURN_UNIT = 50;
+    static final int SEGMENT_BITS = 30;
+
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+    private final int gameLimit;
+    private final int bankBucket;
+    private final int maxTurnScore;
+    private final int bankBuckets;
+    private final int levels;
+    private final ByteBuffer[] segments;
+
+    /**
+     * Opens and maps a policy file calculated for the standard rules.
+     * @param file The file written by PolicyFileBuilder.
+     * @throws IOException If the file cannot be read, is not a policy file, or was
+     * calculated for different scoring rules.
+     */
+    public MappedPolicyTable(File file) throws IOException {
+        this(file, RuleSet.STANDARD);
+    } // end Constructor
+
+    /**
+     * Opens and maps a policy file.
+     * @param file The file written by PolicyFileBuilder.
+     * @param rules The rules the table must have been calculated for.
+     * @throws IOException If the file cannot be read, is not a policy file, has a
+     * corrupt header, or was calculated for different scoring rules.
+     */
+    public MappedPolicyTable(File file, RuleSet rules) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION)
+                throw new IOException(file + " is not a Zilch policy file.");
+            int version = header.getInt();
+            if (version != Scoring.RULES_VERSION)
+                throw new IOException(file + " was built for scoring rules version " + version +
+                        ", not " + Scoring.RULES_VERSION + ".");
+            gameLimit = header.getInt();
+            bankBucket = header.getInt();
+            maxTurnScore = header.getInt();
+            if (header.getInt() != TURN_UNIT)
+                throw new IOException(file + " uses an unsupported turn score unit.");
+            if (header.getInt() != rules.getIdentity())
+                throw new IOException(file + " was calculated for other rules than " + rules + ".");
+            // The sizes are checked as PolicyFileBuilder checks them, before they are
+            // divided by or used to size the table.
+            if (gameLimit < 300 || gameLimit > 100000 || bankBucket < TURN_UNIT || maxTurnScore < 300)
+                throw new IOException(file + " has a corrupt header.");
+            bankBuckets = bucketCount(gameLimit, bankBucket);
+            levels = maxTurnScore / TURN_UNIT + 1;
+            long size = dataSize(bankBuckets, levels);
+            if (channel.size() < HEADER_SIZE + size)
+                throw new IOException(file + " is truncated.");
+            segments = map(channel, FileChannel.MapMode.READ_ONLY, size);
+        } // end try
+    } // end Constructor
+
+    // Returns the number of bank buckets needed for a game limit.
+    static int bucketCount(int gameLimit, int bankBucket) {
+        return (gameLimit + bankBucket - 1) / bankBucket;
+    } // end bucketCount
+
+    // Returns the number of bytes of choices held in a table.
+    static long dataSize(int bankBuckets, int levels) {
+        long states = (long)bankBuckets * bankBuckets * 3 * 6 * levels;
+        return (states + 7) / 8;
+    } // end dataSize
+
+    // Maps the choices following the header in segments of at most 2^SEGMENT_BITS bytes.
+    static MappedByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode, long size) throws IOException {
+        int count = (int)((size + SEGMENT_MASK) >>> SEGMENT_BITS);
+        MappedByteBuffer[] segments = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long start = (long)i << SEGMENT_BITS;
+            segments[i] = channel.map(mode, HEADER_SIZE + start, Math.min(SEGMENT_MASK + 1, size - start));
+        }
+        return segments;
+    } // end map
+
+    // Returns the bucket holding a banked score.
+    static int bucket(int bank, int bankBucket, int bankBuckets) {
+        if (bank <= 0)
+            return 0;
+        return Math.min(bank / bankBucket, bankBuckets - 1);
+    } // end bucket
+
+    // Returns the bit index of a state.
+    static long index(int myBucket, int opponentBucket, int zilchCount, int diceAvailable,
+                      int turnScore, int bankBuckets, int levels) {
+        long index = (long)myBucket * bankBuckets + opponentBucket;
+        index = (index * 3 + zilchCount) * 6 + diceAvailable - 1;
+        return index * levels + turnScore / TURN_UNIT;
+    } // end index
+
+    // Use the Javadoc comment from BankPolicy
+    public boolean shouldBank(int myBank, int opponentBank, int zilchCount, int diceAvailable, int turnScore) {
+        if (turnScore > maxTurnScore)
+            return true;
+        long index = index(bucket(myBank, bankBucket, bankBuckets), bucket(opponentBank, bankBucket, bankBuckets),
+                zilchCount, diceAvailable, turnScore, bankBuckets, levels);
+        long offset = index >>> 3;
+        byte bits = segments[(int)(offset >>> SEGMENT_BITS)].get((int)(offset & SEGMENT_MASK));
+        return (bits & (1 << (index & 7))) != 0;
+    } // end shouldBank
+
+    /**
+     * Returns the game limit the table was calculated for.
+     * @return The game limit.
+     */
+    public int getGameLimit() {
+        return gameLimit;
+    } // end getGameLimit
+
+} // end MappedPolicyTable class
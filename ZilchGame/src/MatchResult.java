@@ -0,0 +1,110 @@
+/**
+ * The result of one pairing in a Tournament: the games played between two
+ * strategies, and whether the difference between them is significant.
+ */
+public class MatchResult {
+
+    private final String first;
+    private final String second;
+    private final SimulationResult games = new SimulationResult();
+    private boolean significant = false;
+
+    // Called by Tournament when the pairing is scheduled.
+    MatchResult(String first, String second) {
+        this.first = first;
+        this.second = second;
+    } // end Constructor
+
+    // Adds a batch of games between the two strategies.
+    void add(SimulationResult batch) {
+        games.merge(batch);
+    } // end add
+
+    // Records that the sequential test found the strategies to differ.
+    void setSignificant() {
+        significant = true;
+    } // end setSignificant
+
+    /**
+     * Returns the name of the first strategy.
+     * @return The name.
+     */
+    public String getFirst() {
+        return first;
+    } // end getFirst
+
+    /**
+     * Returns the name of the second strategy.
+     * @return The name.
+     */
+    public String getSecond() {
+        return second;
+    } // end getSecond
+
+    /**
+     * Returns the number of games played.
+     * @return The number of games.
+     */
+    public long getGames() {
+        return games.getGames();
+    } // end getGames
+
+    /**
+     * Returns the number of games won by a strategy.
+     * @param seat 0 for the first strategy, 1 for the second.
+     * @return The number of wins.
+     */
+    public long getWins(int seat) {
+        return games.getWins(seat);
+    } // end getWins
+
+    /**
+     * Returns the fraction of games won by the first strategy.
+     * @return The win rate, between 0 and 1.
+     */
+    public double getWinRate() {
+        return games.getWinRate(0);
+    } // end getWinRate
+
+    /**
+     * Returns the half width of the 95% confidence interval of the win rate.
+     * @return The half width, or 1 if no games have been played.
+     */
+    public double getHalfWidth() {
+        long n = getGames();
+        if (n == 0)
+            return 1;
+        double p = getWinRate();
+        return 1.96 * Math.sqrt(p * (1 - p) / n);
+    } // end getHalfWidth
+
+    /**
+     * Returns true if the sequential test stopped the pairing because one strategy
+     * is significantly stronger than the other.
+     * @return True if the difference is significant.
+     */
+    public boolean isSignificant() {
+        return significant;
+    } // end isSignificant
+
+    /**
+     * Returns the difference in Elo rating between the strategies implied by the win
+     * rate of the first.
+     * @return The first strategy's rating minus the second's.  It is infinite if one
+     * strategy won every game.
+     */
+    public double getEloDifference() {
+        double p = getWinRate();
+        return -400 * Math.log10(1 / p - 1);
+    } // end getEloDifference
+
+    /**
+     * Returns a one line summary of the pairing.
+     * @return The summary.
+     */
+    public String toString() {
+        return String.format("%s vs %s: %d games, %.2f%% +/- %.2f%%, Elo %+.0f%s", first, second, getGames(),
+                100 * getWinRate(), 100 * getHalfWidth(), getEloDifference(), significant ? " *" : "");
+    } // end toString
+
+} // end MatchResult class
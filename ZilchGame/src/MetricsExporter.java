@@ -0,0 +1,49 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves the metrics in ZilchMetrics over HTTP on the local computer, so that they
+ * can be watched while a program runs.  /metrics answers in the Prometheus text
+ * exposition format, and any other path answers with readable text.
+ */
+public class MetricsExporter {
+
+    private final HttpServer server;
+
+    /**
+     * Starts serving the metrics on a thread of its own.
+     * @param port The port to listen on.
+     * @throws IOException If the port cannot be opened.
+     */
+    public MetricsExporter(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 16);
+        server.createContext("/", this::handle);
+        server.start();
+    } // end Constructor
+
+    // Answers a request with a snapshot of the metrics.
+    private void handle(HttpExchange exchange) throws IOException {
+        MetricsSnapshot snapshot = ZilchMetrics.snapshot();
+        boolean prometheus = exchange.getRequestURI().getPath().equals("/metrics");
+        byte[] body = (prometheus ? snapshot.toPrometheus() : snapshot.toString()).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type",
+                prometheus ? "text/plain; version=0.0.4; charset=utf-8" : "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        } // end try
+    } // end handle
+
+    /**
+     * Stops serving the metrics.
+     */
+    public void stop() {
+        server.stop(0);
+    } // end stop
+
+} // end MetricsExporter class
@@ -0,0 +1,122 @@
+import java.util.Locale;
+
+/**
+ * The values of the metrics in ZilchMetrics at one moment, which can be shown as
+ * text or in the Prometheus text exposition format.
+ */
+public class MetricsSnapshot {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final long time;
+    private final String[][] counterNames;
+    private final long[] counters;
+    private final String[][] histogramNames;
+    private final LatencyHistogram.Snapshot[] histograms;
+
+    // Called by ZilchMetrics.snapshot.  Each name is a metric name and a description.
+    MetricsSnapshot(long time, String[][] counterNames, long[] counters, String[][] histogramNames,
+                    LatencyHistogram.Snapshot[] histograms) {
+        this.time = time;
+        this.counterNames = counterNames;
+        this.counters = counters;
+        this.histogramNames = histogramNames;
+        this.histograms = histograms;
+    } // end Constructor
+
+    /**
+     * Returns the time the snapshot was taken.
+     * @return The time in milliseconds since the epoch.
+     */
+    public long getTime() {
+        return time;
+    } // end getTime
+
+    /**
+     * Returns the value of a counter.
+     * @param name The metric name, such as zilch_turns_total.
+     * @return The value of the counter.
+     * @throws IllegalArgumentException If there is no counter with the name.
+     */
+    public long getCounter(String name) {
+        for (int i = 0; i < counterNames.length; i++)
+            if (counterNames[i][0].equals(name))
+                return counters[i];
+        throw new IllegalArgumentException("No counter named " + name);
+    } // end getCounter
+
+    /**
+     * Returns the values recorded by a histogram.
+     * @param name The metric name, such as zilch_turn_duration_seconds.
+     * @return The histogram's values.
+     * @throws IllegalArgumentException If there is no histogram with the name.
+     */
+    public LatencyHistogram.Snapshot getHistogram(String name) {
+        for (int i = 0; i < histogramNames.length; i++)
+            if (histogramNames[i][0].equals(name))
+                return histograms[i];
+        throw new IllegalArgumentException("No histogram named " + name);
+    } // end getHistogram
+
+    /**
+     * Returns the rate of a counter per second between an earlier snapshot and
+     * this one.
+     * @param earlier The earlier snapshot.
+     * @param name The metric name of the counter.
+     * @return The number of events per second, or 0 if no time has passed.
+     */
+    public double getRate(MetricsSnapshot earlier, String name) {
+        long millis = time - earlier.time;
+        if (millis <= 0)
+            return 0;
+        return (getCounter(name) - earlier.getCounter(name)) * 1000.0 / millis;
+    } // end getRate
+
+    /**
+     * Returns the metrics in the Prometheus text exposition format.  The histograms
+     * are shown as summaries with quantiles in seconds.
+     * @return The metrics as text.
+     */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < counters.length; i++) {
+            out.append("# HELP ").append(counterNames[i][0]).append(' ').append(counterNames[i][1]).append('\n');
+            out.append("# TYPE ").append(counterNames[i][0]).append(" counter\n");
+            out.append(counterNames[i][0]).append(' ').append(counters[i]).append('\n');
+        }
+        for (int i = 0; i < histograms.length; i++) {
+            String name = histogramNames[i][0];
+            out.append("# HELP ").append(name).append(' ').append(histogramNames[i][1]).append('\n');
+            out.append("# TYPE ").append(name).append(" summary\n");
+            for (double quantile : QUANTILES)
+                out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                        .append(seconds(histograms[i].getValueAt(quantile))).append('\n');
+            out.append(name).append("_sum ").append(seconds(histograms[i].getSum())).append('\n');
+            out.append(name).append("_count ").append(histograms[i].getCount()).append('\n');
+        }
+        return out.toString();
+    } // end toPrometheus
+
+    // Formats nanoseconds as seconds.
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    } // end seconds
+
+    /**
+     * Returns the metrics as readable text, with times in microseconds.
+     * @return The metrics, one per line.
+     */
+    public String toString() {
+        String out = "";
+        for (int i = 0; i < counters.length; i++)
+            out += String.format("%-30s %d%n", counterNames[i][0], counters[i]);
+        for (int i = 0; i < histograms.length; i++) {
+            LatencyHistogram.Snapshot histogram = histograms[i];
+            out += String.format("%-30s count %d, p50 %.1f us, p99 %.1f us, max %.1f us%n", histogramNames[i][0],
+                    histogram.getCount(), histogram.getValueAt(0.5) / 1e3, histogram.getValueAt(0.99) / 1e3,
+                    histogram.getMax() / 1e3);
+        }
+        return out;
+    } // end toString
+
+} // end MetricsSnapshot class
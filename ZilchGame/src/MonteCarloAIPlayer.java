@@ -0,0 +1,372 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An AI player in the game of Zilch that chooses to roll or bank by Monte Carlo
+ * tree search.  The search plays the rest of the turn and the rest of the game many
+ * times under the player's rules, against the opponent with the best banked score,
+ * and makes the choice that wins most often, so unlike AIPlayer it takes both banks
+ * and the game limit into account.
+ *
+ * Each choice is given a time budget and a budget of searched games, and the search
+ * stops at whichever runs out first.  The search runs on several worker threads at
+ * once, and what each has learned about the turn is kept for the player's next
+ * choice in the same turn.  The threads belong to the player, so the search is not
+ * held up by other work, such as the games of a Simulation, and they stop when the
+ * player has not searched for a while.
+ */
+// The search is root parallel: every worker grows its own tree from the current
+// position with its own random numbers, and the statistics of the two choices at
+// the roots are added up when the time is up.  The first worker searches on the
+// thread making the choice and the others on the player's pool.  A tree covers one
+// turn.  A node is
+// a position in the turn (the dice available and the turn score), its two choices
+// are picked by UCB1, and a roll is followed by drawing an outcome from the exact
+// distribution of the roll, which leads to the child node for that outcome.
+// Rolls the player has no choice about, after a free roll or below the minimum
+// bank, are nodes with only the roll choice.  Once the turn is over, or a new node
+// has been added, the rest of the game is played out with a quick fixed policy
+// for both players, including the final turn rule, and the result is a win or a
+// loss.
+public class MonteCarloAIPlayer extends Player {
+
+    // The exploration constant of UCB1, for results between 0 and 1.
+    private static final double EXPLORATION = 0.7;
+    // Workers check the clock after this many searched games.
+    private static final int CLOCK_INTERVAL = 16;
+    // The turn score at which the playout policy banks, by the number of dice left.
+    private static final int[] PLAYOUT_BANK = {0, 300, 300, 400, 1000, 2000, 100000};
+    // Idle worker threads stop after this many seconds.
+    private static final long IDLE_SECONDS = 10;
+
+    private final int gameLimit;
+    private final long budgetNanos;
+    private final long maxGames;
+    private final Search[] searches;
+    private final ThreadPoolExecutor pool;
+    private int searchedTurn = -1;
+
+    /**
+     * The constructor for the MonteCarloAIPlayer class.
+     * @param name The name of the AI player.
+     * @param gameLimit The game limit of the games the player plays.
+     * @param budgetMillis The longest time to spend on a choice.
+     * @param maxGames The most games to search for a choice, shared between the
+     * workers.
+     * @param workers The number of threads to search on.
+     * @param seed The seed for the player's dice and search.
+     * @throws ZilchException If the gameLimit is illegal or a budget is not positive.
+     */
+    public MonteCarloAIPlayer(String name, int gameLimit, long budgetMillis, long maxGames, int workers,
+                              long seed) throws ZilchException {
+        super(name, seed);
+        if (gameLimit < 300 || gameLimit > 100000)
+            throw new ZilchException("Game limit: " + gameLimit + " not legal (Between 300 and 100000).");
+        if (budgetMillis < 1 || maxGames < 1 || workers < 1)
+            throw new ZilchException("Search budget not legal.");
+        this.gameLimit = gameLimit;
+        budgetNanos = budgetMillis * 1000000L;
+        this.maxGames = maxGames;
+        SplittableRandom random = new SplittableRandom(seed);
+        searches = new Search[workers];
+        for (int i = 0; i < workers; i++)
+            searches[i] = new Search(random.split());
+        if (workers > 1) {
+            pool = new ThreadPoolExecutor(workers - 1, workers - 1, IDLE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), task -> {
+                        Thread thread = new Thread(task, "zilch-search-" + name);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+        } else
+            pool = null;
+    } // end Constructor
+
+    // Use the Javadoc comment from Player
+    public char makePlayChoice() {
+        long deadline = System.nanoTime() + budgetNanos;
+        long gamesEach = Math.max(1, maxGames / searches.length);
+        boolean newTurn = getTurnCount() != searchedTurn;
+        searchedTurn = getTurnCount();
+        RuleSet rules = getRules();
+        int myBank = getScore();
+        int opponentBank = getBestOpponentScore();
+        int zilchCount = getZilchCount();
+        int opponentZilchCount = getBestOpponentZilchCount();
+        int diceAvailable = getDiceAvailable();
+        int turnScore = getTurnScore();
+        Future<?>[] running = new Future<?>[searches.length - 1];
+        for (int worker = 1; worker < searches.length; worker++) {
+            Search search = searches[worker];
+            running[worker - 1] = pool.submit(() -> {
+                search.start(rules, myBank, opponentBank, zilchCount, opponentZilchCount, diceAvailable,
+                        turnScore, newTurn);
+                search.run(gamesEach, deadline);
+            });
+        }
+        searches[0].start(rules, myBank, opponentBank, zilchCount, opponentZilchCount, diceAvailable, turnScore,
+                newTurn);
+        searches[0].run(gamesEach, deadline);
+        await(running);
+        long rollVisits = 0;
+        long bankVisits = 0;
+        double rollWins = 0;
+        double bankWins = 0;
+        for (Search search : searches) {
+            rollVisits += search.root.rollVisits;
+            rollWins += search.root.rollWins;
+            bankVisits += search.root.bankVisits;
+            bankWins += search.root.bankWins;
+        }
+        double rollRate = rollVisits == 0 ? 0 : rollWins / rollVisits;
+        double bankRate = bankVisits == 0 ? 0 : bankWins / bankVisits;
+        return bankRate >= rollRate ? 'b' : 'r';
+    } // end makePlayChoice
+
+    // Waits for the workers on the pool to finish.  The trees cannot be read while a
+    // worker is still searching, so an interrupt is only passed on once they have.
+    private static void await(Future<?>[] running) {
+        boolean interrupted = false;
+        for (Future<?> worker : running)
+            while (true) {
+                try {
+                    worker.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                } // end try/catch
+            } // end while
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    } // end await
+
+    // A position in a turn.  Children are indexed by the outcome of the roll in the
+    // distribution for the node's dice, and are null until the outcome is first
+    // drawn, or if it is a zilch.
+    private static final class Node {
+
+        final int dice;
+        final int turnScore;
+        final boolean canBank;
+        final Node[] children;
+        long rollVisits;
+        long bankVisits;
+        double rollWins;
+        double bankWins;
+
+        Node(RuleSet rules, int dice, int turnScore, boolean canBank) {
+            this.dice = dice;
+            this.turnScore = turnScore;
+            this.canBank = canBank;
+            children = new Node[rules.getDistribution(dice).size()];
+        } // end Constructor
+
+    } // end Node class
+
+    // The tree and random numbers of one worker.  The position outside the turn is
+    // the same for the whole tree.
+    private final class Search {
+
+        private final SplittableRandom random;
+        private RuleSet rules;
+        private Node root;
+        private int myBank;
+        private int opponentBank;
+        private int zilchCount;
+        private int opponentZilchCount;
+        private boolean finalTurn;
+        // The zilch counts of the players during a playout.
+        private int myZilches;
+        private int opponentZilches;
+
+        Search(SplittableRandom random) {
+            this.random = random;
+        } // end Constructor
+
+        // Sets the position to search from.  Within the same turn the subtree already
+        // grown for the position is kept.
+        void start(RuleSet rules, int myBank, int opponentBank, int zilchCount, int opponentZilchCount,
+                   int diceAvailable, int turnScore, boolean newTurn) {
+            Node reused = newTurn || root == null ? null : find(root, diceAvailable, turnScore, 4);
+            this.rules = rules;
+            this.myBank = myBank;
+            this.opponentBank = opponentBank;
+            this.zilchCount = zilchCount;
+            this.opponentZilchCount = opponentZilchCount;
+            finalTurn = opponentBank >= gameLimit;
+            root = reused != null ? reused : new Node(rules, diceAvailable, turnScore, true);
+        } // end start
+
+        // Returns the node for a position where the player can bank, searching the
+        // rolls below a node to the supplied depth, or null if there is none.
+        private Node find(Node node, int dice, int turnScore, int depth) {
+            if (node.dice == dice && node.turnScore == turnScore && node.canBank)
+                return node;
+            if (depth == 0)
+                return null;
+            for (Node child : node.children)
+                if (child != null) {
+                    Node found = find(child, dice, turnScore, depth - 1);
+                    if (found != null)
+                        return found;
+                }
+            return null;
+        } // end find
+
+        // Searches games until either budget is used up.  At least one game is
+        // searched, so a choice is never made without any search.
+        void run(long games, long deadline) {
+            for (long game = 0; game < games; game++) {
+                if (game > 0 && game % CLOCK_INTERVAL == 0 && System.nanoTime() >= deadline)
+                    break;
+                search(root);
+            }
+        } // end run
+
+        // Plays one game through the tree from a node, adding at most one node, and
+        // returns 1 for a win or 0 for a loss.
+        private double search(Node node) {
+            boolean bank = node.canBank && choose(node);
+            if (bank) {
+                double result = finishGame(myBank + node.turnScore, 0);
+                node.bankVisits++;
+                node.bankWins += result;
+                return result;
+            }
+            RollDistribution outcomes = rules.getDistribution(node.dice);
+            int outcome = draw(outcomes);
+            int score = outcomes.getScore(outcome);
+            double result;
+            if (score == 0)
+                result = zilch();
+            else {
+                int turnScore = node.turnScore + score;
+                boolean freeRoll = outcomes.getRollAgain(outcome) || outcomes.getDiceLeft(outcome) == 0;
+                int dice = freeRoll ? 6 : outcomes.getDiceLeft(outcome);
+                boolean canBank = !freeRoll && turnScore >= rules.getMinimumBank();
+                Node child = node.children[outcome];
+                if (child == null) {
+                    node.children[outcome] = new Node(rules, dice, turnScore, canBank);
+                    result = playOutTurn(dice, turnScore, canBank);
+                } else
+                    result = search(child);
+            }
+            node.rollVisits++;
+            node.rollWins += result;
+            return result;
+        } // end search
+
+        // Returns true to bank, picking the choice with the highest upper confidence
+        // bound and trying each choice once first.
+        private boolean choose(Node node) {
+            if (node.bankVisits == 0)
+                return true;
+            if (node.rollVisits == 0)
+                return false;
+            double logVisits = Math.log(node.rollVisits + node.bankVisits);
+            double bank = node.bankWins / node.bankVisits + EXPLORATION * Math.sqrt(logVisits / node.bankVisits);
+            double roll = node.rollWins / node.rollVisits + EXPLORATION * Math.sqrt(logVisits / node.rollVisits);
+            return bank >= roll;
+        } // end choose
+
+        // Draws the outcome of a roll in proportion to how many ways it can happen.
+        private int draw(RollDistribution outcomes) {
+            long ways = random.nextLong(outcomes.getTotalWeight());
+            int outcome = 0;
+            while (ways >= outcomes.getWeight(outcome)) {
+                ways -= outcomes.getWeight(outcome);
+                outcome++;
+            }
+            return outcome;
+        } // end draw
+
+        // Ends the searching player's turn with a zilch, and plays out the game.
+        private double zilch() {
+            int bank = myBank;
+            int zilches = zilchCount + 1;
+            if (zilches == rules.getPenaltyZilches()) {
+                bank -= rules.getZilchPenalty();
+                zilches = 0;
+            }
+            return finishGame(bank, zilches);
+        } // end zilch
+
+        // Plays out the rest of the searching player's turn with the playout policy
+        // from a position just reached, then the rest of the game.
+        private double playOutTurn(int dice, int turnScore, boolean canBank) {
+            myZilches = zilchCount;
+            int target = finalTurn ? opponentBank : -1;
+            int bank = playTurn(myBank, dice, turnScore, canBank, target, true);
+            return finishGame(bank, myZilches);
+        } // end playOutTurn
+
+        // Plays out the game after the searching player's turn has ended with the
+        // supplied bank and zilch count.  Returns 1 if the searching player wins.
+        private double finishGame(int myBank, int myZilchCount) {
+            if (finalTurn)
+                return myBank > opponentBank ? 1 : 0;
+            myZilches = myZilchCount;
+            opponentZilches = opponentZilchCount;
+            int opponentBank = this.opponentBank;
+            while (true) {
+                if (myBank >= gameLimit) {
+                    opponentBank = playTurn(opponentBank, 6, 0, false, myBank, false);
+                    return opponentBank > myBank ? 0 : 1;
+                }
+                opponentBank = playTurn(opponentBank, 6, 0, false, -1, false);
+                if (opponentBank >= gameLimit) {
+                    myBank = playTurn(myBank, 6, 0, false, opponentBank, true);
+                    return myBank > opponentBank ? 1 : 0;
+                }
+                myBank = playTurn(myBank, 6, 0, false, -1, true);
+            }
+        } // end finishGame
+
+        // Plays out a turn from a position with the playout policy and returns the
+        // player's new bank.  On a final turn the target is the bank to beat and the
+        // player rolls until beating it; otherwise the target is -1.
+        private int playTurn(int bank, int dice, int turnScore, boolean canBank, int target, boolean mine) {
+            while (true) {
+                if (canBank) {
+                    boolean stop = target >= 0 ? bank + turnScore > target :
+                            bank + turnScore >= gameLimit || turnScore >= PLAYOUT_BANK[dice];
+                    if (stop) {
+                        if (mine)
+                            myZilches = 0;
+                        else
+                            opponentZilches = 0;
+                        return bank + turnScore;
+                    }
+                }
+                RollDistribution outcomes = rules.getDistribution(dice);
+                int outcome = draw(outcomes);
+                int score = outcomes.getScore(outcome);
+                if (score == 0) {
+                    int zilches = (mine ? myZilches : opponentZilches) + 1;
+                    if (zilches == rules.getPenaltyZilches()) {
+                        bank -= rules.getZilchPenalty();
+                        zilches = 0;
+                    }
+                    if (mine)
+                        myZilches = zilches;
+                    else
+                        opponentZilches = zilches;
+                    return bank;
+                }
+                turnScore += score;
+                boolean freeRoll = outcomes.getRollAgain(outcome) || outcomes.getDiceLeft(outcome) == 0;
+                dice = freeRoll ? 6 : outcomes.getDiceLeft(outcome);
+                canBank = !freeRoll && turnScore >= rules.getMinimumBank();
+            }
+        } // end playTurn
+
+    } // end Search class
+
+} // end MonteCarloAIPlayer class
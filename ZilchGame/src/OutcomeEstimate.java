@@ -0,0 +1,97 @@
+/**
+ * The estimated outcomes of a position in a game of Zilch, as calculated by
+ * OutcomeEstimator.  The position is a player about to choose whether to roll or
+ * bank.
+ */
+public class OutcomeEstimate {
+
+    private final double zilchProbability;
+    private final double rollValue;
+    private final double bankValue;
+    private final double winProbabilityIfRoll;
+    private final double winProbabilityIfBank;
+    private final double standardError;
+    private final long rollouts;
+
+    // Called by OutcomeEstimator.  The bank values are NaN if the player cannot bank.
+    OutcomeEstimate(double zilchProbability, double rollValue, double bankValue,
+                    double winProbabilityIfRoll, double winProbabilityIfBank,
+                    double standardError, long rollouts) {
+        this.zilchProbability = zilchProbability;
+        this.rollValue = rollValue;
+        this.bankValue = bankValue;
+        this.winProbabilityIfRoll = winProbabilityIfRoll;
+        this.winProbabilityIfBank = winProbabilityIfBank;
+        this.standardError = standardError;
+        this.rollouts = rollouts;
+    } // end Constructor
+
+    /**
+     * Returns the exact probability that the next roll is a zilch.
+     * @return The probability of a zilch, between 0 and 1.
+     */
+    public double getZilchProbability() {
+        return zilchProbability;
+    } // end getZilchProbability
+
+    /**
+     * Returns the exact expected number of points banked this turn if the player
+     * rolls and then makes the best choices for the rest of the turn.  A three zilch
+     * penalty counts as -500.
+     * @return The expected points banked by rolling.
+     */
+    public double getRollValue() {
+        return rollValue;
+    } // end getRollValue
+
+    /**
+     * Returns the number of points banked if the player banks now.
+     * @return The turn score, or NaN if the turn score is too low to bank.
+     */
+    public double getBankValue() {
+        return bankValue;
+    } // end getBankValue
+
+    /**
+     * Returns the estimated probability of winning the game if the player rolls.
+     * @return The probability of winning, between 0 and 1.
+     */
+    public double getWinProbabilityIfRoll() {
+        return winProbabilityIfRoll;
+    } // end getWinProbabilityIfRoll
+
+    /**
+     * Returns the estimated probability of winning the game if the player banks.
+     * @return The probability of winning, or NaN if the turn score is too low to bank.
+     */
+    public double getWinProbabilityIfBank() {
+        return winProbabilityIfBank;
+    } // end getWinProbabilityIfBank
+
+    /**
+     * Returns the estimated probability of winning the game with the better choice.
+     * @return The probability of winning, between 0 and 1.
+     */
+    public double getWinProbability() {
+        if (Double.isNaN(winProbabilityIfBank))
+            return winProbabilityIfRoll;
+        return Math.max(winProbabilityIfRoll, winProbabilityIfBank);
+    } // end getWinProbability
+
+    /**
+     * Returns the standard error of the estimated win probabilities.
+     * @return The larger of the standard errors of the two win probabilities.
+     */
+    public double getStandardError() {
+        return standardError;
+    } // end getStandardError
+
+    /**
+     * Returns the number of games played out for each choice.
+     * @return The number of rollouts.
+     */
+    public long getRollouts() {
+        return rollouts;
+    } // end getRollouts
+
+} // end OutcomeEstimate class
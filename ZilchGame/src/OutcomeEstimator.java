@@ -0,0 +1,317 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Answers "what are my chances" questions for a player in a game of Zilch who is
+ * about to choose whether to roll or bank: the probability of a zilch on the next
+ * roll, the expected points from rolling or banking, and the probability of winning
+ * the game after each choice.
+ *
+ * The zilch probability and the expected points are exact, calculated from the
+ * distributions of every possible roll under the game's rules and from
+ * StrategySolver.  The win probabilities are estimated by playing the rest of the
+ * game out many times on all processors, with both players following the solver's
+ * choices, banking once they reach the game limit and playing their final turn to
+ * overtake the leader, until the estimate is precise enough or the time allowed
+ * runs out.  Estimates are kept in a least recently used cache, so asking again
+ * about the same position is almost instant.
+ */
+// The standard errors are those of the Agresti-Coull interval, which adds Z * Z / 2
+// wins and as many losses to the count before working out the error.  The plain
+// error of a probability estimated as 0 or 1 would be 0, which would stop the
+// rollouts of a one-sided position far too early and report it as exact.
+public class OutcomeEstimator {
+
+    // The number of games each worker plays out before checking whether to stop.
+    private static final int BATCH = 64;
+    private static final int MIN_ROLLOUTS = 100;
+    // The normal quantile of a 95% interval.
+    private static final double Z = 1.96;
+
+    private int gameLimit;
+    private RuleSet rules;
+    private StrategySolver solver;
+    private BankPolicy policy;
+    private Map<Long, OutcomeEstimate> cache;
+
+    /**
+     * The constructor for games under the standard rules solves the turn strategy
+     * used for the exact values and the rollouts.
+     * @param gameLimit Once a player gets over this limit the game ends after every
+     * other player has had one more turn.
+     * @param cacheSize The number of positions whose estimates are remembered.
+     * @throws ZilchException If the gameLimit is illegal.
+     */
+    public OutcomeEstimator(int gameLimit, int cacheSize) throws ZilchException {
+        this(gameLimit, RuleSet.STANDARD, cacheSize);
+    } // end constructor
+
+    /**
+     * The constructor for games under the supplied rules solves the turn strategy
+     * used for the exact values and the rollouts.
+     * @param gameLimit Once a player gets over this limit the game ends after every
+     * other player has had one more turn.
+     * @param rules The rules the game is played under.
+     * @param cacheSize The number of positions whose estimates are remembered.
+     * @throws ZilchException If the gameLimit is illegal, or the rules are null or
+     * cannot be solved by StrategySolver.
+     */
+    public OutcomeEstimator(int gameLimit, RuleSet rules, int cacheSize) throws ZilchException {
+        if (gameLimit < 300 || gameLimit > 100000)
+            throw new ZilchException("Game limit: " + gameLimit + " not legal (Between 300 and 100000).");
+        this.gameLimit = gameLimit;
+        solver = new StrategySolver(rules);
+        this.rules = rules;
+        solver.solve();
+        PolicyTable turnPolicy = solver.buildPolicy();
+        policy = (myBank, opponentBank, zilchCount, diceAvailable, turnScore) -> {
+            // On the final turn only a bank that beats the leader is any use.
+            if (opponentBank >= gameLimit)
+                return myBank + turnScore > opponentBank;
+            return myBank + turnScore >= gameLimit || turnPolicy.shouldBank(zilchCount, diceAvailable, turnScore);
+        };
+        cache = new LinkedHashMap<Long, OutcomeEstimate>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Long, OutcomeEstimate> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    } // end rules constructor
+
+    // Packs a position into a cache key.  Banked scores can be negative, so they are
+    // offset before packing.
+    private static long key(int myBank, int opponentBank, int zilchCount, int diceAvailable, int turnScore) {
+        long key = (myBank + 0x20000) & 0x3FFFF;
+        key = (key << 18) | ((opponentBank + 0x20000) & 0x3FFFF);
+        key = (key << 16) | (turnScore / 50);
+        return (key << 5) | (zilchCount << 3) | diceAvailable;
+    } // end key
+
+    /**
+     * Estimates the outcomes of a position.
+     * @param myBank The player's banked score.
+     * @param opponentBank The opponent's banked score.
+     * @param zilchCount The number of zilches the player has rolled in a row (0 to 2).
+     * @param diceAvailable The number of dice available to roll (1 to 6).
+     * @param turnScore The current turn score.
+     * @param maxMillis The longest time to spend estimating the win probabilities.
+     * @param targetError The standard error at which the estimate is precise enough.
+     * @return The estimated outcomes.  A cached estimate is returned if it is
+     * precise enough.
+     */
+    public OutcomeEstimate estimate(int myBank, int opponentBank, int zilchCount, int diceAvailable,
+                                    int turnScore, long maxMillis, double targetError) {
+        Long key = key(myBank, opponentBank, zilchCount, diceAvailable, turnScore);
+        synchronized (cache) {
+            OutcomeEstimate cached = cache.get(key);
+            if (cached != null && cached.getStandardError() <= targetError)
+                return cached;
+        }
+        boolean canBank = turnScore >= rules.getMinimumBank();
+        long deadline = System.nanoTime() + maxMillis * 1000000L;
+        AtomicLong rollouts = new AtomicLong();
+        AtomicLong rollWins = new AtomicLong();
+        AtomicLong bankWins = new AtomicLong();
+        int workers = Runtime.getRuntime().availableProcessors();
+        SplittableRandom random = new SplittableRandom(key);
+        SplittableRandom[] randoms = new SplittableRandom[workers];
+        for (int i = 0; i < workers; i++)
+            randoms[i] = random.split();
+        IntStream.range(0, workers).parallel().forEach(worker -> {
+            PolicyAIPlayer me = new PolicyAIPlayer("Me", policy, randoms[worker].nextLong());
+            PolicyAIPlayer opponent = new PolicyAIPlayer("Opponent", policy, randoms[worker].nextLong());
+            me.setRules(rules);
+            opponent.setRules(rules);
+            me.setTurnListener(TurnListener.NONE);
+            opponent.setTurnListener(TurnListener.NONE);
+            me.setOpponents(opponent);
+            opponent.setOpponents(me);
+            do {
+                int roll = 0;
+                int bank = 0;
+                for (int i = 0; i < BATCH; i++) {
+                    me.setState(myBank, zilchCount);
+                    opponent.setState(opponentBank, 0);
+                    me.continueTurn(diceAvailable, turnScore);
+                    if (playOut(me, opponent, opponentBank))
+                        roll++;
+                    if (canBank) {
+                        me.setState(myBank + turnScore, 0);
+                        opponent.setState(opponentBank, 0);
+                        if (playOut(me, opponent, opponentBank))
+                            bank++;
+                    }
+                }
+                rollWins.addAndGet(roll);
+                bankWins.addAndGet(bank);
+                rollouts.addAndGet(BATCH);
+            } while (System.nanoTime() < deadline &&
+                    !precise(rollWins.get(), bankWins.get(), rollouts.get(), canBank, targetError));
+        });
+        long n = rollouts.get();
+        double rollProbability = (double)rollWins.get() / n;
+        double bankProbability = canBank ? (double)bankWins.get() / n : Double.NaN;
+        double error = standardError(rollWins.get(), n);
+        if (canBank)
+            error = Math.max(error, standardError(bankWins.get(), n));
+        OutcomeEstimate estimate = new OutcomeEstimate(rules.getDistribution(diceAvailable).getZilchProbability(),
+                solver.getRollValue(zilchCount, diceAvailable, turnScore), canBank ? turnScore : Double.NaN,
+                rollProbability, bankProbability, error, n);
+        synchronized (cache) {
+            cache.put(key, estimate);
+        }
+        return estimate;
+    } // end estimate
+
+    // Plays the game out with the opponent to move, once the player's turn is over.
+    // As in ZilchGame, once a player reaches the limit the other has one final turn,
+    // and a tie goes to the player who reached the limit first.  If the opponent's
+    // bank at the start of the player's turn had already reached the limit, the turn
+    // just played was the player's final turn and the game is over.  Returns true if
+    // the player wins.
+    private boolean playOut(Player me, Player opponent, int opponentBank) {
+        if (opponentBank >= gameLimit)
+            return me.getScore() > opponent.getScore();
+        while (true) {
+            if (me.getScore() >= gameLimit) {
+                opponent.takeTurn();
+                return me.getScore() >= opponent.getScore();
+            }
+            opponent.takeTurn();
+            if (opponent.getScore() >= gameLimit) {
+                me.takeTurn();
+                return me.getScore() > opponent.getScore();
+            }
+            me.takeTurn();
+        } // end while
+    } // end playOut
+
+    // Returns true once both win probabilities have been estimated precisely enough.
+    private static boolean precise(long rollWins, long bankWins, long rollouts, boolean canBank,
+                                   double targetError) {
+        if (rollouts < MIN_ROLLOUTS)
+            return false;
+        if (standardError(rollWins, rollouts) > targetError)
+            return false;
+        return !canBank || standardError(bankWins, rollouts) <= targetError;
+    } // end precise
+
+    // Returns the Agresti-Coull standard error of a probability estimated from the
+    // wins in n games, which is not 0 even when every game was won or lost.
+    private static double standardError(long wins, long n) {
+        double games = n + Z * Z;
+        double probability = (wins + Z * Z / 2) / games;
+        return Math.sqrt(probability * (1 - probability) / games);
+    } // end standardError
+
+    // Returns the exact probability of winning by rolling on a final turn, when the
+    // opponent has already reached the game limit.  The player must roll until
+    // banking would beat the opponent, so the game is won by reaching such a turn
+    // score before a zilch.  Each position's probability is the sum over the outcomes
+    // of the roll of their chances of winning, worked out recursively and kept by
+    // the number of dice and the turn score.
+    private double getFinalTurnProbability(int myBank, int opponentBank, int diceAvailable, int turnScore,
+                                           Map<Long, Double> known) {
+        if (myBank + turnScore > opponentBank)
+            return getAheadProbability(diceAvailable);
+        Long key = (long)turnScore << 3 | diceAvailable;
+        Double probability = known.get(key);
+        if (probability != null)
+            return probability;
+        RollDistribution outcomes = rules.getDistribution(diceAvailable);
+        double win = 0;
+        for (int i = 0; i < outcomes.size(); i++) {
+            if (outcomes.getScore(i) == 0)
+                continue;
+            int score = turnScore + outcomes.getScore(i);
+            boolean freeRoll = outcomes.getRollAgain(i) || outcomes.getDiceLeft(i) == 0;
+            if (!freeRoll && score >= rules.getMinimumBank() && myBank + score > opponentBank)
+                win += outcomes.getProbability(i);
+            else
+                win += outcomes.getProbability(i) * getFinalTurnProbability(myBank, opponentBank,
+                        freeRoll ? 6 : outcomes.getDiceLeft(i), score, known);
+        }
+        known.put(key, win);
+        return win;
+    } // end getFinalTurnProbability
+
+    // Returns the probability of winning a final turn that is already ahead but must
+    // roll, after a free roll or below the minimum bank.  It is won by the first roll
+    // that scores without a free roll, and a free roll goes back to six dice, so with
+    // six dice the probability is p / (1 - f), where p and f are the chances of a
+    // scoring roll without and with a free roll.
+    private double getAheadProbability(int diceAvailable) {
+        double[] plain = new double[7];
+        double[] free = new double[7];
+        for (int numDice = 1; numDice <= 6; numDice++) {
+            RollDistribution outcomes = rules.getDistribution(numDice);
+            for (int i = 0; i < outcomes.size(); i++)
+                if (outcomes.getScore(i) > 0 && (outcomes.getRollAgain(i) || outcomes.getDiceLeft(i) == 0))
+                    free[numDice] += outcomes.getProbability(i);
+                else if (outcomes.getScore(i) > 0)
+                    plain[numDice] += outcomes.getProbability(i);
+        }
+        double sixDice = plain[6] / (1 - free[6]);
+        return diceAvailable == 6 ? sixDice : plain[diceAvailable] + free[diceAvailable] * sixDice;
+    } // end getAheadProbability
+
+    // Checks the estimates of final turn positions against their exact values and
+    // prints each.  Returns true if every estimate is within four standard errors.
+    private boolean checkFinalTurns() {
+        int[][] positions = {{gameLimit - 1000, gameLimit, 6, 0}, {gameLimit - 500, gameLimit + 200, 3, 300},
+                {gameLimit - 2000, gameLimit + 50, 2, 1500}, {gameLimit - 300, gameLimit, 1, 0}};
+        boolean passed = true;
+        for (int[] position : positions) {
+            OutcomeEstimate estimate = estimate(position[0], position[1], 0, position[2], position[3], 10000, 0.002);
+            double exact = getFinalTurnProbability(position[0], position[1], position[2], position[3],
+                    new HashMap<>());
+            boolean close = Math.abs(estimate.getWinProbabilityIfRoll() - exact) <= 4 * estimate.getStandardError();
+            System.out.printf("Final turn %d to beat %d, %d dice, turn score %d: estimated %.4f (+/- %.4f), " +
+                            "exact %.4f%s%n", position[0], position[1], position[2], position[3],
+                    estimate.getWinProbabilityIfRoll(), estimate.getStandardError(), exact, close ? "" : " FAILED");
+            passed &= close;
+        }
+        return passed;
+    } // end checkFinalTurns
+
+    // Prints the estimate for a position given on the command line: my bank,
+    // opponent's bank, zilch count, dice available, turn score, game limit and a file
+    // of house rules written for RuleSet, or the standard rules without one.  If the
+    // first argument is check, the estimates of some final turns are checked against
+    // their exact values instead, and the program exits with status 1 if any is out.
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("check")) {
+            try {
+                System.exit(new OutcomeEstimator(10000, 1024).checkFinalTurns() ? 0 : 1);
+            } catch (ZilchException e) {
+                throw new IllegalStateException(e);
+            } // end try/catch
+        }
+        int myBank = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        int opponentBank = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        int zilchCount = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        int diceAvailable = args.length > 3 ? Integer.parseInt(args[3]) : 6;
+        int turnScore = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+        int gameLimit = args.length > 5 ? Integer.parseInt(args[5]) : 10000;
+        try {
+            RuleSet rules = args.length > 6 ? RuleSet.load(new File(args[6])) : RuleSet.STANDARD;
+            OutcomeEstimator estimator = new OutcomeEstimator(gameLimit, rules, 1024);
+            OutcomeEstimate estimate = estimator.estimate(myBank, opponentBank, zilchCount, diceAvailable,
+                    turnScore, 2000, 0.005);
+            System.out.printf("Zilch on next roll: %.4f%n", estimate.getZilchProbability());
+            System.out.printf("Expected points: roll %.1f, bank %.1f%n", estimate.getRollValue(),
+                    estimate.getBankValue());
+            System.out.printf("Win probability: roll %.4f, bank %.4f (+/- %.4f, %d games)%n",
+                    estimate.getWinProbabilityIfRoll(), estimate.getWinProbabilityIfBank(),
+                    estimate.getStandardError(), estimate.getRollouts());
+        } catch (ZilchException | IOException e) {
+            System.err.println("Cannot estimate: " + e.getMessage());
+        } // end try/catch
+    } // end main method
+
+} // end OutcomeEstimator class
@@ -0,0 +1,117 @@
+/**
+ * The results of a paired simulation between two Zilch strategies.  Each pair is
+ * two games played with the same dice, with the strategies swapping seats for the
+ * second game, so a pair is won by the first strategy (it won both games), split,
+ * or lost.  Results from separate batches can be merged.
+ */
+// The score of a pair is the fraction of its two games the first strategy won: 0,
+// one half or 1.  Its mean is the first strategy's win rate, and because luck with
+// the dice mostly cancels out within a pair its variance is much lower than that of
+// independent games.
+public class PairedResult {
+
+    private long[] pairs = new long[3];
+
+    // Records a finished pair.  The wins are the number of its games won by the first
+    // strategy, from 0 to 2.
+    void addPair(int wins) {
+        pairs[wins]++;
+    } // end addPair
+
+    // Adds the totals of another result to this one.
+    void merge(PairedResult other) {
+        for (int wins = 0; wins < pairs.length; wins++)
+            pairs[wins] += other.pairs[wins];
+    } // end merge
+
+    /**
+     * Returns the number of pairs of games played.
+     * @return The number of pairs.
+     */
+    public long getPairs() {
+        return pairs[0] + pairs[1] + pairs[2];
+    } // end getPairs
+
+    /**
+     * Returns the number of pairs in which the first strategy won a number of games.
+     * @param wins The number of games, from 0 to 2.
+     * @return The number of pairs.
+     */
+    public long getPairs(int wins) {
+        return pairs[wins];
+    } // end getPairs
+
+    /**
+     * Returns the fraction of games won by the first strategy.
+     * @return The win rate, between 0 and 1.
+     */
+    public double getWinRate() {
+        long n = getPairs();
+        return n == 0 ? 0 : (pairs[2] + 0.5 * pairs[1]) / n;
+    } // end getWinRate
+
+    /**
+     * Returns the variance of the score of a pair, the fraction of its games won by
+     * the first strategy.
+     * @return The variance of the pairs played.
+     */
+    public double getPairVariance() {
+        long n = getPairs();
+        if (n < 2)
+            return 0.25;
+        double mean = getWinRate();
+        double squares = pairs[2] + 0.25 * pairs[1];
+        return (squares - n * mean * mean) / (n - 1);
+    } // end getPairVariance
+
+    /**
+     * Returns the half width of the 95% confidence interval of the win rate.
+     * @return The half width, or 1 if fewer than two pairs have been played.
+     */
+    public double getHalfWidth() {
+        long n = getPairs();
+        if (n < 2)
+            return 1;
+        return 1.96 * Math.sqrt(getPairVariance() / n);
+    } // end getHalfWidth
+
+    /**
+     * Returns true if the 95% confidence interval of the win rate leaves out one
+     * half, so one strategy is significantly stronger than the other.
+     * @return True if the difference is significant.
+     */
+    public boolean isSignificant() {
+        return Math.abs(getWinRate() - 0.5) > getHalfWidth();
+    } // end isSignificant
+
+    /**
+     * Returns how many independent games would be needed to measure the win rate
+     * as precisely as the pairs played have.
+     * @return The number of independent games, or 0 if fewer than two pairs have
+     * been played.
+     */
+    public double getEquivalentGames() {
+        long n = getPairs();
+        if (n < 2)
+            return 0;
+        double p = getWinRate();
+        double variance = getPairVariance();
+        return variance == 0 ? Double.POSITIVE_INFINITY : n * p * (1 - p) / variance;
+    } // end getEquivalentGames
+
+    /**
+     * Returns a summary of the results.
+     * @return A multi-line summary of the results.
+     */
+    public String toString() {
+        long n = getPairs();
+        return String.format("Pairs played: %d (%d games)%n" +
+                        "Pairs won by player 1: %d, split: %d, lost: %d%n" +
+                        "Player 1 win rate: %.2f%% +/- %.2f%%%s%n" +
+                        "Independent games for the same precision: %.0f (%.1f times as many)",
+                n, 2 * n, pairs[2], pairs[1], pairs[0], 100 * getWinRate(), 100 * getHalfWidth(),
+                isSignificant() ? " (significant)" : "", getEquivalentGames(),
+                n == 0 ? 0 : getEquivalentGames() / (2 * n));
+    } // end toString
+
+} // end PairedResult class
@@ -1,6 +1,3 @@
-import java.io.IOException;
-import java.util.Random;
-
 /**
  * A class representing a player in the game of Zilch.
  */
@@ -8,78 +5,187 @@ public abstract class Player {
 
     private int gameScore = 0;
     private int zilchCount = 0;
+    private int zilchTotal = 0;
     private int rollCount = 0;
+    private int turnCount = 0;
+    private int penaltyCount = 0;
     private int diceAvailable;
     private int turnScore;
     private String name;
-    private static int numInstantiations = 0;	// Used only to change the seed value below
-    private Random generator = new Random(System.currentTimeMillis() + numInstantiations);
+    private DiceSource dice;
+    private RuleSet rules = RuleSet.STANDARD;
+    private final ScoreResult result = new ScoreResult();
+    private final int[][] rolls = new int[7][];
+    private TurnListener listener = new ConsoleTurnListener();
+    private Player[] opponents = new Player[0];
+    private volatile boolean quit = false;
+    private volatile Runnable wakeUp = () -> {};
+    private boolean turnOver = true;
+    private boolean choicePending = false;
+    private boolean timed = false;
+    private long turnStarted;
+    private long choiceAsked;
 
     /**
      * The constructor for the Player class.
      * @param name The name of the player.
      */
     public Player(String name) {
-        this.name = name;
-        numInstantiations++;
+        this(name, new SplittableDice());
     } // end Constructor
 
+    /**
+     * A constructor for the Player class that seeds the player's dice, so that
+     * simulations can give every player its own independent random numbers.
+     * @param name The name of the player.
+     * @param seed The seed for the player's dice.
+     */
+    public Player(String name, long seed) {
+        this(name, new SplittableDice(seed));
+    } // end seeded Constructor
+
+    /**
+     * A constructor for the Player class that rolls from the supplied dice source.
+     * @param name The name of the player.
+     * @param dice The source of the player's dice rolls.
+     */
+    public Player(String name, DiceSource dice) {
+        this.name = name;
+        this.dice = dice;
+        for (int numDice = 0; numDice < rolls.length; numDice++)
+            rolls[numDice] = new int[numDice];
+    } // end dice source Constructor
+
     /**
      * Plays a single turn for the player.  A turn consists of one or more
      * dice rolls.
      */
-    // The method uses the Scoring class to score a dice roll.  Calling
-    // Scoring.scoreThrow essentially resets all the attributes stored in Scoring,
-    // which can be obtained through accessors.
     public void takeTurn() {
-        boolean turnOver = false;
-        diceAvailable = 6;
-        turnScore = 0;
+        continueTurn(6, 0);
+    } // end takeTurn
+
+    // Plays the rest of a turn that has reached the supplied state, starting with a
+    // roll of the available dice.  It is also used to play out positions part way
+    // through a turn when estimating outcomes.
+    void continueTurn(int startDice, int startScore) {
+        startTurn(startDice, startScore);
+        playTurn(true);
+    } // end continueTurn
+
+    // Starts a turn in the supplied state.  The turn is then played by playTurn.
+    void startTurn(int startDice, int startScore) {
+        turnOver = false;
+        choicePending = false;
+        diceAvailable = startDice;
+        turnScore = startScore;
+        turnCount++;
+        dice.startTurn();
+        timed = ZilchMetrics.ENABLED && (turnCount & (ZilchMetrics.TIMING_SAMPLE - 1)) == 0;
+        if (timed)
+            turnStarted = System.nanoTime();
+    } // end startTurn
+
+    // Plays the turn until it is over, and returns true.  If wait is false and the
+    // player has not made a choice yet, returns false instead of waiting; calling
+    // the method again carries on from the same point.
+    //
+    // The method scores each dice roll under the player's rules.  Each player scores
+    // into its own ScoreResult and rolls into its own dice arrays, which are reused
+    // for every roll.  When nothing is listening to the turn, as in bulk simulation,
+    // the dice are only counted and never put in an array, and the turn allocates
+    // nothing.  Everything that happens is reported to the turn listener,
+    // which is the only place the turn is shown to the user.  When metrics are
+    // enabled, the events of the turn and the time it and the player's choices take
+    // are recorded in ZilchMetrics.
+    boolean playTurn(boolean wait) {
         int rollScore;
         char playerChoice;
         while (!turnOver) {
-            System.out.print("\n" + name + " Rolling " + diceAvailable +
-                    " dice (roll " + (rollCount + 1) + "): (Press <enter>)");
-            @SuppressWarnings("unused")
-            char dummy = getChar();
-            rollScore = Scoring.scoreThrow(rollDice(diceAvailable));
-            turnScore += rollScore;
-            diceAvailable = Scoring.getDiceLeft();
-            System.out.println(Scoring.getScoreDescription() + " " + rollScore + " points.");
-            if (rollScore == 0) {
-                zilchCount++;
-                turnScore = 0;
-                turnOver = true;
-                if (zilchCount == 3) {
-                    gameScore -= 500;
-                    zilchCount = 0;
+            if (!choicePending) {
+                listener.rolling(this, diceAvailable, rollCount + 1);
+                try {
+                    if (listener == TurnListener.NONE)
+                        rules.scoreCounts(rollCounts(diceAvailable), diceAvailable, result);
+                    else
+                        rules.score(rollDice(diceAvailable), result);
+                } catch (ZilchException e) {
+                    // The dice come from the player's DiceSource, between one and six of them.
+                    throw new IllegalStateException(e);
+                } // end try/catch
+                rollScore = result.getScore();
+                turnScore += rollScore;
+                diceAvailable = result.getDiceLeft();
+                listener.scored(this, result);
+                if (ZilchMetrics.ENABLED)
+                    ZilchMetrics.ROLLS.increment();
+                if (rollScore == 0) {
+                    zilchCount++;
+                    zilchTotal++;
+                    turnScore = 0;
+                    turnOver = true;
+                    listener.zilch(this, zilchCount);
+                    if (ZilchMetrics.ENABLED)
+                        ZilchMetrics.ZILCHES.increment();
+                    if (zilchCount == rules.getPenaltyZilches()) {
+                        gameScore -= rules.getZilchPenalty();
+                        zilchCount = 0;
+                        penaltyCount++;
+                        listener.penalty(this);
+                        if (ZilchMetrics.ENABLED)
+                            ZilchMetrics.PENALTIES.increment();
+                    }
+                } // end zilch check
+                else if (result.getRollAgain() || diceAvailable == 0) {
+                    listener.freeRoll(this);
+                    diceAvailable = 6;
+                    if (ZilchMetrics.ENABLED)
+                        ZilchMetrics.FREE_ROLLS.increment();
+                } // end free roll check
+                else if (turnScore < rules.getMinimumBank())
+                    listener.mustRoll(this, turnScore);
+                else if (diceAvailable > 0) {
+                    listener.choosing(this, turnScore, diceAvailable);
+                    choicePending = true;
+                    choiceAsked = timed ? System.nanoTime() : 0;
+                } // end bank or roll check
+            } // end roll
+            if (choicePending) {
+                playerChoice = wait ? makePlayChoice() : pollPlayChoice();
+                if (playerChoice == '\0') {
+                    if (ZilchMetrics.ENABLED && choiceAsked == 0)
+                        choiceAsked = System.nanoTime();
+                    return false;
                 }
-            } // end zilch check
-            else if (Scoring.getRollAgain() || diceAvailable == 0) {
-                System.out.println("You get a free roll!");
-                diceAvailable = 6;
-            } // end free roll check
-            else if (turnScore < 300)
-                System.out.println("Turn score: " + turnScore + " is less than 300. " + name + " must roll again.");
-            else if (turnScore >= 300 && diceAvailable > 0) {
-                System.out.println("Turn score is: " + turnScore + " and " + name + " can roll " +
-                        diceAvailable + " dice.");
-                playerChoice = makePlayChoice();
-                System.out.print(name + " choosing to ");
+                choicePending = false;
+                if (ZilchMetrics.ENABLED && choiceAsked != 0)
+                    ZilchMetrics.DECISION_WAIT.record(System.nanoTime() - choiceAsked);
                 if (playerChoice == 'b' || playerChoice == 'B') {
                     // Bank turn sum.
-                    System.out.println("bank score.");
+                    listener.bank(this, turnScore);
+                    if (ZilchMetrics.ENABLED)
+                        ZilchMetrics.BANKS.increment();
                     zilchCount = 0;
                     gameScore += turnScore;
                     turnScore = 0;
                     turnOver = true;
                 } // end bank
+                else if (playerChoice == 'q' || playerChoice == 'Q') {
+                    // Leave the game, losing the turn sum.
+                    quit();
+                    turnScore = 0;
+                    turnOver = true;
+                } // end quit
                 else
-                    System.out.println("roll again.");
-            } // end bank or roll check
+                    listener.rollAgain(this);
+            } // end choice
         } // end while
-        showStatus();
-    } // end takeTurn
+        listener.turnOver(this);
+        if (ZilchMetrics.ENABLED)
+            ZilchMetrics.TURNS.increment();
+        if (timed)
+            ZilchMetrics.TURN_TIME.record(System.nanoTime() - turnStarted);
+        return true;
+    } // end playTurn
 
     /**
      * The player chooses to roll or bank their turn sum.
@@ -88,6 +194,30 @@ public abstract class Player {
      */
     public abstract char makePlayChoice();
 
+    /**
+     * Returns the player's choice if it has been made, without waiting for it.
+     * Used when many games share a few threads, so that a game waiting for a player
+     * can be put aside.  Players that need to wait should call wakeUp once their
+     * choice is available.
+     * @return The same characters as makePlayChoice, or the null character if the
+     * player has not chosen yet.  By default the result of makePlayChoice.
+     */
+    protected char pollPlayChoice() {
+        return makePlayChoice();
+    } // end pollPlayChoice
+
+    /**
+     * Tells the game this player is in that the player's choice is now available.
+     */
+    protected void wakeUp() {
+        wakeUp.run();
+    } // end wakeUp
+
+    // Sets the action run by wakeUp.
+    void setWakeUp(Runnable wakeUp) {
+        this.wakeUp = wakeUp;
+    } // end setWakeUp
+
     //
     /**
      * Obtains and returns a single character as provided by the user. If the user enters
@@ -96,30 +226,156 @@ public abstract class Player {
      * @return A single character as provided by the user.
      */
     public static char getChar() {
-        byte[] buffer = new byte[100];
-        int numRead = 0;
-        try {
-            numRead = System.in.read(buffer);
-        } catch (IOException e) {
-        }
-        if (numRead > 0)
-            return (char)buffer[0];
-        return '\0';
+        return getChar(InputSource.CONSOLE, "");
     } // end getChar
 
-    // Returns an array of numDice random numbers between 1 and 6
+    /**
+     * Shows a prompt and obtains a single character from the supplied source of the
+     * user's input, in the same way as getChar.  An empty line gives the new line
+     * character.
+     * @param input The source of the user's input.
+     * @param prompt The prompt, which may be empty.
+     * @return A single character as provided by the user, or the null character at
+     * the end of the input.
+     */
+    public static char getChar(InputSource input, String prompt) {
+        String line = input.readLine(prompt);
+        if (line == null)
+            return '\0';
+        return line.isEmpty() ? '\n' : line.charAt(0);
+    } // end source getChar
+
+    // Returns an array of numDice random numbers between 1 and 6.  The array is
+    // reused the next time the same number of dice is rolled.
     private int[] rollDice(int numDice) {
-        int[] dice = new int[numDice];
-        for (int i = 0; i < numDice; i++)
-            dice[i] = generator.nextInt(6) + 1;
+        int[] roll = rolls[numDice];
+        dice.roll(roll);
         rollCount++;
-        return dice;
+        return roll;
     } // end rollDice
 
-    // Displays the status of the player
-    private void showStatus() {
-        System.out.println(name + "\'s Bank: " + gameScore + " Zilch count: " + zilchCount);
-    } // end showStatus
+    // Rolls numDice dice and returns how many of each value came up, packed as for
+    // DiceSource.rollCounts.
+    private int rollCounts(int numDice) {
+        rollCount++;
+        return dice.rollCounts(numDice);
+    } // end rollCounts
+
+    /**
+     * Sets the listener that is told about everything that happens during the
+     * player's turns.  By default turns are shown on the console; TurnListener.NONE
+     * plays turns without any console input or output, so it should only be used
+     * for players that do not need any input from the user.
+     * @param listener The listener for the player's turns.
+     */
+    public void setTurnListener(TurnListener listener) {
+        this.listener = listener;
+    } // end setTurnListener
+
+    // Sets the rules the player's turns are played under.  Called by the game the
+    // player is seated in.
+    void setRules(RuleSet rules) {
+        this.rules = rules;
+    } // end setRules
+
+    // Replaces the source of the player's dice.  Called by Simulation before a game
+    // starts to give both strategies of a paired game the same dice.
+    void setDice(DiceSource dice) {
+        this.dice = dice;
+    } // end setDice
+
+    /**
+     * Returns the rules the player's turns are played under.
+     * @return The rules of the player's game, or the standard rules if the player
+     * has not been seated in a game.
+     */
+    public RuleSet getRules() {
+        return rules;
+    } // end getRules
+
+    // Sets the banked score and zilch count, so that a player can be put into a
+    // position part way through a game.
+    void setState(int gameScore, int zilchCount) {
+        this.gameScore = gameScore;
+        this.zilchCount = zilchCount;
+    } // end setState
+
+    // Takes over the banked score, counts and quit flag of another player, so that a
+    // game recovered from its journal can carry on with new players.
+    void restoreState(Player other) {
+        gameScore = other.gameScore;
+        zilchCount = other.zilchCount;
+        zilchTotal = other.zilchTotal;
+        rollCount = other.rollCount;
+        turnCount = other.turnCount;
+        penaltyCount = other.penaltyCount;
+        quit = other.quit;
+    } // end restoreState
+
+    /**
+     * Removes the player from the game.  A player who has quit takes no more turns.
+     */
+    public void quit() {
+        if (!quit) {
+            quit = true;
+            listener.quit(this);
+            wakeUp();
+        }
+    } // end quit
+
+    /**
+     * Returns true if the player has quit the game.
+     * @return True if the player has quit, false otherwise.
+     */
+    public boolean hasQuit() {
+        return quit;
+    } // end hasQuit
+
+    /**
+     * Sets the other players in the game, so that a player can take their banked
+     * scores into account when making a choice.
+     * @param opponents The player's opponents.
+     */
+    public void setOpponents(Player... opponents) {
+        this.opponents = opponents;
+    } // end setOpponents
+
+    /**
+     * Returns the highest banked score of the player's opponents.
+     * @return The highest opponent score, or 0 if the player has no opponents.
+     */
+    public int getBestOpponentScore() {
+        int best = 0;
+        for (int i = 0; i < opponents.length; i++)
+            if (i == 0 || opponents[i].getScore() > best)
+                best = opponents[i].getScore();
+        return best;
+    } // end getBestOpponentScore
+
+    /**
+     * Returns the number of zilches in a row of the opponent with the highest banked
+     * score, the one whose score getBestOpponentScore returns.
+     * @return The opponent's zilch count, or 0 if the player has no opponents.
+     */
+    public int getBestOpponentZilchCount() {
+        int best = 0;
+        int zilchCount = 0;
+        for (int i = 0; i < opponents.length; i++)
+            if (i == 0 || opponents[i].getScore() > best) {
+                best = opponents[i].getScore();
+                zilchCount = opponents[i].getZilchCount();
+            }
+        return zilchCount;
+    } // end getBestOpponentZilchCount
+
+    /**
+     * Returns the source of this player's dice, so that subclasses can make their
+     * random choices from the same source.
+     * @return The player's dice source.
+     */
+    protected DiceSource getDice() {
+        return dice;
+    } // end getDice
 
     /**
      * Returns the player's current banked score.
@@ -137,6 +393,40 @@ public abstract class Player {
         return rollCount;
     } // end getRollCount
 
+    /**
+     * Returns the number of zilches the player has rolled in a row.
+     * @return The player's current zilch count.
+     */
+    public int getZilchCount() {
+        return zilchCount;
+    } // end getZilchCount
+
+    /**
+     * Returns the number of zilches the player has rolled in the game, in a row or
+     * not.
+     * @return The player's total zilch count.
+     */
+    public int getZilchTotal() {
+        return zilchTotal;
+    } // end getZilchTotal
+
+    /**
+     * Returns the number of turns the player has taken.
+     * @return The player's turn count.
+     */
+    public int getTurnCount() {
+        return turnCount;
+    } // end getTurnCount
+
+    /**
+     * Returns the number of times the player has lost points for zilching too many
+     * times in a row.
+     * @return The player's zilch penalty count.
+     */
+    public int getPenaltyCount() {
+        return penaltyCount;
+    } // end getPenaltyCount
+
     /**
      * Returns the player's name.
      * @return The player's name.
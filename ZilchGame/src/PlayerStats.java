@@ -0,0 +1,168 @@
+/**
+ * The statistics of one player over every game recorded for them in a
+ * PlayerStatsStore, as they were when the statistics were read.
+ *
+ * The final scores of the player's games are counted in a histogram of
+ * SCORE_BUCKETS buckets.  Bucket 0 counts scores below 250, including negative
+ * ones, and each bucket after it counts scores up to twice as high as the one
+ * before: 250 to 499, 500 to 999 and so on.  The last bucket counts every score
+ * from getBucketLow(SCORE_BUCKETS - 1) up.
+ */
+public class PlayerStats {
+
+    /**
+     * The number of buckets in the histogram of final scores.
+     */
+    public static final int SCORE_BUCKETS = 16;
+
+    // The upper limit of bucket 0, and the width of bucket 1.
+    private static final int FIRST_BUCKET = 250;
+
+    private final String name;
+    private final long games;
+    private final long wins;
+    private final long rolls;
+    private final long turns;
+    private final long zilches;
+    private final long penalties;
+    private final long totalScore;
+    private final long bestScore;
+    private final long[] histogram;
+
+    // Called by PlayerStatsStore with the values read from a record.
+    PlayerStats(String name, long games, long wins, long rolls, long turns, long zilches, long penalties,
+                long totalScore, long bestScore, long[] histogram) {
+        this.name = name;
+        this.games = games;
+        this.wins = wins;
+        this.rolls = rolls;
+        this.turns = turns;
+        this.zilches = zilches;
+        this.penalties = penalties;
+        this.totalScore = totalScore;
+        this.bestScore = bestScore;
+        this.histogram = histogram;
+    } // end Constructor
+
+    /**
+     * Returns the histogram bucket a final score is counted in.
+     * @param score The final score.
+     * @return The bucket, from 0 to SCORE_BUCKETS - 1.
+     */
+    public static int getBucket(int score) {
+        if (score < FIRST_BUCKET)
+            return 0;
+        return Math.min(SCORE_BUCKETS - 1, 32 - Integer.numberOfLeadingZeros(score / FIRST_BUCKET));
+    } // end getBucket
+
+    /**
+     * Returns the lowest score counted in a histogram bucket.
+     * @param bucket The bucket, from 1 to SCORE_BUCKETS - 1.  Bucket 0 has no lowest
+     * score.
+     * @return The lowest score of the bucket.
+     */
+    public static int getBucketLow(int bucket) {
+        return FIRST_BUCKET << (bucket - 1);
+    } // end getBucketLow
+
+    /**
+     * Returns the name of the player.
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    } // end getName
+
+    /**
+     * Returns the number of games played.
+     * @return The number of games.
+     */
+    public long getGames() {
+        return games;
+    } // end getGames
+
+    /**
+     * Returns the number of games won.
+     * @return The number of wins.
+     */
+    public long getWins() {
+        return wins;
+    } // end getWins
+
+    /**
+     * Returns the fraction of games won.
+     * @return The win rate, between 0 and 1.
+     */
+    public double getWinRate() {
+        return games == 0 ? 0 : (double)wins / games;
+    } // end getWinRate
+
+    /**
+     * Returns the number of dice rolls made in all the games.
+     * @return The number of rolls.
+     */
+    public long getRolls() {
+        return rolls;
+    } // end getRolls
+
+    /**
+     * Returns the number of turns taken in all the games.
+     * @return The number of turns.
+     */
+    public long getTurns() {
+        return turns;
+    } // end getTurns
+
+    /**
+     * Returns the number of zilches rolled in all the games.
+     * @return The number of zilches.
+     */
+    public long getZilches() {
+        return zilches;
+    } // end getZilches
+
+    /**
+     * Returns the number of times points were lost for zilching too often.
+     * @return The number of penalties.
+     */
+    public long getPenalties() {
+        return penalties;
+    } // end getPenalties
+
+    /**
+     * Returns the mean final score of the games.
+     * @return The mean score, or 0 if no games have been played.
+     */
+    public double getMeanScore() {
+        return games == 0 ? 0 : (double)totalScore / games;
+    } // end getMeanScore
+
+    /**
+     * Returns the highest final score of any game.
+     * @return The best score, or 0 if no games have been played.
+     */
+    public long getBestScore() {
+        return bestScore;
+    } // end getBestScore
+
+    /**
+     * Returns the number of games whose final score fell in a histogram bucket.
+     * @param bucket The bucket, from 0 to SCORE_BUCKETS - 1.
+     * @return The number of games.
+     */
+    public long getScoreCount(int bucket) {
+        return histogram[bucket];
+    } // end getScoreCount
+
+    /**
+     * Returns a one line summary of the statistics.
+     * @return The summary.
+     */
+    public String toString() {
+        return String.format("%s: %d games, %d wins (%.2f%%), mean score %.0f, best %d, %.2f rolls and " +
+                        "%.2f zilches a turn, %d penalties", name, games, wins, 100 * getWinRate(),
+                getMeanScore(), bestScore, turns == 0 ? 0 : (double)rolls / turns,
+                turns == 0 ? 0 : (double)zilches / turns, penalties);
+    } // end toString
+
+} // end PlayerStats class
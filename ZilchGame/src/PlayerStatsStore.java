@@ -0,0 +1,396 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A persistent store of the statistics of every player who has played a game of
+ * Zilch, kept by name in a memory-mapped file.  At the end of each game recordGame
+ * adds the game to the totals of each of its players: games, wins, rolls, turns,
+ * zilches, penalties, final scores and a histogram of final scores.  Many games can
+ * be recorded at once from different threads.
+ *
+ * The store also keeps leaderboards of the LEADERBOARD_SIZE players with the most
+ * WINS, the most GAMES and the highest BEST_SCORE, which are brought up to date as
+ * each game is recorded, so asking for the leaders never looks at the other
+ * players.
+ */
+// File layout, all values big-endian:
+//
+//     int  MAGIC
+//     int  FORMAT_VERSION
+//     int  capacity, the number of records, a power of two
+//     int  number of records in use
+//     records, each RECORD_SIZE bytes:
+//         int   length of the name in bytes, 0 if the record is not in use
+//         bytes the name in UTF-8, up to MAX_NAME_BYTES
+//         long  games, wins, rolls, turns, zilches, penalties, total score and
+//               best score
+//         long  the histogram of final scores, PlayerStats.SCORE_BUCKETS counts
+//
+// The records are an open addressing hash table on the name.  Adding a name is
+// done under one lock, and its length is written last with release semantics, so
+// the names already in the table are found without locking.  The totals of a
+// record are changed and read under one of STRIPES locks chosen by its index, so
+// games of different players are recorded in parallel.
+//
+// The totals ranked by the leaderboards never go down, so the lowest value on a
+// full leaderboard never goes down either.  A player whose new value is below it
+// cannot join the leaderboard and, not being on it, has nothing to change there,
+// so the leaderboard's lock is only taken for values that reach it.
+public class PlayerStatsStore implements AutoCloseable {
+
+    /**
+     * The leaderboard of players by the number of games won.
+     */
+    public static final int WINS = 0;
+
+    /**
+     * The leaderboard of players by the number of games played.
+     */
+    public static final int GAMES = 1;
+
+    /**
+     * The leaderboard of players by their highest final score.
+     */
+    public static final int BEST_SCORE = 2;
+
+    /**
+     * The number of players each leaderboard holds.
+     */
+    public static final int LEADERBOARD_SIZE = 100;
+
+    /**
+     * The longest name, in bytes of UTF-8, that the store can hold.
+     */
+    public static final int MAX_NAME_BYTES = 60;
+
+    static final int MAGIC = 0x5A494C53;	// "ZILS"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 256;
+
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int COUNT_OFFSET = 12;
+    private static final int GAMES_OFFSET = 64;
+    private static final int WINS_OFFSET = 72;
+    private static final int ROLLS_OFFSET = 80;
+    private static final int TURNS_OFFSET = 88;
+    private static final int ZILCHES_OFFSET = 96;
+    private static final int PENALTIES_OFFSET = 104;
+    private static final int TOTAL_SCORE_OFFSET = 112;
+    private static final int BEST_SCORE_OFFSET = 120;
+    private static final int HISTOGRAM_OFFSET = 128;
+    private static final int STRIPES = 64;
+    private static final int MAX_CAPACITY = 1 << 22;
+
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class,
+            ByteOrder.BIG_ENDIAN);
+
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final Object[] stripes = new Object[STRIPES];
+    private final Leaderboard[] leaderboards = new Leaderboard[3];
+    private int count;
+
+    /**
+     * Opens a statistics file, creating it if it does not exist.
+     * @param file The file.
+     * @param capacity The most players a new file can hold, rounded up to a power
+     * of two.  An existing file keeps the capacity it was created with.  The store
+     * is full once three quarters of its capacity is in use.
+     * @throws IOException If the file cannot be used or is not a statistics file,
+     * or the capacity is not between 1 and 4194304.
+     */
+    public PlayerStatsStore(File file, int capacity) throws IOException {
+        if (capacity < 1 || capacity > MAX_CAPACITY)
+            throw new IOException("Capacity: " + capacity + " not legal (Between 1 and " + MAX_CAPACITY + ").");
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() == 0) {
+                this.capacity = Math.max(2, Integer.highestOneBit(capacity * 2 - 1));
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long)this.capacity * RECORD_SIZE);
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, FORMAT_VERSION);
+                buffer.putInt(CAPACITY_OFFSET, this.capacity);
+            } else {
+                if (channel.size() < HEADER_SIZE)
+                    throw new IOException(file + " is not a player statistics file.");
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                this.capacity = buffer.getInt(CAPACITY_OFFSET);
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION ||
+                        Integer.bitCount(this.capacity) != 1 ||
+                        channel.size() != HEADER_SIZE + (long)this.capacity * RECORD_SIZE)
+                    throw new IOException(file + " is not a player statistics file.");
+            }
+        } // end try
+        count = buffer.getInt(COUNT_OFFSET);
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new Object();
+        for (int ranking = 0; ranking < leaderboards.length; ranking++)
+            leaderboards[ranking] = new Leaderboard();
+        for (int index = 0; index < this.capacity; index++)
+            if (buffer.getInt(offset(index)) != 0)
+                for (int ranking = 0; ranking < leaderboards.length; ranking++)
+                    leaderboards[ranking].update(index, getRanked(index, ranking));
+    } // end Constructor
+
+    // Returns the position of a record in the file.
+    private static int offset(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    } // end offset
+
+    /**
+     * Adds a finished game to the statistics of each of its players.
+     * @param players The players of the game.
+     * @param winner The player who won, or null if every player quit.
+     * @throws IOException If a player's name is longer than MAX_NAME_BYTES or the
+     * store is full.  The players before that player have been recorded.
+     */
+    public void recordGame(List<? extends Player> players, Player winner) throws IOException {
+        for (Player player : players) {
+            int index = findOrAdd(player.getName());
+            int at = offset(index);
+            int score = player.getScore();
+            synchronized (stripes[index % STRIPES]) {
+                long games = buffer.getLong(at + GAMES_OFFSET);
+                buffer.putLong(at + GAMES_OFFSET, games + 1);
+                if (player == winner)
+                    add(at + WINS_OFFSET, 1);
+                add(at + ROLLS_OFFSET, player.getRollCount());
+                add(at + TURNS_OFFSET, player.getTurnCount());
+                add(at + ZILCHES_OFFSET, player.getZilchTotal());
+                add(at + PENALTIES_OFFSET, player.getPenaltyCount());
+                add(at + TOTAL_SCORE_OFFSET, score);
+                boolean best = games == 0 || score > buffer.getLong(at + BEST_SCORE_OFFSET);
+                if (best)
+                    buffer.putLong(at + BEST_SCORE_OFFSET, score);
+                add(at + HISTOGRAM_OFFSET + 8 * PlayerStats.getBucket(score), 1);
+                // The leaderboards are changed while the record is locked, so that
+                // they see the player's values in the order they were reached.
+                if (player == winner)
+                    offer(index, WINS);
+                offer(index, GAMES);
+                if (best)
+                    offer(index, BEST_SCORE);
+            } // end synchronized
+        }
+    } // end recordGame
+
+    // Adds an amount to a total in a record.
+    private void add(int at, long amount) {
+        buffer.putLong(at, buffer.getLong(at) + amount);
+    } // end add
+
+    // Passes a player's new value to a leaderboard if it could be on it.
+    private void offer(int index, int ranking) {
+        long value = getRanked(index, ranking);
+        Leaderboard leaderboard = leaderboards[ranking];
+        if (value >= leaderboard.lowest)
+            leaderboard.update(index, value);
+    } // end offer
+
+    // Returns the value a leaderboard ranks a record by.
+    private long getRanked(int index, int ranking) {
+        int at = offset(index);
+        if (ranking == WINS)
+            return buffer.getLong(at + WINS_OFFSET);
+        if (ranking == GAMES)
+            return buffer.getLong(at + GAMES_OFFSET);
+        return buffer.getLong(at + BEST_SCORE_OFFSET);
+    } // end getRanked
+
+    // Returns the index of the record for a name, adding the record if there is
+    // none.
+    private int findOrAdd(String name) throws IOException {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length == 0 || bytes.length > MAX_NAME_BYTES)
+            throw new IOException("Player name: " + name + " cannot be stored (1 to " + MAX_NAME_BYTES + " bytes).");
+        int index = find(bytes, name.hashCode());
+        if (index >= 0)
+            return index;
+        synchronized (this) {
+            index = find(bytes, name.hashCode());
+            if (index >= 0)
+                return index;
+            if (4L * (count + 1) > 3L * capacity)
+                throw new IOException("The player statistics store is full.");
+            index = -index - 1;
+            int at = offset(index);
+            for (int i = 0; i < bytes.length; i++)
+                buffer.put(at + 4 + i, bytes[i]);
+            INTS.setRelease(buffer, at, bytes.length);
+            count++;
+            buffer.putInt(COUNT_OFFSET, count);
+            return index;
+        } // end synchronized
+    } // end findOrAdd
+
+    // Returns the index of the record holding a name, or if there is none, -1 minus
+    // the index of the empty record where it would be added.
+    private int find(byte[] name, int hash) {
+        int mask = capacity - 1;
+        int index = (hash * 0x9E3779B9) >>> 7 & mask;
+        while (true) {
+            int at = offset(index);
+            int length = (int)INTS.getAcquire(buffer, at);
+            if (length == 0)
+                return -index - 1;
+            if (length == name.length && sameName(at, name))
+                return index;
+            index = (index + 1) & mask;
+        }
+    } // end find
+
+    // Returns true if the record at a position holds the name.
+    private boolean sameName(int at, byte[] name) {
+        for (int i = 0; i < name.length; i++)
+            if (buffer.get(at + 4 + i) != name[i])
+                return false;
+        return true;
+    } // end sameName
+
+    /**
+     * Returns the statistics of a player.
+     * @param name The player's name.
+     * @return The statistics, or null if no games have been recorded for the player.
+     */
+    public PlayerStats getStats(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length == 0 || bytes.length > MAX_NAME_BYTES)
+            return null;
+        int index = find(bytes, name.hashCode());
+        return index < 0 ? null : read(index);
+    } // end getStats
+
+    // Reads the statistics in a record.
+    private PlayerStats read(int index) {
+        int at = offset(index);
+        byte[] name = new byte[(int)INTS.getAcquire(buffer, at)];
+        for (int i = 0; i < name.length; i++)
+            name[i] = buffer.get(at + 4 + i);
+        long[] histogram = new long[PlayerStats.SCORE_BUCKETS];
+        synchronized (stripes[index % STRIPES]) {
+            for (int bucket = 0; bucket < histogram.length; bucket++)
+                histogram[bucket] = buffer.getLong(at + HISTOGRAM_OFFSET + 8 * bucket);
+            return new PlayerStats(new String(name, StandardCharsets.UTF_8), buffer.getLong(at + GAMES_OFFSET),
+                    buffer.getLong(at + WINS_OFFSET), buffer.getLong(at + ROLLS_OFFSET),
+                    buffer.getLong(at + TURNS_OFFSET), buffer.getLong(at + ZILCHES_OFFSET),
+                    buffer.getLong(at + PENALTIES_OFFSET), buffer.getLong(at + TOTAL_SCORE_OFFSET),
+                    buffer.getLong(at + BEST_SCORE_OFFSET), histogram);
+        } // end synchronized
+    } // end read
+
+    /**
+     * Returns the players at the top of a leaderboard.
+     * @param ranking The leaderboard: WINS, GAMES or BEST_SCORE.
+     * @param count The number of players wanted.
+     * @return The statistics of up to count players, at most LEADERBOARD_SIZE, from
+     * the first place down.  Players with the same value are in the order they were
+     * added to the store.
+     * @throws ZilchException If the ranking is not a leaderboard.
+     */
+    public List<PlayerStats> getLeaders(int ranking, int count) throws ZilchException {
+        if (ranking < 0 || ranking >= leaderboards.length)
+            throw new ZilchException("Leaderboard: " + ranking + " not defined.");
+        List<PlayerStats> leaders = new ArrayList<>();
+        for (int index : leaderboards[ranking].top(count))
+            leaders.add(read(index));
+        return leaders;
+    } // end getLeaders
+
+    /**
+     * Returns the number of players in the store.
+     * @return The number of players.
+     */
+    public synchronized int getPlayerCount() {
+        return count;
+    } // end getPlayerCount
+
+    /**
+     * Forces the statistics recorded so far to disk.
+     */
+    public void sync() {
+        buffer.force();
+    } // end sync
+
+    /**
+     * Forces the statistics to disk.  The file stays mapped until the store is no
+     * longer used.
+     */
+    public void close() {
+        sync();
+    } // end close
+
+    // The players with the highest values of one total, kept in order.  lowest is
+    // the value a player needs to get onto a full leaderboard, or the lowest long
+    // while it is not full.
+    private static final class Leaderboard {
+
+        // A player on the leaderboard.  Players with the same value are ordered by
+        // their record index.
+        private static final class Leader implements Comparable<Leader> {
+
+            final int index;
+            long value;
+
+            Leader(int index, long value) {
+                this.index = index;
+                this.value = value;
+            } // end Constructor
+
+            public int compareTo(Leader other) {
+                if (value != other.value)
+                    return Long.compare(other.value, value);
+                return Integer.compare(index, other.index);
+            } // end compareTo
+
+        } // end Leader class
+
+        private final TreeSet<Leader> leaders = new TreeSet<>();
+        private final Map<Integer, Leader> byIndex = new HashMap<>();
+        volatile long lowest = Long.MIN_VALUE;
+
+        // Puts a player on the leaderboard with a new value, or moves them, and drops
+        // the last player if there are too many.
+        synchronized void update(int index, long value) {
+            Leader leader = byIndex.get(index);
+            if (leader != null) {
+                leaders.remove(leader);
+                leader.value = value;
+                leaders.add(leader);
+            } else {
+                leader = new Leader(index, value);
+                leaders.add(leader);
+                byIndex.put(index, leader);
+                if (leaders.size() > LEADERBOARD_SIZE)
+                    byIndex.remove(leaders.pollLast().index);
+            }
+            if (leaders.size() == LEADERBOARD_SIZE)
+                lowest = leaders.last().value;
+        } // end update
+
+        // Returns the record indexes of up to count players from the top.
+        synchronized List<Integer> top(int count) {
+            List<Integer> top = new ArrayList<>();
+            for (Leader leader : leaders) {
+                if (top.size() >= count)
+                    break;
+                top.add(leader.index);
+            }
+            return top;
+        } // end top
+
+    } // end Leaderboard class
+
+} // end PlayerStatsStore class
@@ -0,0 +1,41 @@
+
+/**
+ * An AI player in the game of Zilch that makes every choice by looking it up in a
+ * policy table, such as the one calculated by StrategySolver or a MappedPolicyTable
+ * loaded from disk.
+ */
+public class PolicyAIPlayer extends Player {
+
+    private BankPolicy policy;
+
+    /**
+     * The constructor for the PolicyAIPlayer class.
+     * @param name The name of the AI player.
+     * @param policy The table of choices the player follows.
+     */
+    public PolicyAIPlayer(String name, BankPolicy policy) {
+        super(name);
+        this.policy = policy;
+    } // end Constructor
+
+    /**
+     * A constructor that also seeds the player's dice, used when simulating games.
+     * @param name The name of the AI player.
+     * @param policy The table of choices the player follows.
+     * @param seed The seed for the player's dice.
+     */
+    public PolicyAIPlayer(String name, BankPolicy policy, long seed) {
+        super(name, seed);
+        this.policy = policy;
+    } // end seeded Constructor
+
+    // Use the Javadoc comment from Player
+    public char makePlayChoice() {
+        if (policy.shouldBank(getScore(), getBestOpponentScore(), getZilchCount(),
+                getDiceAvailable(), getTurnScore()))
+            return 'b';
+        else
+            return 'r';
+    } // end makePlayChoice
+
+} // end PolicyAIPlayer class
@@ -0,0 +1,140 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a policy file that can be opened with MappedPolicyTable.  The builder asks a
+ * BankPolicy for the choice in every state and stores one bit per state, with the
+ * banked scores quantised into buckets.  The file is written through a memory
+ * mapping, so tables much larger than the Java heap can be built.
+ */
+public class PolicyFileBuilder {
+
+    private int gameLimit;
+    private int bankBucket;
+    private int maxTurnScore;
+    private RuleSet rules;
+
+    /**
+     * The constructor sets the size of a table for the standard rules.
+     * @param gameLimit The game limit the table is for.
+     * @param bankBucket The range of banked scores that share the same choices.
+     * @param maxTurnScore The highest turn score held in the table.  The player
+     * always banks above this score.
+     * @throws ZilchException If any of the sizes is illegal.
+     */
+    public PolicyFileBuilder(int gameLimit, int bankBucket, int maxTurnScore) throws ZilchException {
+        this(gameLimit, bankBucket, maxTurnScore, RuleSet.STANDARD);
+    } // end constructor
+
+    /**
+     * The constructor sets the size of the table and the rules it is for.
+     * @param gameLimit The game limit the table is for.
+     * @param bankBucket The range of banked scores that share the same choices.
+     * @param maxTurnScore The highest turn score held in the table.  The player
+     * always banks above this score.
+     * @param rules The rules the policies written are calculated for.  Their identity
+     * is stored in the file.
+     * @throws ZilchException If any of the sizes is illegal or there are no rules.
+     */
+    public PolicyFileBuilder(int gameLimit, int bankBucket, int maxTurnScore, RuleSet rules)
+            throws ZilchException {
+        if (rules == null)
+            throw new ZilchException("No rules supplied.");
+        if (gameLimit < 300 || gameLimit > 100000)
+            throw new ZilchException("Game limit: " + gameLimit + " not legal (Between 300 and 100000).");
+        if (bankBucket < MappedPolicyTable.TURN_UNIT)
+            throw new ZilchException("Bank bucket: " + bankBucket + " is less than " +
+                    MappedPolicyTable.TURN_UNIT + ".");
+        if (maxTurnScore < 300)
+            throw new ZilchException("Maximum turn score: " + maxTurnScore + " is less than 300.");
+        this.gameLimit = gameLimit;
+        this.bankBucket = bankBucket;
+        this.maxTurnScore = maxTurnScore;
+        this.rules = rules;
+    } // end constructor
+
+    /**
+     * Writes the choices of a policy to a file.  Each bank bucket is represented by
+     * the lowest banked score in it.
+     * @param file The file to write.  Any existing file is replaced.
+     * @param policy The policy to store, which must have been calculated for the
+     * builder's rules.
+     * @throws IOException If the file cannot be written.
+     */
+    public void build(File file, BankPolicy policy) throws IOException {
+        int bankBuckets = MappedPolicyTable.bucketCount(gameLimit, bankBucket);
+        int levels = maxTurnScore / MappedPolicyTable.TURN_UNIT + 1;
+        long size = MappedPolicyTable.dataSize(bankBuckets, levels);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer[] segments = MappedPolicyTable.map(channel, FileChannel.MapMode.READ_WRITE, size);
+            int segment = 0;
+            int bits = 0;
+            long index = 0;
+            // The states are visited in the same order as the bits are laid out, so the
+            // bits can be written one byte at a time.
+            for (int myBucket = 0; myBucket < bankBuckets; myBucket++)
+                for (int opponentBucket = 0; opponentBucket < bankBuckets; opponentBucket++)
+                    for (int zilchCount = 0; zilchCount < 3; zilchCount++)
+                        for (int diceAvailable = 1; diceAvailable <= 6; diceAvailable++)
+                            for (int level = 0; level < levels; level++) {
+                                if (policy.shouldBank(myBucket * bankBucket, opponentBucket * bankBucket,
+                                        zilchCount, diceAvailable, level * MappedPolicyTable.TURN_UNIT))
+                                    bits |= 1 << (index & 7);
+                                index++;
+                                if ((index & 7) == 0) {
+                                    if (!segments[segment].hasRemaining())
+                                        segment++;
+                                    segments[segment].put((byte)bits);
+                                    bits = 0;
+                                }
+                            } // end for
+            if ((index & 7) != 0) {
+                if (!segments[segment].hasRemaining())
+                    segment++;
+                segments[segment].put((byte)bits);
+            }
+            for (MappedByteBuffer mapped : segments)
+                mapped.force();
+            ByteBuffer header = ByteBuffer.allocate(MappedPolicyTable.HEADER_SIZE);
+            header.putInt(MappedPolicyTable.MAGIC);
+            header.putInt(MappedPolicyTable.FORMAT_VERSION);
+            header.putInt(Scoring.RULES_VERSION);
+            header.putInt(gameLimit);
+            header.putInt(bankBucket);
+            header.putInt(maxTurnScore);
+            header.putInt(MappedPolicyTable.TURN_UNIT);
+            header.putInt(rules.getIdentity());
+            header.flip();
+            channel.write(header, 0);
+        } // end try
+    } // end build
+
+    // Builds a policy file from the choices calculated by StrategySolver, banking
+    // whenever banking wins the game.  The optional arguments are the file name,
+    // the game limit, the bank bucket size and a file of house rules written for
+    // RuleSet; the standard rules are used without it.
+    public static void main(String[] args) {
+        String fileName = args.length > 0 ? args[0] : "zilch-policy.map";
+        int gameLimit = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        int bankBucket = args.length > 2 ? Integer.parseInt(args[2]) : 250;
+        try {
+            RuleSet rules = args.length > 3 ? RuleSet.load(new File(args[3])) : RuleSet.STANDARD;
+            StrategySolver solver = new StrategySolver(rules);
+            solver.solve();
+            PolicyTable turnPolicy = solver.buildPolicy();
+            PolicyFileBuilder builder = new PolicyFileBuilder(gameLimit, bankBucket, StrategySolver.MAX_TURN_SCORE,
+                    rules);
+            builder.build(new File(fileName), (myBank, opponentBank, zilchCount, diceAvailable, turnScore) ->
+                    myBank + turnScore >= gameLimit || turnPolicy.shouldBank(zilchCount, diceAvailable, turnScore));
+            System.out.println("Policy saved to " + fileName);
+        } catch (ZilchException | IOException e) {
+            System.err.println("Cannot build policy: " + e.getMessage());
+        } // end try/catch
+    } // end main method
+
+} // end PolicyFileBuilder class
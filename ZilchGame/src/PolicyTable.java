@@ -0,0 +1,153 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * A table holding a roll or bank choice for every state of a Zilch turn, as
+ * calculated by StrategySolver.  The state is the player's zilch count, the number of
+ * dice available and the turn score; the banked scores are not used.  Looking up a
+ * choice takes constant time.
+ *
+ * A table is only good for the rules it was calculated for, so a saved table
+ * records the identity of its rules and is refused when loaded for any others.
+ */
+// Each choice is stored as a single bit, set if the player should bank.  Turn
+// scores are multiples of 50, so the turn score divided by 50 is used as the index.
+public class PolicyTable implements BankPolicy {
+
+    private static final int MAGIC = 0x5A494C43;	// "ZILC"
+    private static final int VERSION = 2;
+    private static final int UNIT = 50;
+
+    private RuleSet rules;
+    private int maxTurnScore;
+    private int levels;
+    private long[] bits;
+
+    /**
+     * The constructor creates a table for the standard rules where every choice is
+     * to roll.
+     * @param maxTurnScore The highest turn score held in the table.  The player
+     * always banks above this score.
+     */
+    public PolicyTable(int maxTurnScore) {
+        this(maxTurnScore, RuleSet.STANDARD);
+    } // end Constructor
+
+    /**
+     * The constructor creates a table where every choice is to roll.
+     * @param maxTurnScore The highest turn score held in the table.  The player
+     * always banks above this score.
+     * @param rules The rules the choices are calculated for.
+     */
+    public PolicyTable(int maxTurnScore, RuleSet rules) {
+        this.rules = rules;
+        this.maxTurnScore = maxTurnScore;
+        levels = maxTurnScore / UNIT + 1;
+        bits = new long[(3 * 7 * levels + 63) / 64];
+    } // end Constructor
+
+    // Returns the bit index of a state.
+    private int index(int zilchCount, int diceAvailable, int turnScore) {
+        return (zilchCount * 7 + diceAvailable) * levels + turnScore / UNIT;
+    } // end index
+
+    /**
+     * Sets the choice for a state.
+     * @param zilchCount The number of zilches the player has rolled in a row (0 to 2).
+     * @param diceAvailable The number of dice available to roll (1 to 6).
+     * @param turnScore The turn score, up to the table's maximum.
+     * @param bank True if the player should bank, false if they should roll.
+     */
+    public void setBank(int zilchCount, int diceAvailable, int turnScore, boolean bank) {
+        int index = index(zilchCount, diceAvailable, turnScore);
+        if (bank)
+            bits[index >> 6] |= 1L << index;
+        else
+            bits[index >> 6] &= ~(1L << index);
+    } // end setBank
+
+    /**
+     * Returns true if the player should bank in the supplied state.
+     * @param zilchCount The number of zilches the player has rolled in a row (0 to 2).
+     * @param diceAvailable The number of dice available to roll (1 to 6).
+     * @param turnScore The current turn score.
+     * @return True if the player should bank, false if they should roll.
+     */
+    public boolean shouldBank(int zilchCount, int diceAvailable, int turnScore) {
+        if (turnScore > maxTurnScore)
+            return true;
+        int index = index(zilchCount, diceAvailable, turnScore);
+        return (bits[index >> 6] & (1L << index)) != 0;
+    } // end shouldBank
+
+    // Use the Javadoc comment from BankPolicy
+    public boolean shouldBank(int myBank, int opponentBank, int zilchCount, int diceAvailable, int turnScore) {
+        return shouldBank(zilchCount, diceAvailable, turnScore);
+    } // end shouldBank
+
+    /**
+     * Returns the rules the table was calculated for.
+     * @return The rules.
+     */
+    public RuleSet getRules() {
+        return rules;
+    } // end getRules
+
+    /**
+     * Saves the table to a file, with the identity of its rules.
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(rules.getIdentity());
+            out.writeInt(maxTurnScore);
+            for (long word : bits)
+                out.writeLong(word);
+        } // end try
+    } // end save
+
+    /**
+     * Loads a table saved by the save method for the standard rules.
+     * @param file The file to read.
+     * @return The table held in the file.
+     * @throws IOException If the file cannot be read, does not hold a policy table or
+     * was calculated for other rules.
+     */
+    public static PolicyTable load(File file) throws IOException {
+        return load(file, RuleSet.STANDARD);
+    } // end load
+
+    /**
+     * Loads a table saved by the save method.
+     * @param file The file to read.
+     * @param rules The rules the table must have been calculated for.
+     * @return The table held in the file.
+     * @throws IOException If the file cannot be read, does not hold a policy table or
+     * was calculated for other rules.
+     */
+    public static PolicyTable load(File file, RuleSet rules) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException(file + " is not a Zilch policy table.");
+            if (in.readInt() != rules.getIdentity())
+                throw new IOException(file + " was calculated for other rules than " + rules + ".");
+            int maxTurnScore = in.readInt();
+            if (maxTurnScore < 0 || maxTurnScore > 1000000)
+                throw new IOException(file + " has a corrupt header.");
+            PolicyTable table = new PolicyTable(maxTurnScore, rules);
+            for (int i = 0; i < table.bits.length; i++)
+                table.bits[i] = in.readLong();
+            return table;
+        } // end try
+    } // end load
+
+} // end PolicyTable class
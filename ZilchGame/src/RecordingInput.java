@@ -0,0 +1,53 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+
+/**
+ * An input source that passes on the lines read from another source, usually the
+ * console, and writes each one to a file as soon as it is read.  A session played
+ * by a real user can then be played again, illegal entries and all, by reading the
+ * file with ScriptedInput.load.
+ */
+public class RecordingInput implements InputSource, Closeable {
+
+    private final InputSource source;
+    private final PrintWriter out;
+
+    /**
+     * The constructor accepts the source to record and the file to record it in.
+     * @param source The source the lines are read from.
+     * @param file The file the lines are written to.  It is replaced if it exists.
+     * @throws IOException If the file cannot be created.
+     */
+    public RecordingInput(InputSource source, File file) throws IOException {
+        this.source = source;
+        out = new PrintWriter(new FileWriter(file));
+    } // end Constructor
+
+    // Use the Javadoc comment from InputSource
+    public String readLine(String prompt) {
+        String line = source.readLine(prompt);
+        if (line != null) {
+            out.println(line);
+            out.flush();
+        }
+        return line;
+    } // end readLine
+
+    // Use the Javadoc comment from InputSource.  The output is that of the source
+    // being recorded.
+    public PrintStream getOutput() {
+        return source.getOutput();
+    } // end getOutput
+
+    /**
+     * Closes the file of the recording.
+     */
+    public void close() {
+        out.close();
+    } // end close
+
+} // end RecordingInput class
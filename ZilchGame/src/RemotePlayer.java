@@ -0,0 +1,108 @@
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A human player in the game of Zilch who plays from another program through
+ * ZilchServer.  The player's choices arrive from the network and are handed to the
+ * table that is playing the game.
+ *
+ * A player in a game recovered from the server's journal has no connection until
+ * they join the table again, and the game waits for them when it is their turn to
+ * choose.
+ */
+public class RemotePlayer extends Player {
+
+    // Only a few actions can be waiting at a time, which bounds the memory a
+    // player can use by sending actions that are not wanted.
+    private final BlockingQueue<Character> actions = new ArrayBlockingQueue<>(4);
+    private volatile ZilchServer.Connection connection;
+    private volatile boolean asked = false;
+
+    /**
+     * The constructor for the RemotePlayer class.
+     * @param name The name of the player.
+     * @param connection The connection the player is playing through, or null if
+     * the player has not connected yet.
+     */
+    public RemotePlayer(String name, ZilchServer.Connection connection) {
+        super(name);
+        this.connection = connection;
+    } // end Constructor
+
+    /**
+     * Supplies a choice made by the player.  Choices that arrive when the queue is
+     * full are ignored.
+     * @param action r to roll, b to bank or q to quit.
+     */
+    public void offer(char action) {
+        actions.offer(action);
+        wakeUp();
+    } // end offer
+
+    // Use the Javadoc comment from Player.  Waits until the player sends a choice.
+    // Choices sent before the player was asked are thrown away.
+    public char makePlayChoice() {
+        actions.clear();
+        send("CHOOSE " + getTurnScore() + " " + getDiceAvailable());
+        while (!hasQuit()) {
+            try {
+                return actions.take();
+            } catch (InterruptedException e) {
+                quit();
+            } // end try/catch
+        } // end while
+        return 'q';
+    } // end makePlayChoice
+
+    // Use the Javadoc comment from Player.  The player is asked once, and the
+    // choice is returned when it arrives.
+    protected char pollPlayChoice() {
+        if (!asked) {
+            actions.clear();
+            asked = true;
+            send("CHOOSE " + getTurnScore() + " " + getDiceAvailable());
+        }
+        Character action = actions.poll();
+        if (action == null)
+            return hasQuit() ? 'q' : '\0';
+        asked = false;
+        return action;
+    } // end pollPlayChoice
+
+    /**
+     * Removes the player from the game, and wakes the table up if it is waiting
+     * for the player's choice.
+     */
+    public void quit() {
+        actions.clear();
+        actions.offer('q');
+        super.quit();
+    } // end quit
+
+    /**
+     * Sends a line to the player, if they are connected.
+     * @param line The line to send.
+     */
+    public void send(String line) {
+        ZilchServer.Connection current = connection;
+        if (current != null)
+            current.send(line);
+    } // end send
+
+    // Connects a player in a recovered game, asking them again for a choice if the
+    // game is waiting for one.
+    void reconnect(ZilchServer.Connection connection) {
+        this.connection = connection;
+        if (asked)
+            send("CHOOSE " + getTurnScore() + " " + getDiceAvailable());
+    } // end reconnect
+
+    /**
+     * Returns the connection the player is playing through.
+     * @return The player's connection, or null if the player has not connected.
+     */
+    public ZilchServer.Connection getConnection() {
+        return connection;
+    } // end getConnection
+
+} // end RemotePlayer class
@@ -0,0 +1,114 @@
+/**
+ * The exact probability distribution of the result of rolling a number of dice in
+ * the game of Zilch.  Rolls with the same score, number of dice left and free roll
+ * flag are grouped into a single outcome, weighted by the number of ways the dice
+ * can fall to give it.
+ *
+ * Distributions are built once for each rule set and shared, so they cannot be
+ * changed.
+ */
+public class RollDistribution {
+
+    private final int numDice;
+    private final long total;
+    private final int[] scores;
+    private final int[] diceLeft;
+    private final boolean[] rollAgain;
+    private final long[] weights;
+
+    // Called by Scoring.  The weights must add up to 6 to the power numDice.
+    RollDistribution(int numDice, int[] scores, int[] diceLeft, boolean[] rollAgain, long[] weights) {
+        this.numDice = numDice;
+        this.scores = scores;
+        this.diceLeft = diceLeft;
+        this.rollAgain = rollAgain;
+        this.weights = weights;
+        long sum = 0;
+        for (long weight : weights)
+            sum += weight;
+        total = sum;
+    } // end Constructor
+
+    /**
+     * Returns the number of dice rolled.
+     * @return The number of dice rolled.
+     */
+    public int getNumDice() {
+        return numDice;
+    } // end getNumDice
+
+    /**
+     * Returns the number of different outcomes.
+     * @return The number of outcomes.
+     */
+    public int size() {
+        return scores.length;
+    } // end size
+
+    /**
+     * Returns the score of an outcome.
+     * @param outcome The index of the outcome, from 0 to size() - 1.
+     * @return The score of the outcome.
+     */
+    public int getScore(int outcome) {
+        return scores[outcome];
+    } // end getScore
+
+    /**
+     * Returns the number of dice left to roll after an outcome.
+     * @param outcome The index of the outcome, from 0 to size() - 1.
+     * @return The number of dice left, as returned by ScoreResult.getDiceLeft.
+     */
+    public int getDiceLeft(int outcome) {
+        return diceLeft[outcome];
+    } // end getDiceLeft
+
+    /**
+     * Returns true if an outcome earns a free roll.
+     * @param outcome The index of the outcome, from 0 to size() - 1.
+     * @return The free roll flag, as returned by ScoreResult.getRollAgain.
+     */
+    public boolean getRollAgain(int outcome) {
+        return rollAgain[outcome];
+    } // end getRollAgain
+
+    /**
+     * Returns the number of ordered rolls that give an outcome.
+     * @param outcome The index of the outcome, from 0 to size() - 1.
+     * @return The weight of the outcome.
+     */
+    public long getWeight(int outcome) {
+        return weights[outcome];
+    } // end getWeight
+
+    /**
+     * Returns the probability of an outcome.
+     * @param outcome The index of the outcome, from 0 to size() - 1.
+     * @return The probability of the outcome, between 0 and 1.
+     */
+    public double getProbability(int outcome) {
+        return (double)weights[outcome] / total;
+    } // end getProbability
+
+    /**
+     * Returns the total weight of all the outcomes, which is 6 to the power of the
+     * number of dice.
+     * @return The number of possible ordered rolls.
+     */
+    public long getTotalWeight() {
+        return total;
+    } // end getTotalWeight
+
+    /**
+     * Returns the probability that the roll scores nothing.
+     * @return The probability of a zilch, between 0 and 1.
+     */
+    public double getZilchProbability() {
+        long zilches = 0;
+        for (int outcome = 0; outcome < scores.length; outcome++)
+            if (scores[outcome] == 0)
+                zilches += weights[outcome];
+        return (double)zilches / total;
+    } // end getZilchProbability
+
+} // end RollDistribution class
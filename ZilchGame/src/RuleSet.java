@@ -0,0 +1,304 @@
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * The house rules of a game of Zilch: what each scoring combination is worth, the
+ * turn score needed to bank and the penalty for zilching too often.
+ *
+ * A rule set is defined by a list of properties, usually read from a file, and any
+ * property left out keeps its value from the standard rules:
+ * <pre>
+ * name              = standard  A name for the rules, shown to players.
+ * one               = 100       A single one.
+ * five              = 50        A single five.
+ * three.ones        = 1000      Three ones.
+ * three.of.a.kind   = 100       Three of any other value, times the value.
+ * extra.of.a.kind   = double    How four, five and six of a kind score: double
+ *                               doubles the three of a kind score for every extra
+ *                               die, add adds it once for every extra die.
+ * straight          = 1500      One to six, or 0 to score it as a one and a five.
+ * three.pairs       = 1500      Three pairs, or 0 to score them as ones and fives.
+ * two.triplets      = 0         Two triplets, or 0 to score them as two three of
+ *                               a kinds.
+ * six.dice.no.score = 500       Six dice that score nothing, or 0 to make them a
+ *                               zilch.
+ * minimum.bank      = 300       The lowest turn score that can be banked.
+ * penalty.zilches   = 3         The number of zilches in a row that is penalised.
+ * zilch.penalty     = 500       The points lost for the penalised zilches.
+ * </pre>
+ * Every score must be a multiple of 50.  A roll that uses all of its dice, and
+ * six dice that score nothing, earn a free roll of all six dice.
+ *
+ * The rules are compiled into the same kind of lookup table as the standard rules
+ * when the rule set is created, so a game scores under any rules as quickly as
+ * under the standard ones.  A rule set cannot be changed once it is created, so any
+ * number of games can share one.
+ */
+public class RuleSet {
+
+    /**
+     * The standard rules, used by every game that does not pick its own.
+     */
+    public static final RuleSet STANDARD = standard();
+
+    private static final String[] KEYS = {"name", "one", "five", "three.ones", "three.of.a.kind",
+            "extra.of.a.kind", "straight", "three.pairs", "two.triplets", "six.dice.no.score", "minimum.bank",
+            "penalty.zilches", "zilch.penalty"};
+
+    private final String name;
+    private final int one;
+    private final int five;
+    private final int threeOnes;
+    private final int threeOfAKind;
+    private final boolean doubling;
+    private final int straight;
+    private final int threePairs;
+    private final int twoTriplets;
+    private final int sixDiceNoScore;
+    private final int minimumBank;
+    private final int penaltyZilches;
+    private final int zilchPenalty;
+    private final char[] table;
+    private final RollDistribution[] distributions;
+    private final int identity;
+
+    /**
+     * Defines and compiles a rule set.
+     * @param definition The properties defining the rules, as listed above.
+     * Properties that are not supplied take their standard values.
+     * @throws ZilchException If a property is unknown or has an illegal value, or a
+     * roll would score more than the lookup table can hold.
+     */
+    public RuleSet(Properties definition) throws ZilchException {
+        for (String key : definition.stringPropertyNames())
+            if (!Arrays.asList(KEYS).contains(key))
+                throw new ZilchException("Unknown rule: " + key + ".");
+        name = definition.getProperty("name", "standard").trim();
+        one = getScore(definition, "one", 100);
+        five = getScore(definition, "five", 50);
+        threeOnes = getScore(definition, "three.ones", 1000);
+        threeOfAKind = getScore(definition, "three.of.a.kind", 100);
+        String extra = definition.getProperty("extra.of.a.kind", "double").trim();
+        if (!extra.equals("double") && !extra.equals("add"))
+            throw new ZilchException("Rule extra.of.a.kind: " + extra + " not legal (double or add).");
+        doubling = extra.equals("double");
+        straight = getScore(definition, "straight", 1500);
+        threePairs = getScore(definition, "three.pairs", 1500);
+        twoTriplets = getScore(definition, "two.triplets", 0);
+        sixDiceNoScore = getScore(definition, "six.dice.no.score", 500);
+        minimumBank = getScore(definition, "minimum.bank", 300);
+        penaltyZilches = getInt(definition, "penalty.zilches", 3);
+        if (penaltyZilches < 1 || penaltyZilches > 100)
+            throw new ZilchException("Rule penalty.zilches: " + penaltyZilches + " not legal (Between 1 and 100).");
+        zilchPenalty = getScore(definition, "zilch.penalty", 500);
+        table = Scoring.compile(this);
+        distributions = Scoring.buildDistributions(table);
+        identity = 31 * (31 * (31 * Arrays.hashCode(table) + minimumBank) + penaltyZilches) + zilchPenalty;
+    } // end Constructor
+
+    // Builds the standard rules, which are always legal.
+    private static RuleSet standard() {
+        try {
+            return new RuleSet(new Properties());
+        } catch (ZilchException e) {
+            throw new IllegalStateException(e);
+        } // end try/catch
+    } // end standard
+
+    /**
+     * Reads a rule set from a file of properties.
+     * @param file The file defining the rules.
+     * @return The compiled rule set.
+     * @throws IOException If the file cannot be read.
+     * @throws ZilchException If the rules are not legal.
+     */
+    public static RuleSet load(File file) throws IOException, ZilchException {
+        Properties definition = new Properties();
+        try (Reader in = new FileReader(file)) {
+            definition.load(in);
+        } // end try
+        return new RuleSet(definition);
+    } // end load
+
+    // Reads a whole number property.
+    private static int getInt(Properties definition, String key, int standard) throws ZilchException {
+        String value = definition.getProperty(key);
+        if (value == null)
+            return standard;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new ZilchException("Rule " + key + ": " + value + " is not a number.");
+        } // end try/catch
+    } // end getInt
+
+    // Reads a score property, which must be a multiple of the unit scores are kept in.
+    private static int getScore(Properties definition, String key, int standard) throws ZilchException {
+        int score = getInt(definition, key, standard);
+        if (score < 0 || score > 100000 || score % 50 != 0)
+            throw new ZilchException("Rule " + key + ": " + score +
+                    " not legal (A multiple of 50 between 0 and 100000).");
+        return score;
+    } // end getScore
+
+    /**
+     * Scores a dice roll under these rules into a result supplied by the caller.
+     * @param dice The values of the dice rolled.
+     * @param result The result to fill in.  Its previous contents are replaced.
+     * @return The supplied result.
+     * @throws ZilchException If there are more than six dice or a die is not 1 to 6.
+     */
+    public ScoreResult score(int[] dice, ScoreResult result) throws ZilchException {
+        return Scoring.lookup(this, table, dice, result);
+    } // end score
+
+    /**
+     * Scores a roll given only as how many of each value came up, as returned by
+     * DiceSource.rollCounts, into a result supplied by the caller.  The result lists
+     * the dice in order of value.
+     * @param counts The packed counts of the roll.
+     * @param numDice The number of dice rolled.
+     * @param result The result to fill in.  Its previous contents are replaced.
+     * @return The supplied result.
+     * @throws ZilchException If the number of dice is not 0 to 6 or the counts do
+     * not add up to it.
+     */
+    public ScoreResult scoreCounts(int counts, int numDice, ScoreResult result) throws ZilchException {
+        return Scoring.lookupCounts(this, table, counts, numDice, result);
+    } // end scoreCounts
+
+    /**
+     * Scores a batch of packed rolls under these rules.  The results of the roll at
+     * each index are written to the same index of the output arrays.
+     * @param rolls The rolls, each packed by Scoring.packRoll.
+     * @param from The index of the first roll to score.
+     * @param to The index after the last roll to score.
+     * @param scores Receives the score of each roll.
+     * @param diceLeft Receives the number of dice left to roll after each roll.
+     * @param rollAgain Receives the free roll flag of each roll.
+     */
+    public void scoreBatch(int[] rolls, int from, int to, int[] scores, byte[] diceLeft, boolean[] rollAgain) {
+        Scoring.lookupBatch(table, rolls, from, to, scores, diceLeft, rollAgain);
+    } // end scoreBatch
+
+    /**
+     * Scores a batch of rolls held a byte per die under these rules, laid out as for
+     * Scoring.scoreBatch.  The results of the roll at each index are written to the
+     * same index of the output arrays.
+     * @param dice The dice, with the roll at index i taking up the Scoring.BATCH_STRIDE
+     * bytes from Scoring.BATCH_STRIDE * i.
+     * @param numDice The number of dice in each roll, from 0 to 6.
+     * @param from The index of the first roll to score.
+     * @param to The index after the last roll to score.
+     * @param scores Receives the score of each roll.
+     * @param diceLeft Receives the number of dice left to roll after each roll.
+     * @param rollAgain Receives the free roll flag of each roll.
+     */
+    public void scoreBatch(byte[] dice, byte[] numDice, int from, int to, int[] scores, byte[] diceLeft,
+                           boolean[] rollAgain) {
+        Scoring.lookupBatch(table, dice, numDice, from, to, scores, diceLeft, rollAgain);
+    } // end scoreBatch
+
+    /**
+     * Returns the exact distribution of outcomes of rolling a number of dice under
+     * these rules.
+     * @param numDice The number of dice rolled, from 0 to 6.
+     * @return The distribution of outcomes, which is shared and cannot be changed.
+     */
+    public RollDistribution getDistribution(int numDice) {
+        return distributions[numDice];
+    } // end getDistribution
+
+    /**
+     * Returns a number identifying the rules, which files calculated for a rule set
+     * store so that they are not used under other rules.  Rule sets that score every
+     * roll alike and have the same minimum bank and zilch penalty have the same
+     * identity, whatever their names.
+     * @return The identity of the rules.
+     */
+    public int getIdentity() {
+        return identity;
+    } // end getIdentity
+
+    /**
+     * Returns the name of the rules.
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    } // end getName
+
+    /**
+     * Returns the lowest turn score that can be banked.
+     * @return The minimum bank.
+     */
+    public int getMinimumBank() {
+        return minimumBank;
+    } // end getMinimumBank
+
+    /**
+     * Returns the number of zilches in a row that costs the player the zilch penalty.
+     * @return The number of zilches.
+     */
+    public int getPenaltyZilches() {
+        return penaltyZilches;
+    } // end getPenaltyZilches
+
+    /**
+     * Returns the points lost for zilching getPenaltyZilches times in a row.
+     * @return The penalty, as a positive number of points.
+     */
+    public int getZilchPenalty() {
+        return zilchPenalty;
+    } // end getZilchPenalty
+
+    // Returns the score of a single one.
+    int getOne() {
+        return one;
+    } // end getOne
+
+    // Returns the score of a single five.
+    int getFive() {
+        return five;
+    } // end getFive
+
+    // Returns the score of a number of dice of one value, from three to six.  Each
+    // extra die doubles the score of three, or adds it again.
+    int getOfAKind(int value, int numDups) {
+        int triple = value == 1 ? threeOnes : value * threeOfAKind;
+        return doubling ? triple << (numDups - 3) : triple * (numDups - 2);
+    } // end getOfAKind
+
+    // Returns the score of a straight, or 0 if it is not a combination.
+    int getStraight() {
+        return straight;
+    } // end getStraight
+
+    // Returns the score of three pairs, or 0 if they are not a combination.
+    int getThreePairs() {
+        return threePairs;
+    } // end getThreePairs
+
+    // Returns the score of two triplets, or 0 if they score as two three of a kinds.
+    int getTwoTriplets() {
+        return twoTriplets;
+    } // end getTwoTriplets
+
+    // Returns the score of six dice that score nothing, or 0 if they are a zilch.
+    int getSixDiceNoScore() {
+        return sixDiceNoScore;
+    } // end getSixDiceNoScore
+
+    /**
+     * Returns the name of the rules.
+     * @return The name.
+     */
+    public String toString() {
+        return name;
+    } // end toString
+
+} // end RuleSet class
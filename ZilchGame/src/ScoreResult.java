@@ -0,0 +1,121 @@
+/**
+ * The result of scoring a single dice roll in the game of Zilch.
+ *
+ * A result holds the score of the roll, the number of dice left to roll, the free
+ * roll flag and a description of the scoring combination.  A result is filled in by
+ * Scoring.score and can be reused for any number of rolls by the same caller, so
+ * each game or thread can keep its own result object and score without sharing any
+ * state with other games.
+ */
+public class ScoreResult {
+
+    private final int[] roll = new int[6];
+    private RuleSet rules = RuleSet.STANDARD;
+    private int rollLength;
+    private int rollKey;
+    private boolean rollListed;
+    private int score;
+    private int diceLeft;
+    private boolean rollAgain;
+    private String scoreDescription;
+
+    /**
+     * The constructor for the ScoreResult class.  The result is empty until it is
+     * supplied to Scoring.score.
+     */
+    public ScoreResult() {
+    } // end Constructor
+
+    // Called by Scoring to store a roll newly scored under the supplied rules.  Any
+    // description built for the previous roll is discarded.
+    void set(RuleSet rules, int[] dice, int key, int score, int diceLeft, boolean rollAgain) {
+        this.rules = rules;
+        rollLength = dice.length;
+        System.arraycopy(dice, 0, roll, 0, rollLength);
+        rollKey = key;
+        rollListed = true;
+        this.score = score;
+        this.diceLeft = diceLeft;
+        this.rollAgain = rollAgain;
+        scoreDescription = null;
+    } // end set
+
+    // Called by Scoring to store a roll given only as its packed counts.  The dice are
+    // listed in order of value the first time they are asked for.
+    void setCounts(RuleSet rules, int counts, int numDice, int score, int diceLeft, boolean rollAgain) {
+        this.rules = rules;
+        rollLength = numDice;
+        rollKey = counts;
+        rollListed = false;
+        this.score = score;
+        this.diceLeft = diceLeft;
+        this.rollAgain = rollAgain;
+        scoreDescription = null;
+    } // end setCounts
+
+    // Lists the dice of a roll stored as counts in order of value.
+    private void listRoll() {
+        int at = 0;
+        for (int value = 1; value < 7; value++)
+            for (int count = (rollKey >> (3 * (value - 1))) & 7; count > 0; count--)
+                roll[at++] = value;
+        rollListed = true;
+    } // end listRoll
+
+    // Returns the number of dice in the roll.
+    int getNumDice() {
+        return rollLength;
+    } // end getNumDice
+
+    // Returns the key of the roll, as packed by Scoring.countKey.
+    int getKey() {
+        return rollKey;
+    } // end getKey
+
+    // Returns the value of one of the dice in the roll.
+    int getDie(int index) {
+        if (!rollListed)
+            listRoll();
+        return roll[index];
+    } // end getDie
+
+    /**
+     * Returns the maximum score of the dice roll.
+     * @return The maximum score of the dice roll.
+     */
+    public int getScore() {
+        return score;
+    } // end getScore
+
+    /**
+     * Returns the number of dice left to roll.
+     * @return The number of dice left to roll.  It is assumed that all scoring dice
+     * will be used and only the non-scoring dice can be re-rolled.
+     */
+    public int getDiceLeft() {
+        return diceLeft;
+    } // end getDiceLeft
+
+    /**
+     * Returns a true if the player has obtained a free roll, false otherwise.
+     * @return True if the player has obtained a free roll, false otherwise.
+     */
+    public boolean getRollAgain() {
+        return rollAgain;
+    } // end getRollAgain
+
+    /**
+     * Returns a string description of the roll and the scoring combination.  The
+     * description is built the first time it is asked for.
+     * @return A string description of the dice roll with a description of all possible
+     * scoring combinations in the roll.
+     */
+    public String getScoreDescription() {
+        if (!rollListed)
+            listRoll();
+        if (scoreDescription == null)
+            scoreDescription = Scoring.describeRoll(rules, roll, rollLength, rollKey);
+        return scoreDescription;
+    } // end getScoreDescription
+
+} // end ScoreResult class
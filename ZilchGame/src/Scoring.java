@@ -1,3 +1,8 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
 /**
  * A utility class to be used in the game of Zilch to calculate dice roll scores.
  *
@@ -8,15 +13,235 @@
  *
  */
 
-// The class has all static members as it does not require instantiation.  It is
-// assumed that the scoreThrow method will be first invoked with a new dice roll,
-// and then this method can reset the values of the static attributes.
+// The class has all static members as it does not require instantiation.  The
+// static methods score under the standard rules; RuleSet scores under any rules
+// with a table compiled here.  Each
+// roll is scored into a ScoreResult owned by the caller, so any number of games
+// can score concurrently.  The older scoreThrow method and its accessors keep the
+// result of the last roll in a shared ScoreResult and are not thread-safe.
+//
+// The score of a roll depends only on how many of each dice value were thrown, not
+// on their order.  Every possible roll of up to six dice is therefore analysed once
+// when a rule set is created and the result stored in a lookup table indexed by the
+// packed counts of the roll, so that scoring only has to count the dice and read
+// a single table entry.  The same analysis gives the exact distribution of outcomes
+// for each number of dice, weighting each combination of counts by the number of
+// ordered rolls that produce it.
+//
+// The batch methods score many rolls with the same table in a loop with no branches
+// and no allocation, writing to arrays of primitives rather than ScoreResults.  A
+// packed roll is turned into its counts key with three reads of PAIR_KEYS.  A roll
+// held a byte per die is read as a single long, masked to its number of dice and
+// folded into the same three pairs.
 public class Scoring {
 
-    private static int[] roll;
-    private static int diceLeft;
-    private static String scoreDescription;
-    private static boolean rollAgain = false;
+    /**
+     * Identifies the standard scoring rules, RuleSet.STANDARD.  It is stored with
+     * anything calculated from the rules, such as policy tables, and must be changed
+     * whenever the rules change.
+     */
+    public static final int RULES_VERSION = 1;
+
+    // The counts key packs the number of each dice value into three bits, with the
+    // count of ones in the lowest bits and the count of sixes in the highest.
+    private static final int BITS_PER_COUNT = 3;
+    private static final int KEY_SIZE = 1 << (6 * BITS_PER_COUNT);
+
+    // A table entry packs the score (which is always a multiple of 50) divided by
+    // 50 into the low eight bits, followed by three bits for the number of dice left
+    // and a single bit for the free roll flag.
+    private static final int SCORE_UNIT = 50;
+    private static final int SCORE_MASK = 0xFF;
+    private static final int DICE_LEFT_SHIFT = 8;
+    private static final int DICE_LEFT_MASK = 0x7;
+    private static final int ROLL_AGAIN_BIT = 1 << 11;
+
+    // A packed roll holds each die in three bits, with the first die in the lowest
+    // bits and a value of zero for no die.  PAIR_KEYS holds the counts key of each
+    // pair of places, and DIE_KEYS the counts key of each die value.
+    private static final int PACKED_PAIR_MASK = 0x3F;
+    private static final int[] DIE_KEYS = {0, 1, 1 << 3, 1 << 6, 1 << 9, 1 << 12, 1 << 15, 0};
+    private static final int[] PAIR_KEYS = buildPairKeys();
+    private static final VarHandle LONG_BYTES = MethodHandles.byteArrayViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * The number of bytes each roll takes up in a batch of rolls held a byte per die.
+     */
+    public static final int BATCH_STRIDE = 6;
+
+    private static final ScoreResult lastResult = new ScoreResult();
+
+    /**
+     * Scores the supplied dice roll into a new result.
+     * @param dice The array of integer values representing the roll of the dice. The
+     * size of this array will be the number of dice that were rolled by the player.
+     * @return The result holding the maximum score of the roll, the number of dice
+     * left, the free roll flag and the description of the scoring combination.
+     * @throws ZilchException If there are more than six dice or a die is not 1 to 6.
+     */
+    public static ScoreResult score(int[] dice) throws ZilchException {
+        return score(dice, new ScoreResult());
+    } // end score
+
+    /**
+     * Scores the supplied dice roll into a result supplied by the caller, which
+     * allows the same result object to be reused for every roll.
+     * @param dice The array of integer values representing the roll of the dice. The
+     * size of this array will be the number of dice that were rolled by the player.
+     * @param result The result to fill in.  Its previous contents are replaced.
+     * @return The supplied result.
+     * @throws ZilchException If there are more than six dice or a die is not 1 to 6.
+     */
+    public static ScoreResult score(int[] dice, ScoreResult result) throws ZilchException {
+        return RuleSet.STANDARD.score(dice, result);
+    } // end score
+
+    // Scores a roll by reading its entry in a table compiled for the supplied rules.
+    static ScoreResult lookup(RuleSet rules, char[] table, int[] dice, ScoreResult result) throws ZilchException {
+        checkRoll(dice);
+        if (ZilchMetrics.ENABLED)
+            ZilchMetrics.SCORES.increment();
+        int key = countKey(dice);
+        int entry = table[key];
+        result.set(rules, dice, key, (entry & SCORE_MASK) * SCORE_UNIT,
+                (entry >> DICE_LEFT_SHIFT) & DICE_LEFT_MASK, (entry & ROLL_AGAIN_BIT) != 0);
+        return result;
+    } // end lookup
+
+    /**
+     * Packs a roll of up to six dice into a single int for scoreBatch, with three
+     * bits for each die and the first die in the lowest bits.
+     * @param dice The values of the dice, from 1 to 6.
+     * @return The packed roll.
+     */
+    public static int packRoll(int[] dice) {
+        int packed = 0;
+        for (int i = 0; i < dice.length; i++)
+            packed |= dice[i] << (BITS_PER_COUNT * i);
+        return packed;
+    } // end packRoll
+
+    /**
+     * Scores a batch of packed rolls under the standard rules.  The results of the
+     * roll at each index are written to the same index of the output arrays.
+     * @param rolls The rolls, each packed by packRoll.
+     * @param from The index of the first roll to score.
+     * @param to The index after the last roll to score.
+     * @param scores Receives the score of each roll.
+     * @param diceLeft Receives the number of dice left to roll after each roll.
+     * @param rollAgain Receives the free roll flag of each roll.
+     */
+    public static void scoreBatch(int[] rolls, int from, int to, int[] scores, byte[] diceLeft,
+                                  boolean[] rollAgain) {
+        RuleSet.STANDARD.scoreBatch(rolls, from, to, scores, diceLeft, rollAgain);
+    } // end scoreBatch
+
+    /**
+     * Scores a batch of rolls held a byte per die under the standard rules.  The
+     * results of the roll at each index are written to the same index of the output
+     * arrays.
+     * @param dice The dice, with the roll at index i taking up the BATCH_STRIDE bytes
+     * from BATCH_STRIDE * i.  Each die is from 1 to 6.
+     * @param numDice The number of dice in each roll, from 0 to 6.  The bytes after
+     * the last die of a roll are ignored.
+     * @param from The index of the first roll to score.
+     * @param to The index after the last roll to score.
+     * @param scores Receives the score of each roll.
+     * @param diceLeft Receives the number of dice left to roll after each roll.
+     * @param rollAgain Receives the free roll flag of each roll.
+     */
+    public static void scoreBatch(byte[] dice, byte[] numDice, int from, int to, int[] scores, byte[] diceLeft,
+                                  boolean[] rollAgain) {
+        RuleSet.STANDARD.scoreBatch(dice, numDice, from, to, scores, diceLeft, rollAgain);
+    } // end scoreBatch
+
+    // Scores a roll given as its packed counts by reading its entry in a table
+    // compiled for the supplied rules.
+    static ScoreResult lookupCounts(RuleSet rules, char[] table, int counts, int numDice, ScoreResult result)
+            throws ZilchException {
+        if (numDice < 0 || numDice > 6 || counts < 0 || counts >= KEY_SIZE || countKeyDice(counts) != numDice)
+            throw new ZilchException("Roll counts: " + Integer.toOctalString(counts) + " of " + numDice +
+                    " dice not legal.");
+        if (ZilchMetrics.ENABLED)
+            ZilchMetrics.SCORES.increment();
+        int entry = table[counts];
+        result.setCounts(rules, counts, numDice, (entry & SCORE_MASK) * SCORE_UNIT,
+                (entry >> DICE_LEFT_SHIFT) & DICE_LEFT_MASK, (entry & ROLL_AGAIN_BIT) != 0);
+        return result;
+    } // end lookupCounts
+
+    // Scores a batch of packed rolls with a compiled table.
+    static void lookupBatch(char[] table, int[] rolls, int from, int to, int[] scores, byte[] diceLeft,
+                            boolean[] rollAgain) {
+        checkBatch(rolls.length, from, to, scores, diceLeft, rollAgain);
+        if (ZilchMetrics.ENABLED)
+            ZilchMetrics.SCORES.add(to - from);
+        for (int i = from; i < to; i++) {
+            int roll = rolls[i];
+            int entry = table[PAIR_KEYS[roll & PACKED_PAIR_MASK] + PAIR_KEYS[(roll >>> 6) & PACKED_PAIR_MASK]
+                    + PAIR_KEYS[(roll >>> 12) & PACKED_PAIR_MASK]];
+            scores[i] = (entry & SCORE_MASK) * SCORE_UNIT;
+            diceLeft[i] = (byte)((entry >> DICE_LEFT_SHIFT) & DICE_LEFT_MASK);
+            rollAgain[i] = (entry & ROLL_AGAIN_BIT) != 0;
+        }
+    } // end lookupBatch
+
+    // Scores a batch of rolls held a byte per die with a compiled table.  Each roll
+    // is read as the eight bytes from its first die, so the last rolls, whose eight
+    // bytes run past the end of the array, are read a byte at a time instead.  The
+    // division rounds down so that an array of fewer than eight bytes has no roll
+    // that can be read whole.
+    static void lookupBatch(char[] table, byte[] dice, byte[] numDice, int from, int to, int[] scores,
+                            byte[] diceLeft, boolean[] rollAgain) {
+        checkBatch(numDice.length, from, to, scores, diceLeft, rollAgain);
+        Objects.checkFromToIndex(from * BATCH_STRIDE, to * BATCH_STRIDE, dice.length);
+        if (ZilchMetrics.ENABLED)
+            ZilchMetrics.SCORES.add(to - from);
+        int safe = Math.max(from, Math.min(to, Math.floorDiv(dice.length - Long.BYTES, BATCH_STRIDE) + 1));
+        for (int i = from; i < safe; i++)
+            lookupBytes(table, (long)LONG_BYTES.get(dice, i * BATCH_STRIDE), numDice[i], i, scores, diceLeft,
+                    rollAgain);
+        for (int i = safe; i < to; i++) {
+            long bytes = 0;
+            for (int at = (i + 1) * BATCH_STRIDE - 1; at >= i * BATCH_STRIDE; at--)
+                bytes = bytes << Byte.SIZE | (dice[at] & 0xFF);
+            lookupBytes(table, bytes, numDice[i], i, scores, diceLeft, rollAgain);
+        }
+    } // end lookupBatch
+
+    // Scores one roll read as a long with a die in each byte, the first in the lowest.
+    // The bytes after the last die are masked off and each pair of dice is folded
+    // into the six bits that index PAIR_KEYS.
+    private static void lookupBytes(char[] table, long bytes, int numDice, int i, int[] scores, byte[] diceLeft,
+                                    boolean[] rollAgain) {
+        long roll = bytes & ~(-1L << (Byte.SIZE * Math.min(numDice, BATCH_STRIDE))) & 0x070707070707L;
+        int pairs = (int)(roll | roll >>> 5);
+        int high = (int)(roll >>> 32 | roll >>> 37);
+        int entry = table[PAIR_KEYS[pairs & PACKED_PAIR_MASK] + PAIR_KEYS[(pairs >>> 16) & PACKED_PAIR_MASK]
+                + PAIR_KEYS[high & PACKED_PAIR_MASK]];
+        scores[i] = (entry & SCORE_MASK) * SCORE_UNIT;
+        diceLeft[i] = (byte)((entry >> DICE_LEFT_SHIFT) & DICE_LEFT_MASK);
+        rollAgain[i] = (entry & ROLL_AGAIN_BIT) != 0;
+    } // end lookupBytes
+
+    // Checks that a batch lies within its input and output arrays, before any
+    // result is written.
+    private static void checkBatch(int length, int from, int to, int[] scores, byte[] diceLeft,
+                                   boolean[] rollAgain) {
+        Objects.checkFromToIndex(from, to, length);
+        Objects.checkFromToIndex(from, to, scores.length);
+        Objects.checkFromToIndex(from, to, diceLeft.length);
+        Objects.checkFromToIndex(from, to, rollAgain.length);
+    } // end checkBatch
+
+    // Builds the counts key of every pair of places in a packed roll.
+    private static int[] buildPairKeys() {
+        int[] keys = new int[PACKED_PAIR_MASK + 1];
+        for (int pair = 0; pair < keys.length; pair++)
+            keys[pair] = DIE_KEYS[pair & 7] + DIE_KEYS[pair >> 3];
+        return keys;
+    } // end buildPairKeys
 
     /**
      * The method returns the maximum score that can be obtained from the dice roll
@@ -27,66 +252,188 @@ public class Scoring {
      * @param dice The array of integer values representing the roll of the dice. The
      * size of this array will be the number of dice that were rolled by the player.
      * @return The maximum score of the supplied dice combination.
+     * @throws ZilchException If there are more than six dice or a die is not 1 to 6.
      */
-    // This method also resets the values of the attributes.
-    public static int scoreThrow(int[] dice) {
+    // This method also resets the values of the attributes.  Use score instead when
+    // more than one game may be scoring at the same time.
+    public static int scoreThrow(int[] dice) throws ZilchException {
+        return score(dice, lastResult).getScore();
+    } // end scoreThrow
+
+    // Packs the frequency of each dice value in the roll into a table key.
+    static int countKey(int[] dice) {
+        int key = 0;
+        for (int i = 0; i < dice.length; i++)
+            key += 1 << (BITS_PER_COUNT * (dice[i] - 1));
+        return key;
+    } // end countKey
+
+    // Checks that a roll can be looked up: the key of more than six dice, or of a
+    // die that is not 1 to 6, would be outside the table or belong to another roll.
+    private static void checkRoll(int[] dice) throws ZilchException {
+        if (dice.length > 6)
+            throw new ZilchException("Number of dice: " + dice.length + " not legal (Between 0 and 6).");
+        for (int i = 0; i < dice.length; i++)
+            if (dice[i] < 1 || dice[i] > 6)
+                throw new ZilchException("Die value: " + dice[i] + " not legal (Between 1 and 6).");
+    } // end checkRoll
+
+    // Returns the number of dice counted in a table key.
+    private static int countKeyDice(int key) {
+        int numDice = 0;
+        for (; key != 0; key >>= BITS_PER_COUNT)
+            numDice += key & DICE_LEFT_MASK;
+        return numDice;
+    } // end countKeyDice
+
+    // Unpacks a table key into an array of counts.  The first element in the array
+    // is not used, so the index value will be the actual dice number.
+    private static int[] unpackKey(int key) {
+        int[] counts = new int[7];
+        for (int dice = 1; dice < 7; dice++)
+            counts[dice] = (key >> (BITS_PER_COUNT * (dice - 1))) & DICE_LEFT_MASK;
+        return counts;
+    } // end unpackKey
+
+    // Analyses every combination of counts for rolls of up to six dice under the
+    // supplied rules and stores the packed result.  Keys that cannot come from a legal
+    // roll are left as zero.
+    static char[] compile(RuleSet rules) throws ZilchException {
+        char[] table = new char[KEY_SIZE];
+        for (int key = 0; key < KEY_SIZE; key++) {
+            int[] counts = unpackKey(key);
+            int numThrown = 0;
+            for (int dice = 1; dice < 7; dice++)
+                numThrown += counts[dice];
+            if (numThrown <= 6) {
+                int entry = analyse(rules, counts, numThrown, null);
+                if (entry < 0)
+                    throw new ZilchException("Rules " + rules.getName() + " score a roll over " +
+                            SCORE_MASK * SCORE_UNIT + " points.");
+                table[key] = (char)entry;
+            }
+        }
+        return table;
+    } // end compile
+
+    // Groups the table entries of every combination of counts by the number of dice
+    // and the outcome, weighting each by the number of orders the dice can fall in.
+    static RollDistribution[] buildDistributions(char[] table) {
+        int[] factorials = {1, 1, 2, 6, 24, 120, 720};
+        long[][] weights = new long[7][ROLL_AGAIN_BIT << 1];
+        for (int key = 0; key < KEY_SIZE; key++) {
+            int[] counts = unpackKey(key);
+            int numThrown = 0;
+            for (int dice = 1; dice < 7; dice++)
+                numThrown += counts[dice];
+            if (numThrown > 6)
+                continue;
+            int divisor = 1;
+            for (int dice = 1; dice < 7; dice++)
+                divisor *= factorials[counts[dice]];
+            weights[numThrown][table[key]] += factorials[numThrown] / divisor;
+        } // end for
+        RollDistribution[] distributions = new RollDistribution[7];
+        for (int numDice = 0; numDice < 7; numDice++) {
+            int size = 0;
+            for (long weight : weights[numDice])
+                if (weight > 0)
+                    size++;
+            int[] scores = new int[size];
+            int[] diceLeft = new int[size];
+            boolean[] rollAgain = new boolean[size];
+            long[] outcomeWeights = new long[size];
+            int outcome = 0;
+            for (int entry = 0; entry < weights[numDice].length; entry++)
+                if (weights[numDice][entry] > 0) {
+                    scores[outcome] = (entry & SCORE_MASK) * SCORE_UNIT;
+                    diceLeft[outcome] = (entry >> DICE_LEFT_SHIFT) & DICE_LEFT_MASK;
+                    rollAgain[outcome] = (entry & ROLL_AGAIN_BIT) != 0;
+                    outcomeWeights[outcome] = weights[numDice][entry];
+                    outcome++;
+                }
+            distributions[numDice] = new RollDistribution(numDice, scores, diceLeft, rollAgain, outcomeWeights);
+        } // end for
+        return distributions;
+    } // end buildDistributions
+
+    // Scores the supplied counts under the supplied rules and returns the packed
+    // table entry, or -1 if the score is too high to pack.  If a StringBuilder is
+    // supplied the description of the scoring combination is appended to it.
+    private static int analyse(RuleSet rules, int[] counts, int numThrown, StringBuilder description) {
         int score = 0;
-        rollAgain = false;
-        roll = dice.clone();
-        scoreDescription = "";
-        int numThrown = dice.length;
-        diceLeft = numThrown;
-        int[] counts = countDice(dice);
+        int left = numThrown;
         int[] countOfCounts = countCounts(counts);
-        // A straight or three pairs
-        if (countOfCounts[1] == 6 || countOfCounts[2] == 3) {
-            if (countOfCounts[1] == 6)
-                scoreDescription = "*A Straight!*";
-            else
-                scoreDescription = "*Three pairs!*";
-            setFreeRoll();
-            return 1500;
+        // A straight
+        if (countOfCounts[1] == 6 && rules.getStraight() > 0) {
+            describe(description, "*A Straight!*");
+            return freeRollEntry(rules.getStraight());
+        }
+        // Three pairs
+        if (countOfCounts[2] == 3 && rules.getThreePairs() > 0) {
+            describe(description, "*Three pairs!*");
+            return freeRollEntry(rules.getThreePairs());
         }
         // Two triplets
         if (countOfCounts[3] == 2) {
-            scoreDescription = "*Two triplets!*";
-            setFreeRoll();
-            return scoreDuplicates(3, counts);
+            describe(description, "*Two triplets!*");
+            if (rules.getTwoTriplets() > 0)
+                return freeRollEntry(rules.getTwoTriplets());
+            return freeRollEntry(scoreDuplicates(rules, 3, counts));
         }
         // Six of a kind
         if (countOfCounts[6] == 1) {
-            scoreDescription = "*Six of a kind!*";
-            setFreeRoll();
-            return scoreDuplicates(6, counts);
+            describe(description, "*Six of a kind!*");
+            return freeRollEntry(scoreDuplicates(rules, 6, counts));
         }
         // Check 3, 4 or 5 of a kind
         for (int numDups = 3; numDups < 6; numDups++) {
             if (countOfCounts[numDups] == 1) {
-                scoreDescription = "*" + getNumberName(numDups) + " of a kind*";
-                diceLeft = numThrown - numDups;
-                score = scoreDuplicates(numDups, counts);
-                score += countLeftovers(counts);
-                if (diceLeft == 0 && numThrown == 6) {
-                    setFreeRoll();
-                }
-                else
-                    rollAgain = false;
-                return score;
+                describe(description, "*" + getNumberName(numDups) + " of a kind*");
+                left = numThrown - numDups;
+                score = scoreDuplicates(rules, numDups, counts);
+                score += countLeftovers(rules, counts, description);
+                left -= countLeftoverDice(counts);
+                if (left == 0 && numThrown == 6)
+                    return freeRollEntry(score);
+                return entry(score, left, false);
             } // end if
         } // end for
         // Ones and Fives Only
-        score = countLeftovers(counts);
+        score = countLeftovers(rules, counts, description);
+        left -= countLeftoverDice(counts);
         // No score with six dice check
-        if (numThrown == 6 && score == 0) {
-            scoreDescription = "*No score with six dice!*";
-            setFreeRoll();
-            return 500;
+        if (numThrown == 6 && score == 0 && rules.getSixDiceNoScore() > 0) {
+            describe(description, "*No score with six dice!*");
+            return freeRollEntry(rules.getSixDiceNoScore());
         }
         // Zilch check
         if (score == 0)
-            scoreDescription = "*A Zilch!*";
-        return score;
-    } // end scoreThrow
+            describe(description, "*A Zilch!*");
+        return entry(score, left, false);
+    } // end analyse
+
+    // Packs a score, the number of dice left and the free roll flag, or returns -1
+    // if the score is too high to pack.
+    private static int entry(int score, int left, boolean again) {
+        if (score / SCORE_UNIT > SCORE_MASK)
+            return -1;
+        int packed = (score / SCORE_UNIT) | (left << DICE_LEFT_SHIFT);
+        if (again)
+            packed |= ROLL_AGAIN_BIT;
+        return packed;
+    } // end entry
+
+    // Called when a free roll is awarded.
+    private static int freeRollEntry(int score) {
+        return entry(score, 6, true);
+    } // end freeRollEntry
+
+    // Appends text to the description, if one is being built.
+    private static void describe(StringBuilder description, String text) {
+        if (description != null)
+            description.append(text);
+    } // end describe
 
     // Counts the frequency of each dice value and returns an array of these
     // counts.  The first element in the array is not used, so the index value
@@ -105,56 +452,52 @@ public class Scoring {
     } // end countCounts
 
     // Scores duplicates - triples, four of a kind or five of a kind as supplied
-    // as the first argument.  The method can also score two triples at a time,
+    // as the second argument.  The method can also score two triples at a time,
     // if necessary.
-    private static int scoreDuplicates(int numDups, int[] counts) {
+    private static int scoreDuplicates(RuleSet rules, int numDups, int[] counts) {
         int score = 0;
-        int factor = (int)Math.pow(2, numDups - 3);
         // Need to figure out which dice value is duplicated:
-        for (int dice = 1; dice < 7; dice++) {
-            if (counts[dice] == numDups) {
-                if (dice == 1)
-                    score += 1000 * factor;
-                else
-                    score += dice * 100 * factor;
-            } // end if
-        } // end for
+        for (int dice = 1; dice < 7; dice++)
+            if (counts[dice] == numDups)
+                score += rules.getOfAKind(dice, numDups);
         return score;
     } // end scoreDuplicates
 
     // Scores leftover ones and fives that are not in duplicates.
     // Also builds the string listing the number of these dice.
-    private static int countLeftovers(int[] counts) {
+    private static int countLeftovers(RuleSet rules, int[] counts, StringBuilder description) {
         int score = 0;
         int numOnes = counts[1];
         int numFives = counts[5];
         // Ones
         if (numOnes == 2 || numOnes == 1) {
-            scoreDescription += "*" + getNumberName(numOnes);
+            describe(description, "*" + getNumberName(numOnes));
             if (numOnes == 2)
-                scoreDescription += " ones*";
+                describe(description, " ones*");
             else
-                scoreDescription += " one*";
-            score += numOnes * 100;
-            diceLeft -= numOnes;
+                describe(description, " one*");
+            score += numOnes * rules.getOne();
         } // Fives
         if (numFives == 2 || numFives == 1) {
-            scoreDescription += "*" + getNumberName(numFives);
+            describe(description, "*" + getNumberName(numFives));
             if (numFives == 2)
-                scoreDescription += " fives*";
+                describe(description, " fives*");
             else
-                scoreDescription += " five*";
-            score += numFives * 50;
-            diceLeft -= numFives;
+                describe(description, " five*");
+            score += numFives * rules.getFive();
         }
         return score;
     } // end countLeftovers
 
-    // Called when a free roll is awarded.
-    private static void setFreeRoll() {
-        diceLeft = 6;
-        rollAgain = true;
-    } // end setFreeRoll
+    // Returns the number of leftover ones and fives that are used by countLeftovers.
+    private static int countLeftoverDice(int[] counts) {
+        int used = 0;
+        if (counts[1] == 2 || counts[1] == 1)
+            used += counts[1];
+        if (counts[5] == 2 || counts[5] == 1)
+            used += counts[5];
+        return used;
+    } // end countLeftoverDice
 
     // Returns the name of the dice roll as a word.
     private static String getNumberName(int roll) {
@@ -162,22 +505,46 @@ public class Scoring {
         return names[roll - 1];
     } // end getNumberName
 
-    // Builds and returns a string representation of the dice roll using full
-    // names of each dice value.
-    private static String rollString() {
-        String out = "";
-        for (int die : roll)
-            out += "*" + getNumberName(die) + "*";
-        return out;
+    // Appends a representation of the dice roll using full names of each dice value.
+    private static void rollString(int[] roll, int rollLength, StringBuilder out) {
+        for (int i = 0; i < rollLength; i++)
+            out.append('*').append(getNumberName(roll[i])).append('*');
     } // end rollString
 
+    // Builds the description of a roll and its scoring combination under the supplied
+    // rules for a ScoreResult.  The description is only needed for display, so it is
+    // built on demand rather than stored in the lookup table.
+    static String describeRoll(RuleSet rules, int[] roll, int rollLength, int key) {
+        StringBuilder description = new StringBuilder();
+        describeRoll(rules, roll, rollLength, key, description);
+        return description.toString();
+    } // end describeRoll
+
+    // Appends the description of a roll to the supplied builder, as ConsoleRenderer
+    // does when it shows a roll.
+    static void describeRoll(RuleSet rules, int[] roll, int rollLength, int key, StringBuilder out) {
+        rollString(roll, rollLength, out);
+        out.append('\n');
+        analyse(rules, unpackKey(key), rollLength, out);
+    } // end appending describeRoll
+
+    /**
+     * Returns the exact distribution of outcomes of rolling a number of dice under
+     * the standard rules.
+     * @param numDice The number of dice rolled, from 0 to 6.
+     * @return The distribution of outcomes, which is shared and cannot be changed.
+     */
+    public static RollDistribution getDistribution(int numDice) {
+        return RuleSet.STANDARD.getDistribution(numDice);
+    } // end getDistribution
+
     /**
      * Returns the number of dice left to roll.
      * @return The number of dice left to roll.  It is assumed that all scoring dice
      * will be used and only the non-scoring dice can be re-rolled.
      */
     public static int getDiceLeft() {
-        return diceLeft;
+        return lastResult.getDiceLeft();
     } // end getDiceLeft
 
     /**
@@ -186,7 +553,7 @@ public class Scoring {
      * scoring combinations in the roll.
      */
     public static String getScoreDescription() {
-        return rollString() + "\n" + scoreDescription;
+        return lastResult.getScoreDescription();
     } // end getScoreDescription
 
     /**
@@ -194,7 +561,7 @@ public class Scoring {
      * @return True if the player has obtained a free roll, false otherwise.
      */
     public static boolean getRollAgain() {
-        return rollAgain;
+        return lastResult.getRollAgain();
     } // end getRollAgain
 
 } // end Scoring class
@@ -0,0 +1,238 @@
+import java.util.Arrays;
+
+/**
+ * Checks the lookup table scorer against the straightforward scorer it replaced.
+ * Every possible roll of one to six dice is scored by Scoring.score, by
+ * RuleSet.scoreCounts and by both forms of Scoring.scoreBatch, and each must give the
+ * same score, dice left and free roll flag as the reference scorer, and Scoring.score
+ * the same description.  Rolls of more than six dice, and dice that are not 1 to 6,
+ * must be refused.
+ *
+ * Run it with no arguments.  It prints the number of rolls checked, or the first
+ * difference, and exits with status 1 if anything differed.
+ */
+public class ScoringCheck {
+
+    private final ScoreResult result = new ScoreResult();
+    private final int[] scores = new int[1];
+    private final byte[] diceLeft = new byte[1];
+    private final boolean[] rollAgain = new boolean[1];
+
+    /**
+     * The constructor for the ScoringCheck class.
+     */
+    public ScoringCheck() {
+    } // end Constructor
+
+    /**
+     * Scores every possible roll of one to six dice in every way the table can be
+     * read and compares each result with the reference scorer, then checks that
+     * illegal rolls are refused.  Prints the number of rolls checked, or the first
+     * difference.
+     * @return True if every roll matched and every illegal roll was refused.
+     */
+    public boolean check() {
+        long checked = 0;
+        for (int numDice = 1; numDice <= 6; numDice++)
+            for (int[] roll : allRolls(numDice)) {
+                String difference;
+                try {
+                    difference = compare(roll, new ReferenceScorer(roll));
+                } catch (ZilchException e) {
+                    difference = "cannot be scored: " + e.getMessage();
+                } // end try/catch
+                if (difference != null) {
+                    System.out.printf("%-32s %s %s%n", "score all rolls", Arrays.toString(roll), difference);
+                    return false;
+                }
+                checked++;
+            }
+        System.out.printf("%-32s %d rolls match the reference%n", "score all rolls", checked);
+        for (int[] roll : new int[][] {{1, 2, 3, 4, 5, 6, 1}, {0, 1, 5}, {7, 1, 5}, {1, -1}})
+            if (!refused(roll)) {
+                System.out.printf("%-32s %s was scored%n", "refuse illegal rolls", Arrays.toString(roll));
+                return false;
+            }
+        System.out.printf("%-32s illegal rolls are refused%n", "refuse illegal rolls");
+        return true;
+    } // end check
+
+    // Scores a roll in every way and returns how it differs from the reference, or
+    // null if it does not.
+    private String compare(int[] roll, ReferenceScorer reference) throws ZilchException {
+        Scoring.score(roll, result);
+        if (!matches(reference, result.getScore(), result.getDiceLeft(), result.getRollAgain()))
+            return differs("Scoring.score", reference, result.getScore(), result.getDiceLeft(),
+                    result.getRollAgain());
+        if (!result.getScoreDescription().equals(reference.getScoreDescription()))
+            return "Scoring.score describes as " + result.getScoreDescription() + " but the reference as " +
+                    reference.getScoreDescription();
+        RuleSet.STANDARD.scoreCounts(Scoring.countKey(roll), roll.length, result);
+        if (!matches(reference, result.getScore(), result.getDiceLeft(), result.getRollAgain()))
+            return differs("RuleSet.scoreCounts", reference, result.getScore(), result.getDiceLeft(),
+                    result.getRollAgain());
+        Scoring.scoreBatch(new int[] {Scoring.packRoll(roll)}, 0, 1, scores, diceLeft, rollAgain);
+        if (!matches(reference, scores[0], diceLeft[0], rollAgain[0]))
+            return differs("packed Scoring.scoreBatch", reference, scores[0], diceLeft[0], rollAgain[0]);
+        byte[] bytes = new byte[Scoring.BATCH_STRIDE];
+        for (int i = 0; i < roll.length; i++)
+            bytes[i] = (byte)roll[i];
+        Scoring.scoreBatch(bytes, new byte[] {(byte)roll.length}, 0, 1, scores, diceLeft, rollAgain);
+        if (!matches(reference, scores[0], diceLeft[0], rollAgain[0]))
+            return differs("byte Scoring.scoreBatch", reference, scores[0], diceLeft[0], rollAgain[0]);
+        return null;
+    } // end compare
+
+    // Returns true if a result is the same as the reference.
+    private static boolean matches(ReferenceScorer reference, int score, int left, boolean again) {
+        return score == reference.score && left == reference.diceLeft && again == reference.rollAgain;
+    } // end matches
+
+    // Describes a result that is not the same as the reference.
+    private static String differs(String scorer, ReferenceScorer reference, int score, int left, boolean again) {
+        return String.format("%s scores %d, %d left, %b but the reference scores %d, %d left, %b", scorer,
+                score, left, again, reference.score, reference.diceLeft, reference.rollAgain);
+    } // end differs
+
+    // Returns true if scoring the roll throws a ZilchException.
+    private boolean refused(int[] roll) {
+        try {
+            Scoring.score(roll, result);
+            return false;
+        } catch (ZilchException e) {
+            return true;
+        } // end try/catch
+    } // end refused
+
+    // Returns every possible roll of the supplied number of dice.
+    private static int[][] allRolls(int numDice) {
+        int[][] rolls = new int[(int)Math.pow(6, numDice)][numDice];
+        for (int code = 0; code < rolls.length; code++) {
+            int remainder = code;
+            for (int i = 0; i < numDice; i++) {
+                rolls[code][i] = remainder % 6 + 1;
+                remainder /= 6;
+            }
+        }
+        return rolls;
+    } // end allRolls
+
+    // Runs the check and exits with status 1 if it failed.
+    public static void main(String[] args) {
+        System.exit(new ScoringCheck().check() ? 0 : 1);
+    } // end main method
+
+    // The scorer the lookup table replaced, which works out the score of each roll
+    // from its counts every time.  It is kept only as the reference for the check and
+    // scores under the standard rules.
+    private static final class ReferenceScorer {
+
+        private static final String[] NAMES = {"one", "two", "three", "four", "five", "six"};
+
+        private final int[] roll;
+        private int score;
+        private int diceLeft;
+        private boolean rollAgain = false;
+        private String scoreDescription = "";
+
+        ReferenceScorer(int[] dice) {
+            roll = dice.clone();
+            int numThrown = dice.length;
+            diceLeft = numThrown;
+            int[] counts = countDice(dice);
+            int[] countOfCounts = countDice(counts);
+            // A straight or three pairs
+            if (countOfCounts[1] == 6 || countOfCounts[2] == 3) {
+                scoreDescription = countOfCounts[1] == 6 ? "*A Straight!*" : "*Three pairs!*";
+                setFreeRoll();
+                score = 1500;
+                return;
+            }
+            // Two triplets
+            if (countOfCounts[3] == 2) {
+                scoreDescription = "*Two triplets!*";
+                setFreeRoll();
+                score = scoreDuplicates(3, counts);
+                return;
+            }
+            // Six of a kind
+            if (countOfCounts[6] == 1) {
+                scoreDescription = "*Six of a kind!*";
+                setFreeRoll();
+                score = scoreDuplicates(6, counts);
+                return;
+            }
+            // Check 3, 4 or 5 of a kind
+            for (int numDups = 3; numDups < 6; numDups++)
+                if (countOfCounts[numDups] == 1) {
+                    scoreDescription = "*" + NAMES[numDups - 1] + " of a kind*";
+                    diceLeft = numThrown - numDups;
+                    score = scoreDuplicates(numDups, counts) + countLeftovers(counts);
+                    if (diceLeft == 0 && numThrown == 6)
+                        setFreeRoll();
+                    return;
+                }
+            // Ones and Fives Only
+            score = countLeftovers(counts);
+            // No score with six dice check
+            if (numThrown == 6 && score == 0) {
+                scoreDescription = "*No score with six dice!*";
+                setFreeRoll();
+                score = 500;
+            } else if (score == 0)
+                scoreDescription = "*A Zilch!*";
+        } // end Constructor
+
+        // Counts the frequency of each value, with the value as the index.
+        private static int[] countDice(int[] dice) {
+            int[] counts = new int[7];
+            for (int die : dice)
+                counts[die]++;
+            return counts;
+        } // end countDice
+
+        // Scores every value thrown the supplied number of times.
+        private static int scoreDuplicates(int numDups, int[] counts) {
+            int score = 0;
+            int factor = 1 << (numDups - 3);
+            for (int dice = 1; dice < 7; dice++)
+                if (counts[dice] == numDups)
+                    score += (dice == 1 ? 1000 : dice * 100) * factor;
+            return score;
+        } // end scoreDuplicates
+
+        // Scores the ones and fives that are not part of a combination.
+        private int countLeftovers(int[] counts) {
+            int score = 0;
+            int numOnes = counts[1];
+            int numFives = counts[5];
+            if (numOnes == 2 || numOnes == 1) {
+                scoreDescription += "*" + NAMES[numOnes - 1] + (numOnes == 2 ? " ones*" : " one*");
+                score += numOnes * 100;
+                diceLeft -= numOnes;
+            }
+            if (numFives == 2 || numFives == 1) {
+                scoreDescription += "*" + NAMES[numFives - 1] + (numFives == 2 ? " fives*" : " five*");
+                score += numFives * 50;
+                diceLeft -= numFives;
+            }
+            return score;
+        } // end countLeftovers
+
+        // Called when a free roll is awarded.
+        private void setFreeRoll() {
+            diceLeft = 6;
+            rollAgain = true;
+        } // end setFreeRoll
+
+        // Returns the roll and the scoring combination in the same form as Scoring.
+        String getScoreDescription() {
+            String out = "";
+            for (int die : roll)
+                out += "*" + NAMES[die - 1] + "*";
+            return out + "\n" + scoreDescription;
+        } // end getScoreDescription
+
+    } // end ReferenceScorer class
+
+} // end ScoringCheck class
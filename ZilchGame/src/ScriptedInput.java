@@ -0,0 +1,121 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * An input source that supplies the lines of a script as if a user were typing them
+ * at the console, so that human sessions can be played without a terminal, as fast
+ * as the game can run, for load testing and regression testing.  A script can be
+ * written by hand, with illegal entries and quits wherever they are wanted, or
+ * recorded from a real session with RecordingInput.
+ *
+ * Each prompt and the line that answers it are printed to the source's output just
+ * as they would appear on a terminal, and everything else the session shows goes
+ * there too, so the output of a scripted session can be compared with that of an
+ * earlier one.  Sessions with their own outputs can be played at the same time.
+ * Once the script has run out the source reports the end of the input, which
+ * HumanPlayer takes as quitting.  A scripted source must only be used by one session
+ * at a time.
+ */
+public class ScriptedInput implements InputSource {
+
+    private final String[] lines;
+    private final PrintStream out;
+    private int next = 0;
+
+    /**
+     * The constructor accepts the lines of the script, and shows the session on
+     * System.out.
+     * @param lines The lines, in the order they are read.
+     */
+    public ScriptedInput(String... lines) {
+        this(System.out, lines);
+    } // end Constructor
+
+    /**
+     * The constructor accepts the stream the session is shown on and the lines of
+     * the script.
+     * @param out The stream the session is shown on.  To discard it, use a stream
+     * on OutputStream.nullOutputStream.
+     * @param lines The lines, in the order they are read.
+     */
+    public ScriptedInput(PrintStream out, String... lines) {
+        this.out = out;
+        this.lines = lines.clone();
+    } // end output Constructor
+
+    /**
+     * The constructor accepts the lines of the script as a list, and shows the
+     * session on System.out.
+     * @param lines The lines, in the order they are read.
+     */
+    public ScriptedInput(List<String> lines) {
+        this(System.out, lines.toArray(new String[0]));
+    } // end list Constructor
+
+    /**
+     * Reads a script from a file with one line of input on each line, such as one
+     * written by RecordingInput, and shows the session on System.out.
+     * @param file The file of the script.
+     * @return The scripted source.
+     * @throws IOException If the file cannot be read.
+     */
+    public static ScriptedInput load(File file) throws IOException {
+        return load(file, System.out);
+    } // end load
+
+    /**
+     * Reads a script from a file with one line of input on each line, such as one
+     * written by RecordingInput.
+     * @param file The file of the script.
+     * @param out The stream the session is shown on.
+     * @return The scripted source.
+     * @throws IOException If the file cannot be read.
+     */
+    public static ScriptedInput load(File file, PrintStream out) throws IOException {
+        return new ScriptedInput(out, Files.readAllLines(file.toPath()).toArray(new String[0]));
+    } // end load
+
+    // Use the Javadoc comment from InputSource
+    public String readLine(String prompt) {
+        out.print(prompt);
+        if (next == lines.length) {
+            out.println();
+            return null;
+        }
+        out.println(lines[next]);
+        return lines[next++];
+    } // end readLine
+
+    // Use the Javadoc comment from InputSource
+    public PrintStream getOutput() {
+        return out;
+    } // end getOutput
+
+    /**
+     * Goes back to the start of the script, so that the same session can be played
+     * again.
+     */
+    public void reset() {
+        next = 0;
+    } // end reset
+
+    /**
+     * Returns the number of lines of the script read so far.
+     * @return The number of lines read.
+     */
+    public int getLinesRead() {
+        return next;
+    } // end getLinesRead
+
+    /**
+     * Returns true once every line of the script has been read.
+     * @return True if the script has run out.
+     */
+    public boolean isFinished() {
+        return next == lines.length;
+    } // end isFinished
+
+} // end ScriptedInput class
@@ -0,0 +1,278 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * A table in ZilchServer where any number of remote players, and optionally some AI
+ * players, play a game of Zilch together.  Every event of every turn is sent to all
+ * the remote players still at the table.
+ *
+ * The seats are filled by players joining before the game starts.  The game is then
+ * played by the server's TurnScheduler, so a table only uses a thread while a turn
+ * is being played.  A player who quits only gives up their own seat; the game is
+ * abandoned when no remote players are left.  Once the game is over, or everyone has
+ * left before it started, the table closes and its players are free to join
+ * another.
+ *
+ * If the server keeps a journal, the game is recorded in it.  A game recovered from
+ * the journal after the server restarts carries on as soon as the remote players
+ * whose turn it is join the table again with the same names.  If the server keeps
+ * player statistics, every game that is won is added to them.
+ */
+public class ServerTable implements TurnListener {
+
+    /**
+     * The largest number of players at a table.
+     */
+    public static final int MAX_SEATS = 8;
+
+    private ZilchServer server;
+    private String id;
+    private int gameLimit;
+    private List<Player> seats = new ArrayList<>();
+    private boolean started = false;
+    private boolean closed = false;
+    private GameRecorder recorder;
+
+    /**
+     * The constructor for an empty table.
+     * @param server The server hosting the table.
+     * @param id The name of the table.
+     * @param gameLimit Once a player gets over this limit the game ends after every
+     * other player has had one more turn.
+     */
+    public ServerTable(ZilchServer server, String id, int gameLimit) {
+        this.server = server;
+        this.id = id;
+        this.gameLimit = gameLimit;
+    } // end Constructor
+
+    /**
+     * Seats a remote player at the table.
+     * @param name The name of the player, which must not be used by anyone else at
+     * the table.
+     * @param connection The connection the player is playing through.
+     * @return The seated player, or null if the table has closed, in which case the
+     * player should join a new table with the same name.
+     * @throws ZilchException If the game has started, the table is full or the name
+     * is taken.  A player can only join a game that has started if it was recovered
+     * and the seat with their name is waiting for them.
+     */
+    public synchronized RemotePlayer join(String name, ZilchServer.Connection connection) throws ZilchException {
+        if (closed)
+            return null;
+        if (started) {
+            for (Player seat : seats)
+                if (seat instanceof RemotePlayer && seat.getName().equals(name) && !seat.hasQuit() &&
+                        ((RemotePlayer)seat).getConnection() == null) {
+                    broadcast("REJOINED " + name);
+                    ((RemotePlayer)seat).reconnect(connection);
+                    return (RemotePlayer)seat;
+                }
+            throw new ZilchException("Table " + id + " has already started.");
+        }
+        if (seats.size() == MAX_SEATS)
+            throw new ZilchException("Table " + id + " is full.");
+        for (Player seat : seats)
+            if (seat.getName().equals(name))
+                throw new ZilchException("Name " + name + " is taken at table " + id + ".");
+        RemotePlayer player = new RemotePlayer(name, connection);
+        player.setTurnListener(this);
+        seats.add(player);
+        broadcast("JOINED " + name + " " + seats.size());
+        return player;
+    } // end join
+
+    /**
+     * Removes a remote player who has left.  Before the game starts the seat is
+     * freed, and a table left empty is closed.
+     * @param player The player who has left.
+     */
+    public void leave(RemotePlayer player) {
+        player.quit();
+        synchronized (this) {
+            if (!started) {
+                seats.remove(player);
+                if (seats.isEmpty()) {
+                    closed = true;
+                    server.removeTable(id, this);
+                }
+                return;
+            }
+        } // end synchronized
+        // The AI players leave with the last remote player, which ends the game.
+        if (!hasRemotePlayers())
+            for (Player seat : seats)
+                seat.quit();
+    } // end leave
+
+    /**
+     * Starts the game, after filling the supplied number of seats with AI players.
+     * @param bots The number of AI players to add.
+     * @throws ZilchException If the game has already started, or there are too many
+     * players or too few.
+     */
+    public void start(int bots) throws ZilchException {
+        ZilchGame game;
+        synchronized (this) {
+            if (started)
+                throw new ZilchException("Table " + id + " has already started.");
+            if (bots < 0 || seats.size() + bots > MAX_SEATS)
+                throw new ZilchException("Too many players for table " + id + ".");
+            if (seats.size() + bots < 2)
+                throw new ZilchException("Table " + id + " needs at least two players.");
+            List<Player> players = new ArrayList<>(seats);
+            for (int i = 1; i <= bots; i++)
+                players.add(new AIPlayer("Bot" + i));
+            game = new ZilchGame(players, gameLimit, new SplittableRandom());
+            if (server.getJournal() != null) {
+                try {
+                    recorder = server.getJournal().record(id, game, this);
+                } catch (IOException e) {
+                    throw new ZilchException("Cannot record the game at table " + id + ": " + e.getMessage());
+                } // end try/catch
+            }
+            seats = players;
+            started = true;
+        } // end synchronized
+        play(game);
+    } // end start
+
+    // Seats the players of a game recovered from the server's journal and carries
+    // on playing it.  Remote players have no connection until they join again, and
+    // any other seats are taken by AI players.  A game with no remote players left
+    // is abandoned.
+    void recover(GameReplay replay) throws ZilchException {
+        ZilchGame game;
+        synchronized (this) {
+            List<Player> players = new ArrayList<>();
+            for (int seat = 0; seat < replay.getGame().getPlayers().size(); seat++) {
+                String name = replay.getGame().getPlayers().get(seat).getName();
+                if (replay.isRemoteSeat(seat))
+                    players.add(new RemotePlayer(name, null));
+                else
+                    players.add(new AIPlayer(name));
+            }
+            game = replay.resume(players);
+            recorder = server.getJournal().resume(replay, game, this);
+            seats = players;
+            started = true;
+        } // end synchronized
+        play(game);
+        if (!hasRemotePlayers())
+            for (Player seat : seats)
+                seat.quit();
+    } // end recover
+
+    // Plays a started game on the server's scheduler, and closes the table once it
+    // is over.  The remote players are unseated before they are told the result, so
+    // they can join another table as soon as they hear the game is over.
+    private void play(ZilchGame game) {
+        for (Player seat : seats)
+            seat.setTurnListener(recorder != null ? recorder : this);
+        broadcast("START");
+        server.getScheduler().play(game).whenComplete((winner, error) -> {
+            synchronized (this) {
+                closed = true;
+            }
+            for (Player seat : seats)
+                if (seat instanceof RemotePlayer && ((RemotePlayer)seat).getConnection() != null)
+                    ((RemotePlayer)seat).getConnection().unseat((RemotePlayer)seat);
+            if (winner != null)
+                broadcast("WIN " + winner.getName() + " " + winner.getScore() + " " + winner.getRollCount());
+            else
+                broadcast("ABANDONED");
+            if (recorder != null) {
+                try {
+                    recorder.finish(winner);
+                } catch (IOException e) {
+                    System.err.println("Cannot record the end of the game at table " + id + ": " + e.getMessage());
+                } // end try/catch
+            }
+            if (winner != null && server.getStats() != null) {
+                try {
+                    server.getStats().recordGame(seats, winner);
+                } catch (IOException e) {
+                    System.err.println("Cannot record the statistics of the game at table " + id + ": " +
+                            e.getMessage());
+                } // end try/catch
+            }
+            server.removeTable(id, this);
+        });
+    } // end play
+
+    // Returns true if at least one remote player has not quit.
+    private boolean hasRemotePlayers() {
+        for (Player seat : seats)
+            if (seat instanceof RemotePlayer && !seat.hasQuit())
+                return true;
+        return false;
+    } // end hasRemotePlayers
+
+    // Sends a line to every remote player still at the table.
+    private void broadcast(String line) {
+        List<Player> players;
+        synchronized (this) {
+            players = new ArrayList<>(seats);
+        }
+        for (Player seat : players)
+            if (seat instanceof RemotePlayer && !seat.hasQuit())
+                ((RemotePlayer)seat).send(line);
+    } // end broadcast
+
+    /**
+     * Returns the name of the table.
+     * @return The table's name.
+     */
+    public String getId() {
+        return id;
+    } // end getId
+
+    // Use the Javadoc comments from TurnListener
+    public void rolling(Player player, int numDice, int rollNumber) {
+        broadcast("ROLL " + player.getName() + " " + numDice);
+    } // end rolling
+
+    public void scored(Player player, ScoreResult result) {
+        broadcast("SCORE " + player.getName() + " " + result.getScore() + " " +
+                result.getScoreDescription().replace('\n', ' '));
+    } // end scored
+
+    public void zilch(Player player, int zilchCount) {
+        broadcast("ZILCH " + player.getName() + " " + zilchCount);
+    } // end zilch
+
+    public void penalty(Player player) {
+        broadcast("PENALTY " + player.getName());
+    } // end penalty
+
+    public void freeRoll(Player player) {
+        broadcast("FREE " + player.getName());
+    } // end freeRoll
+
+    public void mustRoll(Player player, int turnScore) {
+        broadcast("MUST " + player.getName() + " " + turnScore);
+    } // end mustRoll
+
+    public void choosing(Player player, int turnScore, int diceAvailable) {
+        broadcast("CHOOSING " + player.getName() + " " + turnScore + " " + diceAvailable);
+    } // end choosing
+
+    public void rollAgain(Player player) {
+        broadcast("ROLLAGAIN " + player.getName());
+    } // end rollAgain
+
+    public void bank(Player player, int turnScore) {
+        broadcast("BANK " + player.getName() + " " + turnScore);
+    } // end bank
+
+    public void quit(Player player) {
+        broadcast("QUIT " + player.getName());
+    } // end quit
+
+    public void turnOver(Player player) {
+        broadcast("STATUS " + player.getName() + " " + player.getScore() + " " + player.getZilchCount());
+    } // end turnOver
+
+} // end ServerTable class
@@ -0,0 +1,388 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongFunction;
+
+/**
+ * Plays many complete games of Zilch between two AI strategies without any console
+ * input or output, spread over all the available processors.  Used to compare the
+ * strength of different AI players.
+ *
+ * Every random number in a simulation comes from its master seed.  Each game has
+ * its own seed, calculated from the master seed and the number of the game, which
+ * seeds the dice of both players and the choice of who goes first.  A simulation
+ * therefore gives the same results from the same seed however many processors play
+ * it and in whatever order its games are played, and any one of its games can be
+ * played again on its own with replayGame.
+ *
+ * To tell apart two strategies that are close in strength, runPaired plays the
+ * games in pairs with common random numbers.  Both games of a pair are played with
+ * the same dice for each seat, roll for roll, and the same seat going first, with
+ * the strategies swapping seats for the second game.  Most of the luck of the dice
+ * cancels out within a pair, so far fewer games are needed to measure the
+ * difference between the strategies to the same precision.
+ */
+public class Simulation {
+
+    // The number of games a single task plays before the work is not split further.
+    private static final long GAMES_PER_TASK = 1024;
+    // The number of pairs runPaired plays before checking whether it can stop.  It
+    // does not depend on the number of processors, so neither does when it stops.
+    private static final long PAIRS_PER_BATCH = 16 * GAMES_PER_TASK;
+
+    private LongFunction<? extends Player> first;
+    private LongFunction<? extends Player> second;
+    private int gameLimit;
+    private RuleSet rules = RuleSet.STANDARD;
+    private TurnExport export;
+    private PlayerStatsStore stats;
+
+    /**
+     * The constructor accepts a factory for each of the two strategies and the game
+     * limit.  A factory is called with a seed and must return a new player that takes
+     * its turns without needing any input from the user.
+     * @param first Creates the first player for each game.
+     * @param second Creates the second player for each game.
+     * @param gameLimit Once a player gets over this limit the game ends after every
+     * other player has had one more turn.
+     * @throws ZilchException If either factory is null, or the gameLimit is illegal.
+     */
+    public Simulation(LongFunction<? extends Player> first, LongFunction<? extends Player> second,
+                      int gameLimit) throws ZilchException {
+        if (first == null || second == null)
+            throw new ZilchException("Player strategy not defined!");
+        if (gameLimit < 300 || gameLimit > 100000)
+            throw new ZilchException("Game limit: " + gameLimit + " not legal (Between 300 and 100000).");
+        this.first = first;
+        this.second = second;
+        this.gameLimit = gameLimit;
+    } // end constructor
+
+    /**
+     * Sets the rules the games played by run are played under.  By default they are
+     * the standard rules.
+     * @param rules The rules.
+     * @throws ZilchException If the rules are null.
+     */
+    public void setRules(RuleSet rules) throws ZilchException {
+        if (rules == null)
+            throw new ZilchException("Rules not defined!");
+        this.rules = rules;
+    } // end setRules
+
+    /**
+     * Sets an export that every roll of the games played by run is written to.
+     * @param export The export, or null to play without exporting.
+     */
+    public void setExport(TurnExport export) {
+        this.export = export;
+    } // end setExport
+
+    /**
+     * Sets a store that every game played by run is recorded in, under the names the
+     * factories give the players.
+     * @param stats The store, or null to play without recording statistics.
+     */
+    public void setStats(PlayerStatsStore stats) {
+        this.stats = stats;
+    } // end setStats
+
+    /**
+     * Plays the supplied number of games using the common fork-join pool.
+     * @param numGames The number of games to play.
+     * @param seed The master seed from which every game's random numbers are derived.
+     * @return The aggregated results of all the games.
+     */
+    public SimulationResult run(long numGames, long seed) {
+        return ForkJoinPool.commonPool().invoke(new GameTask(0, numGames, seed));
+    } // end run
+
+    /**
+     * Plays pairs of games with common random numbers using the common fork-join
+     * pool, until the win rate of the first strategy is known to the precision asked
+     * for or the most pairs allowed have been played.  The pairs are played in
+     * batches and the precision is checked after each batch.
+     * @param precision Play stops once the 95% confidence interval of the win rate
+     * is no wider than this either side, such as 0.005, or 0 to play every pair.
+     * @param maxPairs The most pairs to play.
+     * @param seed The master seed from which every pair's random numbers are derived.
+     * @return The results of all the pairs.
+     * @throws ZilchException If the precision is negative or maxPairs is not
+     * positive.
+     */
+    public PairedResult runPaired(double precision, long maxPairs, long seed) throws ZilchException {
+        if (!(precision >= 0 && precision < 0.5))
+            throw new ZilchException("Precision: " + precision + " not legal (Between 0 and 0.5).");
+        if (maxPairs < 1)
+            throw new ZilchException("Maximum pairs: " + maxPairs + " not legal.");
+        PairedResult result = new PairedResult();
+        while (result.getPairs() < maxPairs) {
+            long from = result.getPairs();
+            long to = Math.min(from + PAIRS_PER_BATCH, maxPairs);
+            result.merge(ForkJoinPool.commonPool().invoke(new PairTask(from, to, seed)));
+            if (result.getHalfWidth() <= precision)
+                break;
+        }
+        return result;
+    } // end runPaired
+
+    /**
+     * Returns the seed of one game of a simulation.
+     * @param seed The master seed of the simulation.
+     * @param game The number of the game, counting from 0.
+     * @return The seed from which all of the game's random numbers are derived.
+     */
+    // The SplitMix64 finaliser of the master seed plus a multiple of the golden ratio
+    // for each game, which is how SplittableRandom spaces the seeds it hands out.
+    public static long gameSeed(long seed, long game) {
+        long z = seed + (game + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    } // end gameSeed
+
+    /**
+     * Plays one game of a simulation again, exactly as run played it, with every
+     * turn reported to a listener, such as a ConsoleTurnListener to show it.
+     * @param seed The master seed of the simulation.
+     * @param game The number of the game, counting from 0.
+     * @param listener The turn listener of both players.
+     * @return The winner.
+     */
+    public Player replayGame(long seed, long game, TurnListener listener) {
+        SplittableRandom random = new SplittableRandom(gameSeed(seed, game));
+        Player first = this.first.apply(random.nextLong());
+        Player second = this.second.apply(random.nextLong());
+        return play(random, first, second, listener);
+    } // end replayGame
+
+    // Plays one game of the simulation with the supplied master seed and records the
+    // result.  The rolls are written to the sink, if there is one, and the game to
+    // the statistics store, if there is one.
+    void playGame(long seed, long game, SimulationResult result, TurnExport.Sink sink) {
+        SplittableRandom random = new SplittableRandom(gameSeed(seed, game));
+        Player first = this.first.apply(random.nextLong());
+        Player second = this.second.apply(random.nextLong());
+        TurnListener listener = TurnListener.NONE;
+        if (sink != null) {
+            sink.startGame(game, first, second);
+            listener = sink;
+        }
+        Player winner = play(random, first, second, listener);
+        result.addGame(winner == first ? 0 : 1, first, second);
+        if (stats != null) {
+            try {
+                stats.recordGame(List.of(first, second), winner);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } // end try/catch
+        }
+    } // end playGame
+
+    // Plays one pair of games with the supplied master seed and records the result.
+    // Each seat has its own IndexedDice seed, used in both games, and the games
+    // share the seed that picks the first seat.
+    void playPair(long seed, long pair, PairedResult result) {
+        SplittableRandom random = new SplittableRandom(gameSeed(seed, pair));
+        long[] seatSeeds = {random.nextLong(), random.nextLong()};
+        long firstSeed = random.nextLong();
+        int wins = 0;
+        for (int game = 0; game < 2; game++) {
+            // The first strategy sits in seat game, and the second in the other seat.
+            Player[] seats = new Player[2];
+            seats[game] = first.apply(seatSeeds[game]);
+            seats[1 - game] = second.apply(seatSeeds[1 - game]);
+            for (int seat = 0; seat < 2; seat++)
+                seats[seat].setDice(new IndexedDice(seatSeeds[seat]));
+            Player winner = play(new SplittableRandom(firstSeed), seats[0], seats[1], TurnListener.NONE);
+            if (winner == seats[game])
+                wins++;
+        }
+        result.addPair(wins);
+    } // end playPair
+
+    // Plays a game with ZilchGame and returns the winner.  The game's random number
+    // generator is left to choose which player goes first.
+    private Player play(SplittableRandom random, Player first, Player second, TurnListener listener) {
+        first.setTurnListener(listener);
+        second.setTurnListener(listener);
+        try {
+            return new ZilchGame(List.of(first, second), gameLimit, random, rules).play();
+        } catch (ZilchException e) {
+            // The game limit was checked by the constructor.
+            throw new IllegalStateException(e);
+        } // end try/catch
+    } // end play
+
+    // Plays a range of games, splitting the range in half until it is small enough.
+    // Every game is seeded from its number, so how the range is split and which
+    // thread plays it does not change the result.  Each task has its own sink if the
+    // games are exported.
+    private class GameTask extends RecursiveTask<SimulationResult> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        private final long to;
+        private final long seed;
+
+        GameTask(long from, long to, long seed) {
+            this.from = from;
+            this.to = to;
+            this.seed = seed;
+        } // end Constructor
+
+        protected SimulationResult compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                SimulationResult result = new SimulationResult();
+                TurnExport.Sink sink = export == null ? null : export.newSink();
+                for (long game = from; game < to; game++)
+                    playGame(seed, game, result, sink);
+                if (sink != null)
+                    sink.close();
+                return result;
+            }
+            long middle = (from + to) >>> 1;
+            GameTask left = new GameTask(from, middle, seed);
+            left.fork();
+            SimulationResult result = new GameTask(middle, to, seed).compute();
+            result.merge(left.join());
+            return result;
+        } // end compute
+
+    } // end GameTask class
+
+    // Plays a range of pairs in the same way as GameTask plays a range of games.
+    private class PairTask extends RecursiveTask<PairedResult> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        private final long to;
+        private final long seed;
+
+        PairTask(long from, long to, long seed) {
+            this.from = from;
+            this.to = to;
+            this.seed = seed;
+        } // end Constructor
+
+        protected PairedResult compute() {
+            if (to - from <= GAMES_PER_TASK / 2) {
+                PairedResult result = new PairedResult();
+                for (long pair = from; pair < to; pair++)
+                    playPair(seed, pair, result);
+                return result;
+            }
+            long middle = (from + to) >>> 1;
+            PairTask left = new PairTask(from, middle, seed);
+            left.fork();
+            PairedResult result = new PairTask(middle, to, seed).compute();
+            result.merge(left.join());
+            return result;
+        } // end compute
+
+    } // end PairTask class
+
+    // Returns a factory for the strategy named on the command line: either a bank
+    // threshold for an AIPlayer, "optimal" for a PolicyAIPlayer following the
+    // policy calculated by StrategySolver, "table:" followed by the name of a
+    // policy file written by PolicyFileBuilder, or "mcts:" followed by the number of
+    // games a MonteCarloAIPlayer searches on one thread for each choice.  The
+    // optimal policy is solved for the rules the games are played under.  A policy
+    // file can only be used with the rules and game limit it was built for.
+    static LongFunction<? extends Player> strategy(String arg, String name, int gameLimit, RuleSet rules)
+            throws ZilchException {
+        if (arg.startsWith("mcts:")) {
+            long games = Long.parseLong(arg.substring(5));
+            new MonteCarloAIPlayer(name, gameLimit, 1000, games, 1, 0);
+            return seed -> {
+                try {
+                    return new MonteCarloAIPlayer(name, gameLimit, 1000, games, 1, seed);
+                } catch (ZilchException e) {
+                    // The arguments were checked by the first player made above.
+                    throw new IllegalStateException(e);
+                } // end try/catch
+            };
+        }
+        if (arg.startsWith("table:")) {
+            MappedPolicyTable policy;
+            try {
+                policy = new MappedPolicyTable(new File(arg.substring(6)), rules);
+            } catch (IOException e) {
+                throw new ZilchException("Cannot load policy: " + e.getMessage());
+            } // end try/catch
+            if (policy.getGameLimit() != gameLimit)
+                throw new ZilchException("Policy file " + arg.substring(6) + " is for a game limit of " +
+                        policy.getGameLimit() + ", not " + gameLimit + ".");
+            return seed -> new PolicyAIPlayer(name, policy, seed);
+        }
+        if (arg.equalsIgnoreCase("optimal")) {
+            StrategySolver solver = new StrategySolver(rules);
+            solver.solve();
+            PolicyTable policy = solver.buildPolicy();
+            return seed -> new PolicyAIPlayer(name, policy, seed);
+        }
+        int threshold = Integer.parseInt(arg);
+        return seed -> new AIPlayer(name, threshold, seed);
+    } // end strategy
+
+    // Plays a batch of games between two AI players from the command line.  The
+    // optional arguments are the number of games, or "paired:" followed by a
+    // precision to play pairs of games with common random numbers until the win rate
+    // is known to that precision, at most a million pairs, the game limit, the strategy of
+    // each AI player, a file to export every roll to, or - for none, a file of house
+    // rules written for RuleSet, or - for the standard rules, the master seed, and the
+    // number of one game to replay on the console instead of playing the batch.  The
+    // seed is shown so that the run can be repeated.  The metrics are shown at the
+    // end if they are enabled.
+    public static void main(String[] args) {
+        boolean paired = args.length > 0 && args[0].startsWith("paired:");
+        long numGames = args.length > 0 && !paired ? Long.parseLong(args[0]) : 1000000;
+        int gameLimit = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        String strategy1 = args.length > 2 ? args[2] : "1000";
+        String strategy2 = args.length > 3 ? args[3] : "1000";
+        long seed = args.length > 6 ? Long.parseLong(args[6]) : System.nanoTime();
+        try {
+            RuleSet rules = args.length > 5 && !args[5].equals("-") ? RuleSet.load(new File(args[5])) :
+                    RuleSet.STANDARD;
+            Simulation simulation = new Simulation(strategy(strategy1, "Bot 1", gameLimit, rules),
+                    strategy(strategy2, "Bot 2", gameLimit, rules), gameLimit);
+            simulation.setRules(rules);
+            if (args.length > 7) {
+                long game = Long.parseLong(args[7]);
+                Player winner = simulation.replayGame(seed, game, new ConsoleTurnListener());
+                System.out.println("\n" + winner.getName() + " wins game " + game + " of seed " + seed + ".");
+                return;
+            }
+            if (paired) {
+                long start = System.nanoTime();
+                System.out.println("Seed: " + seed);
+                PairedResult result = simulation.runPaired(Double.parseDouble(args[0].substring(7)), numGames, seed);
+                System.out.println(result);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%.0f games per second%n", 2 * result.getPairs() / seconds);
+                return;
+            }
+            if (args.length > 4 && !args[4].equals("-"))
+                simulation.setExport(new TurnExport(new File(args[4])));
+            long start = System.nanoTime();
+            System.out.println("Seed: " + seed);
+            SimulationResult result = simulation.run(numGames, seed);
+            if (simulation.export != null)
+                simulation.export.close();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.println(result);
+            System.out.printf("%.0f games per second%n", numGames / seconds);
+            if (ZilchMetrics.ENABLED)
+                System.out.print(ZilchMetrics.snapshot());
+        } catch (ZilchException | IOException e) {
+            System.err.println("Cannot run simulation: " + e.getMessage());
+        } // end try/catch
+    } // end main method
+
+} // end Simulation class
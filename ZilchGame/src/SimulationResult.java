@@ -0,0 +1,99 @@
+/**
+ * The aggregated results of a batch of simulated Zilch games between two players.
+ * Results from separate batches can be merged, so each worker thread can keep its
+ * own result and combine them when all the games are finished.
+ */
+public class SimulationResult {
+
+    private long games;
+    private long[] wins = new long[2];
+    private long turns;
+    private long rolls;
+    private long penalties;
+
+    // Records a finished game.  The winner is the seat (0 or 1) of the player with
+    // the higher bank after the final turn.
+    void addGame(int winner, Player first, Player second) {
+        games++;
+        wins[winner]++;
+        turns += first.getTurnCount() + second.getTurnCount();
+        rolls += first.getRollCount() + second.getRollCount();
+        penalties += first.getPenaltyCount() + second.getPenaltyCount();
+    } // end addGame
+
+    // Adds the totals of another result to this one.
+    void merge(SimulationResult other) {
+        games += other.games;
+        wins[0] += other.wins[0];
+        wins[1] += other.wins[1];
+        turns += other.turns;
+        rolls += other.rolls;
+        penalties += other.penalties;
+    } // end merge
+
+    /**
+     * Returns the number of games played.
+     * @return The number of games played.
+     */
+    public long getGames() {
+        return games;
+    } // end getGames
+
+    /**
+     * Returns the number of games won by a player.
+     * @param seat 0 for the first strategy, 1 for the second.
+     * @return The number of games won by that player.
+     */
+    public long getWins(int seat) {
+        return wins[seat];
+    } // end getWins
+
+    /**
+     * Returns the fraction of games won by a player.
+     * @param seat 0 for the first strategy, 1 for the second.
+     * @return The win rate of that player, between 0 and 1.
+     */
+    public double getWinRate(int seat) {
+        return games == 0 ? 0 : (double)wins[seat] / games;
+    } // end getWinRate
+
+    /**
+     * Returns the mean number of turns taken by both players in a game.
+     * @return The mean number of turns per game.
+     */
+    public double getMeanTurns() {
+        return games == 0 ? 0 : (double)turns / games;
+    } // end getMeanTurns
+
+    /**
+     * Returns the mean number of dice rolls made by both players in a game.
+     * @return The mean number of rolls per game.
+     */
+    public double getMeanRolls() {
+        return games == 0 ? 0 : (double)rolls / games;
+    } // end getMeanRolls
+
+    /**
+     * Returns how often a three zilch penalty was applied, per turn played.
+     * @return The number of penalties divided by the number of turns.
+     */
+    public double getPenaltyFrequency() {
+        return turns == 0 ? 0 : (double)penalties / turns;
+    } // end getPenaltyFrequency
+
+    /**
+     * Returns a summary of the results.
+     * @return A multi-line summary of the results.
+     */
+    public String toString() {
+        return String.format("Games played: %d%n" +
+                        "Player 1 wins: %d (%.2f%%)%n" +
+                        "Player 2 wins: %d (%.2f%%)%n" +
+                        "Mean turns per game: %.2f%n" +
+                        "Mean rolls per game: %.2f%n" +
+                        "Three zilch penalties per turn: %.4f",
+                games, wins[0], 100 * getWinRate(0), wins[1], 100 * getWinRate(1),
+                getMeanTurns(), getMeanRolls(), getPenaltyFrequency());
+    } // end toString
+
+} // end SimulationResult class
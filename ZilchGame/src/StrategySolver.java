@@ -0,0 +1,194 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.stream.IntStream;
+
+/**
+ * Computes the roll or bank choice that maximises the expected number of points
+ * banked per turn of Zilch over a long game, for every state a player can be in
+ * when making the choice.  The state is the player's zilch count, the number of
+ * dice available and the turn score.
+ *
+ * The solver plays by a RuleSet the same way as Player.takeTurn: a roll is scored
+ * under the rules, the player must roll again while the turn score is under the
+ * minimum bank, a free roll must be taken, a zilch loses the turn score and the
+ * rules' number of zilches in a row costs the zilch penalty.  A zilch that does
+ * not cost the penalty yet still brings it closer, and is valued at what the
+ * higher zilch count is expected to cost in later turns.
+ */
+// Every scoring roll increases the turn score, so within a turn the value of a
+// state only depends on states with a higher turn score.  Working down from the
+// highest turn score therefore finds the values of a turn in a single sweep.  The
+// chances of each roll come from the rules' distributions.  Turn scores are
+// multiples of 50, which is the unit used for the table index.  Above
+// MAX_TURN_SCORE the player is assumed to bank.
+//
+// Banking or a penalty starts the next turn with a zilch count of zero, and any
+// other zilch starts it with a count one higher.  The cost of each count is its
+// relative value in the average reward sense: how much less a player starting a
+// turn with that count banks over the rest of the game than one starting with a
+// count of zero, which is the difference between the values of a new turn with
+// the two counts.  The turn sweep and these relative values depend on each other,
+// so the sweep is repeated with the relative values from the last one until they
+// settle, which takes a few dozen sweeps.
+public class StrategySolver {
+
+    /**
+     * The highest turn score for which a choice is calculated.
+     */
+    public static final int MAX_TURN_SCORE = 20000;
+
+    private static final int UNIT = 50;
+    private static final int LEVELS = MAX_TURN_SCORE / UNIT + 1;
+    // The number of zilch counts a PolicyTable holds.
+    private static final int ZILCH_COUNTS = 3;
+    // The sweeps stop once no relative value changes by more than this many points.
+    private static final double TOLERANCE = 1e-9;
+    private static final int MAX_SWEEPS = 1000;
+
+    private final RuleSet rules;
+    // The expected points banked if the player rolls, less the cost of the zilch
+    // count the next turn starts with, by zilch count, dice available and turn
+    // score level.
+    private final double[][][] rollValue = new double[ZILCH_COUNTS][7][LEVELS];
+    // The cost of starting a turn with each zilch count, as a negative number of
+    // points.  The cost of a count of zero is zero.
+    private final double[] countValue = new double[ZILCH_COUNTS];
+
+    /**
+     * The constructor for a solver of the standard rules.  Call solve to calculate
+     * the choices.
+     */
+    public StrategySolver() {
+        rules = RuleSet.STANDARD;
+    } // end Constructor
+
+    /**
+     * The constructor for a solver of the supplied rules.  Call solve to calculate
+     * the choices.
+     * @param rules The rules the turns are played under.
+     * @throws ZilchException If the rules are null, or penalise more than three
+     * zilches in a row, which is more zilch counts than a PolicyTable holds.
+     */
+    public StrategySolver(RuleSet rules) throws ZilchException {
+        if (rules == null)
+            throw new ZilchException("Rules not defined!");
+        if (rules.getPenaltyZilches() > ZILCH_COUNTS)
+            throw new ZilchException("Rule penalty.zilches: " + rules.getPenaltyZilches() +
+                    " not supported by the solver (Between 1 and " + ZILCH_COUNTS + ").");
+        this.rules = rules;
+    } // end rules Constructor
+
+    /**
+     * Calculates the expected value of rolling in every state.  In each sweep the
+     * zilch counts are independent of each other and are solved in parallel.
+     */
+    public void solve() {
+        int zilchCounts = rules.getPenaltyZilches();
+        for (int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+            IntStream.range(0, zilchCounts).parallel().forEach(this::solveZilchCount);
+            double change = 0;
+            for (int zilchCount = 1; zilchCount < zilchCounts; zilchCount++) {
+                double value = rollValue[zilchCount][6][0] - rollValue[0][6][0];
+                change = Math.max(change, Math.abs(value - countValue[zilchCount]));
+                countValue[zilchCount] = value;
+            }
+            if (change <= TOLERANCE)
+                break;
+        }
+    } // end solve
+
+    // Fills in the roll values for one zilch count, from the highest turn score down.
+    private void solveZilchCount(int zilchCount) {
+        double zilchValue = zilchCount == rules.getPenaltyZilches() - 1 ? -rules.getZilchPenalty() :
+                countValue[zilchCount + 1];
+        for (int level = LEVELS - 1; level >= 0; level--) {
+            for (int numDice = 1; numDice <= 6; numDice++) {
+                RollDistribution outcomes = rules.getDistribution(numDice);
+                double value = 0;
+                for (int i = 0; i < outcomes.size(); i++) {
+                    double outcomeValue;
+                    int score = outcomes.getScore(i);
+                    if (score == 0)
+                        outcomeValue = zilchValue;
+                    else {
+                        // No dice left also earns a free roll in Player.takeTurn.
+                        int nextDice = outcomes.getRollAgain(i) ? 0 : outcomes.getDiceLeft(i);
+                        outcomeValue = valueAfterRoll(zilchCount, nextDice, level * UNIT + score);
+                    }
+                    value += outcomes.getProbability(i) * outcomeValue;
+                }
+                rollValue[zilchCount][numDice][level] = value;
+            } // end for
+        } // end for
+    } // end solveZilchCount
+
+    // Returns the expected points banked after a scoring roll, playing the best
+    // choice from then on.  A next dice count of zero means the player gets a free
+    // roll of all six dice.
+    private double valueAfterRoll(int zilchCount, int nextDice, int turnScore) {
+        if (turnScore > MAX_TURN_SCORE)
+            return turnScore;
+        double roll = rollValue[zilchCount][nextDice == 0 ? 6 : nextDice][turnScore / UNIT];
+        if (nextDice == 0 || turnScore < rules.getMinimumBank())
+            return roll;
+        return Math.max(turnScore, roll);
+    } // end valueAfterRoll
+
+    /**
+     * Returns the expected number of points that will be banked if the player rolls
+     * and then plays the best choice for the rest of the turn, with a zilch that
+     * does not cost the penalty counted as what it is expected to cost later.
+     * @param zilchCount The number of zilches the player has rolled in a row (0 to 2).
+     * @param diceAvailable The number of dice available to roll (1 to 6).
+     * @param turnScore The current turn score.
+     * @return The expected points banked by rolling.
+     */
+    public double getRollValue(int zilchCount, int diceAvailable, int turnScore) {
+        if (turnScore > MAX_TURN_SCORE)
+            return turnScore;
+        return rollValue[zilchCount][diceAvailable][turnScore / UNIT];
+    } // end getRollValue
+
+    /**
+     * Returns true if banking is the better choice in the supplied state.
+     * @param zilchCount The number of zilches the player has rolled in a row (0 to 2).
+     * @param diceAvailable The number of dice available to roll (1 to 6).
+     * @param turnScore The current turn score.
+     * @return True if the player should bank, false if they should roll.
+     */
+    public boolean shouldBank(int zilchCount, int diceAvailable, int turnScore) {
+        return turnScore >= rules.getMinimumBank() && turnScore >= getRollValue(zilchCount, diceAvailable, turnScore);
+    } // end shouldBank
+
+    /**
+     * Builds a policy table holding the best choice for every state.
+     * @return The policy table.
+     */
+    public PolicyTable buildPolicy() {
+        PolicyTable policy = new PolicyTable(MAX_TURN_SCORE, rules);
+        for (int zilchCount = 0; zilchCount < rules.getPenaltyZilches(); zilchCount++)
+            for (int diceAvailable = 1; diceAvailable <= 6; diceAvailable++)
+                for (int turnScore = 0; turnScore <= MAX_TURN_SCORE; turnScore += UNIT)
+                    policy.setBank(zilchCount, diceAvailable, turnScore,
+                            shouldBank(zilchCount, diceAvailable, turnScore));
+        return policy;
+    } // end buildPolicy
+
+    // Solves the game and saves the policy table to the file named on the command
+    // line.  The optional second argument is a file of house rules written for
+    // RuleSet; the standard rules are used without it.
+    public static void main(String[] args) {
+        String fileName = args.length > 0 ? args[0] : "zilch-policy.bin";
+        try {
+            StrategySolver solver = args.length > 1 ? new StrategySolver(RuleSet.load(new File(args[1]))) :
+                    new StrategySolver();
+            solver.solve();
+            System.out.printf("Expected points for a new turn: %.1f%n", solver.getRollValue(0, 6, 0));
+            solver.buildPolicy().save(new File(fileName));
+            System.out.println("Policy saved to " + fileName);
+        } catch (ZilchException | IOException e) {
+            System.err.println("Cannot save policy: " + e.getMessage());
+        } // end try/catch
+    } // end main method
+
+} // end StrategySolver class
@@ -0,0 +1,296 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.LongFunction;
+
+/**
+ * Rates AI strategies for the game of Zilch against each other.  Strategies are
+ * registered by name and paired either round robin or in Swiss rounds, and every
+ * pairing plays headless games with Simulation on all processors until the result
+ * is known well enough.  The ratings are Elo ratings fitted to every game played.
+ *
+ * A pairing plays its games in batches and stops after the first batch at which
+ * either the difference between the strategies is significant, or the win rate is
+ * known to within the precision asked for, or the most games allowed have been
+ * played.  The cost of a tournament therefore depends on how close the strategies
+ * are rather than on a fixed number of games or a time limit.
+ */
+// Significance is tested with a mixture sequential probability ratio test of a win
+// rate of one half, using a normal mixture whose spread is the precision.  Unlike a
+// fixed sample test it can be checked after every batch without raising the chance
+// of a false result above the significance level.
+//
+// The ratings are the Bradley-Terry strengths of the strategies, fitted by the
+// minorise-maximise iteration and shown on the Elo scale with a mean of 1500.  Each
+// pairing counts one extra drawn game, so a strategy that won or lost every game
+// still gets a finite rating.
+public class Tournament {
+
+    private static final int FIT_ITERATIONS = 1000;
+    // The games played between checks of a pairing.  It does not depend on the
+    // number of processors, so a seeded tournament gives the same results anywhere.
+    private static final long BATCH_GAMES = 16 * 1024;
+
+    private final int gameLimit;
+    private final double precision;
+    private final double alpha;
+    private final long maxGames;
+    private final Map<String, LongFunction<? extends Player>> strategies = new LinkedHashMap<>();
+    private final List<MatchResult> matches = new ArrayList<>();
+    private RuleSet rules = RuleSet.STANDARD;
+
+    /**
+     * The constructor sets how the games are played and when a pairing stops.
+     * @param gameLimit The game limit of every game.
+     * @param precision A pairing stops once the 95% confidence interval of its win
+     * rate is no wider than this either side, such as 0.01.
+     * @param alpha A pairing stops once the difference between the strategies is
+     * significant at this level, such as 0.05.
+     * @param maxGames The most games a pairing plays.
+     * @throws ZilchException If the gameLimit is illegal or any other value is out of
+     * range.
+     */
+    public Tournament(int gameLimit, double precision, double alpha, long maxGames) throws ZilchException {
+        if (gameLimit < 300 || gameLimit > 100000)
+            throw new ZilchException("Game limit: " + gameLimit + " not legal (Between 300 and 100000).");
+        if (!(precision > 0 && precision < 0.5))
+            throw new ZilchException("Precision: " + precision + " not legal (Between 0 and 0.5).");
+        if (!(alpha > 0 && alpha < 1))
+            throw new ZilchException("Significance level: " + alpha + " not legal (Between 0 and 1).");
+        if (maxGames < 1)
+            throw new ZilchException("Maximum games: " + maxGames + " not legal.");
+        this.gameLimit = gameLimit;
+        this.precision = precision;
+        this.alpha = alpha;
+        this.maxGames = maxGames;
+    } // end Constructor
+
+    /**
+     * Registers a strategy.
+     * @param name The name the strategy is rated under.
+     * @param factory Creates a player following the strategy from a seed.  The
+     * player must take its turns without needing any input from the user.
+     * @throws ZilchException If the name or factory is null, or the name is taken.
+     */
+    public void addStrategy(String name, LongFunction<? extends Player> factory) throws ZilchException {
+        if (name == null || factory == null)
+            throw new ZilchException("Player strategy not defined!");
+        if (strategies.containsKey(name))
+            throw new ZilchException("Strategy " + name + " is already registered.");
+        strategies.put(name, factory);
+    } // end addStrategy
+
+    /**
+     * Sets the rules every game is played under.  By default they are the standard
+     * rules.
+     * @param rules The rules.
+     * @throws ZilchException If the rules are null.
+     */
+    public void setRules(RuleSet rules) throws ZilchException {
+        if (rules == null)
+            throw new ZilchException("Rules not defined!");
+        this.rules = rules;
+    } // end setRules
+
+    /**
+     * Plays every strategy against every other once.
+     * @param seed The seed from which every game's random numbers are derived.
+     * @return The results of the pairings played.
+     * @throws ZilchException If fewer than two strategies are registered.
+     */
+    public List<MatchResult> runRoundRobin(long seed) throws ZilchException {
+        List<String> names = checkNames();
+        SplittableRandom random = new SplittableRandom(seed);
+        List<MatchResult> played = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++)
+            for (int j = i + 1; j < names.size(); j++)
+                played.add(play(names.get(i), names.get(j), random.split()));
+        return played;
+    } // end runRoundRobin
+
+    /**
+     * Plays a number of Swiss rounds.  In each round the strategies are ranked by
+     * their ratings so far and each is paired with the next strongest that it has
+     * not yet played.  With an odd number of strategies the lowest ranked one left
+     * over sits the round out.
+     * @param rounds The number of rounds.
+     * @param seed The seed from which every game's random numbers are derived.
+     * @return The results of the pairings played.
+     * @throws ZilchException If fewer than two strategies are registered.
+     */
+    public List<MatchResult> runSwiss(int rounds, long seed) throws ZilchException {
+        checkNames();
+        SplittableRandom random = new SplittableRandom(seed);
+        List<MatchResult> played = new ArrayList<>();
+        for (int round = 0; round < rounds; round++) {
+            List<String> ranked = new ArrayList<>(getRatings().keySet());
+            List<String[]> pairings = new ArrayList<>();
+            while (ranked.size() > 1) {
+                String first = ranked.remove(0);
+                int opponent = 0;
+                while (opponent < ranked.size() - 1 && hasPlayed(first, ranked.get(opponent)))
+                    opponent++;
+                pairings.add(new String[] {first, ranked.remove(opponent)});
+            }
+            for (String[] pairing : pairings)
+                played.add(play(pairing[0], pairing[1], random.split()));
+        }
+        return played;
+    } // end runSwiss
+
+    // Returns the names of the strategies, checking there are enough to pair.
+    private List<String> checkNames() throws ZilchException {
+        if (strategies.size() < 2)
+            throw new ZilchException("At least two strategies are needed!");
+        return new ArrayList<>(strategies.keySet());
+    } // end checkNames
+
+    // Returns true if two strategies have already been paired.
+    private boolean hasPlayed(String first, String second) {
+        for (MatchResult match : matches)
+            if ((match.getFirst().equals(first) && match.getSecond().equals(second)) ||
+                    (match.getFirst().equals(second) && match.getSecond().equals(first)))
+                return true;
+        return false;
+    } // end hasPlayed
+
+    // Plays batches of games between two strategies until the pairing can stop.
+    private MatchResult play(String first, String second, SplittableRandom random) throws ZilchException {
+        Simulation simulation = new Simulation(strategies.get(first), strategies.get(second), gameLimit);
+        simulation.setRules(rules);
+        MatchResult match = new MatchResult(first, second);
+        while (match.getGames() < maxGames) {
+            match.add(simulation.run(Math.min(BATCH_GAMES, maxGames - match.getGames()), random.nextLong()));
+            if (isSignificant(match)) {
+                match.setSignificant();
+                break;
+            }
+            if (match.getHalfWidth() <= precision)
+                break;
+        }
+        matches.add(match);
+        return match;
+    } // end play
+
+    // Returns true if the mixture sequential probability ratio that the win rate is
+    // not one half has reached 1 / alpha.  Each game is a trial with variance 1/4
+    // under the hypothesis of equal strategies.
+    private boolean isSignificant(MatchResult match) {
+        long n = match.getGames();
+        double variance = 0.25;
+        double spread = precision * precision;
+        double difference = match.getWinRate() - 0.5;
+        double logRatio = 0.5 * Math.log(variance / (variance + n * spread)) +
+                (double)n * n * spread * difference * difference / (2 * variance * (variance + n * spread));
+        return logRatio >= Math.log(1 / alpha);
+    } // end isSignificant
+
+    /**
+     * Returns the results of every pairing played so far.
+     * @return The pairings, in the order they finished.
+     */
+    public List<MatchResult> getMatches() {
+        return new ArrayList<>(matches);
+    } // end getMatches
+
+    /**
+     * Returns the Elo rating of every strategy, fitted to all the games played so
+     * far.
+     * @return The ratings by strategy name, from the highest to the lowest.  The
+     * ratings have a mean of 1500, and strategies that have not played are rated
+     * 1500.
+     */
+    public Map<String, Double> getRatings() {
+        List<String> names = new ArrayList<>(strategies.keySet());
+        int size = names.size();
+        double[][] games = new double[size][size];
+        double[] wins = new double[size];
+        for (MatchResult match : getMatches()) {
+            int first = names.indexOf(match.getFirst());
+            int second = names.indexOf(match.getSecond());
+            double total = match.getGames() + 1;
+            games[first][second] += total;
+            games[second][first] += total;
+            wins[first] += match.getWins(0) + 0.5;
+            wins[second] += total - match.getWins(0) - 0.5;
+        }
+        double[] strength = new double[size];
+        Arrays.fill(strength, 1);
+        for (int iteration = 0; iteration < FIT_ITERATIONS; iteration++) {
+            double[] next = new double[size];
+            for (int i = 0; i < size; i++) {
+                double sum = 0;
+                for (int j = 0; j < size; j++)
+                    if (games[i][j] > 0)
+                        sum += games[i][j] / (strength[i] + strength[j]);
+                next[i] = sum > 0 ? wins[i] / sum : strength[i];
+            }
+            strength = next;
+        }
+        double[] rating = new double[size];
+        double mean = 0;
+        for (int i = 0; i < size; i++) {
+            rating[i] = 400 * Math.log10(strength[i]);
+            mean += rating[i] / size;
+        }
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < size; i++)
+            order.add(i);
+        order.sort((a, b) -> Double.compare(rating[b], rating[a]));
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (int i : order)
+            result.put(names.get(i), rating[i] + 1500 - mean);
+        return result;
+    } // end getRatings
+
+    /**
+     * Returns the standings: every strategy with its rating, and every pairing.
+     * Significant pairings are marked with a star.
+     * @return A multi-line summary of the tournament.
+     */
+    public String toString() {
+        String out = "";
+        int rank = 1;
+        for (Map.Entry<String, Double> rating : getRatings().entrySet())
+            out += String.format("%2d. %-20s %6.0f%n", rank++, rating.getKey(), rating.getValue());
+        for (MatchResult match : getMatches())
+            out += match + String.format("%n");
+        return out;
+    } // end toString
+
+    // Runs a tournament between strategies named on the command line.  The
+    // arguments are the format, either roundrobin or swiss followed by a colon and
+    // the number of rounds, the game limit, and two or more strategies in the form
+    // used by Simulation.  Every game is played under the standard rules, to a
+    // precision of one percent with a significance level of 5% and at most one
+    // million games a pairing.
+    public static void main(String[] args) {
+        if (args.length < 4) {
+            System.err.println("Usage: java Tournament roundrobin|swiss:rounds gameLimit strategy strategy...");
+            return;
+        }
+        try {
+            int gameLimit = Integer.parseInt(args[1]);
+            Tournament tournament = new Tournament(gameLimit, 0.01, 0.05, 1000000);
+            for (int i = 2; i < args.length; i++)
+                tournament.addStrategy(args[i], Simulation.strategy(args[i], args[i], gameLimit,
+                        RuleSet.STANDARD));
+            long start = System.nanoTime();
+            if (args[0].startsWith("swiss:"))
+                tournament.runSwiss(Integer.parseInt(args[0].substring(6)), start);
+            else
+                tournament.runRoundRobin(start);
+            System.out.print(tournament);
+            long games = 0;
+            for (MatchResult match : tournament.getMatches())
+                games += match.getGames();
+            System.out.printf("%d games in %.1f seconds%n", games, (System.nanoTime() - start) / 1e9);
+        } catch (ZilchException e) {
+            System.err.println("Cannot run tournament: " + e.getMessage());
+        } // end try/catch
+    } // end main method
+
+} // end Tournament class
@@ -0,0 +1,360 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes every roll of many games of Zilch to a compressed, column-oriented file
+ * that can be read back a column at a time by TurnExportReader.  Each row describes
+ * one roll: the game, the player's seat, the turn and roll numbers, the dice rolled,
+ * the turn score before the roll, the score of the roll, the choice the player made
+ * after it, and whether it was a zilch or earned a free roll.
+ *
+ * Rows are collected by Sinks, which are turn listeners.  Each thread playing games
+ * uses its own sink, which holds at most one chunk of rows and encodes it on that
+ * thread before it is written, so many threads can export at once.
+ */
+// File layout, all values big-endian:
+//
+//     int  MAGIC
+//     int  FORMAT_VERSION
+//     chunks, each holding every column of up to CHUNK_ROWS rows
+//     footer:
+//         int  number of columns, then the name of each
+//         int  number of chunks, then for each an int row count, and a long file
+//              offset and an int length for each column
+//     long offset of the footer
+//     int  MAGIC
+//
+// Names are a short length followed by UTF-8 bytes.  The footer is written when the
+// export is closed, so a reader can find every chunk of a column without reading
+// the others.
+//
+// A column of a chunk is bit-packed: a byte that is 1 if the values are stored as
+// differences from the previous value, a byte number of bits per value, then longs
+// for the first value, the base and the scale, and the packed values.  A value is
+// base + scale * packed, or the previous value plus that for differences.  Taking out
+// the smallest value and the common factor, and storing differences for columns
+// such as the game number that rarely change, leaves a few bits a value.  General
+// purpose compression such as Deflate makes the files only slightly smaller, and
+// is many times slower than the games themselves.
+public class TurnExport implements AutoCloseable {
+
+    static final int MAGIC = 0x5A494C58;	// "ZILX"
+    static final int FORMAT_VERSION = 1;
+    static final int COLUMN_HEADER_SIZE = 26;
+
+    /**
+     * The names of the columns, in the order they are stored.
+     */
+    public static final List<String> COLUMNS = List.of("game", "seat", "turn", "roll", "dice",
+            "turnScore", "rollScore", "decision", "zilch", "freeRoll");
+
+    /**
+     * The decision of a player who had no choice after a roll.
+     */
+    public static final char NO_CHOICE = '-';
+
+    /**
+     * The largest number of rows in a chunk.
+     */
+    public static final int CHUNK_ROWS = 16384;
+
+    private final FileChannel channel;
+    private final List<long[]> chunkOffsets = new ArrayList<>();
+    private final List<int[]> chunkLengths = new ArrayList<>();
+    private final List<Integer> chunkRows = new ArrayList<>();
+    private long position;
+    private boolean closed = false;
+
+    /**
+     * Creates an export file.
+     * @param file The file to write.  Any existing file is replaced.
+     * @throws IOException If the file cannot be written.
+     */
+    public TurnExport(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(8);
+        header.putInt(MAGIC);
+        header.putInt(FORMAT_VERSION);
+        header.flip();
+        position = write(header, 0);
+    } // end Constructor
+
+    /**
+     * Returns a new sink that collects rows for this export.  A sink must only be
+     * used by one thread, and must be closed once its games are over.
+     * @return The new sink.
+     */
+    public Sink newSink() {
+        return new Sink();
+    } // end newSink
+
+    // Writes a buffer at a position in the file, and returns the position after it.
+    private long write(ByteBuffer buffer, long at) throws IOException {
+        while (buffer.hasRemaining())
+            at += channel.write(buffer, at);
+        return at;
+    } // end write
+
+    // Appends the encoded columns of a chunk and remembers where they are.
+    private synchronized void writeChunk(int rows, ByteBuffer[] columns) throws IOException {
+        if (closed)
+            throw new IOException("The export has been closed.");
+        long[] offsets = new long[columns.length];
+        int[] lengths = new int[columns.length];
+        for (int column = 0; column < columns.length; column++) {
+            offsets[column] = position;
+            lengths[column] = columns[column].remaining();
+            position = write(columns[column], position);
+        }
+        chunkOffsets.add(offsets);
+        chunkLengths.add(lengths);
+        chunkRows.add(rows);
+    } // end writeChunk
+
+    // Bit-packs the first rows values of a column into a buffer, as values or as
+    // differences, whichever needs fewer bits, and returns the buffer ready to be
+    // written.
+    static ByteBuffer encode(long[] values, int rows, ByteBuffer into) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        long minDelta = Long.MAX_VALUE;
+        long maxDelta = Long.MIN_VALUE;
+        for (int row = 0; row < rows; row++) {
+            min = Math.min(min, values[row]);
+            max = Math.max(max, values[row]);
+            if (row > 0) {
+                long delta = values[row] - values[row - 1];
+                minDelta = Math.min(minDelta, delta);
+                maxDelta = Math.max(maxDelta, delta);
+            }
+        }
+        if (rows < 2)
+            minDelta = maxDelta = 0;
+        boolean deltas = Long.compareUnsigned(maxDelta - minDelta, max - min) < 0;
+        long base = deltas ? minDelta : min;
+        long scale = 0;
+        for (int row = deltas ? 1 : 0; row < rows && scale != 1; row++) {
+            long offset = (deltas ? values[row] - values[row - 1] : values[row]) - base;
+            if (scale == 0 || Long.remainderUnsigned(offset, scale) != 0)
+                scale = gcd(scale, offset);
+        }
+        if (scale == 0)
+            scale = 1;
+        int bits = 64 - Long.numberOfLeadingZeros(Long.divideUnsigned((deltas ? maxDelta : max) - base, scale));
+        int size = COLUMN_HEADER_SIZE + ((rows * bits + 63) >>> 6) * Long.BYTES;
+        if (into.capacity() < size)
+            into = ByteBuffer.allocate(size);
+        into.clear();
+        into.put((byte)(deltas ? 1 : 0));
+        into.put((byte)bits);
+        into.putLong(rows > 0 ? values[0] : 0);
+        into.putLong(base);
+        into.putLong(scale);
+        if (bits > 0) {
+            long word = 0;
+            int used = 0;
+            for (int row = 0; row < rows; row++) {
+                long value = deltas ? (row == 0 ? base : values[row] - values[row - 1]) : values[row];
+                long packed = scale == 1 ? value - base : Long.divideUnsigned(value - base, scale);
+                word |= packed << used;
+                used += bits;
+                if (used >= 64) {
+                    into.putLong(word);
+                    used -= 64;
+                    word = used == 0 ? 0 : packed >>> (bits - used);
+                }
+            }
+            if (used > 0)
+                into.putLong(word);
+        }
+        into.flip();
+        return into;
+    } // end encode
+
+    // Returns the greatest common divisor of two numbers, treating them as unsigned.
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = Long.remainderUnsigned(a, b);
+            a = b;
+            b = t;
+        }
+        return a;
+    } // end gcd
+
+    /**
+     * Writes the footer and closes the file.  Sinks that have not been closed lose
+     * the rows they are holding.
+     * @throws IOException If the file cannot be written.
+     */
+    public synchronized void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        int size = 8 + COLUMNS.size() * 32 + chunkRows.size() * (4 + COLUMNS.size() * 12) + 12;
+        ByteBuffer footer = ByteBuffer.allocate(size);
+        footer.putInt(COLUMNS.size());
+        for (String column : COLUMNS) {
+            byte[] name = column.getBytes(StandardCharsets.UTF_8);
+            footer.putShort((short)name.length);
+            footer.put(name);
+        }
+        footer.putInt(chunkRows.size());
+        for (int chunk = 0; chunk < chunkRows.size(); chunk++) {
+            footer.putInt(chunkRows.get(chunk));
+            for (int column = 0; column < COLUMNS.size(); column++) {
+                footer.putLong(chunkOffsets.get(chunk)[column]);
+                footer.putInt(chunkLengths.get(chunk)[column]);
+            }
+        }
+        footer.putLong(position);
+        footer.putInt(MAGIC);
+        footer.flip();
+        write(footer, position);
+        channel.close();
+    } // end close
+
+    /**
+     * Collects the rows of the games played on one thread, and writes them to the
+     * export a chunk at a time.
+     */
+    public class Sink implements TurnListener, AutoCloseable {
+
+        private final long[][] columns = new long[COLUMNS.size()][CHUNK_ROWS];
+        private final ByteBuffer[] encoded = new ByteBuffer[COLUMNS.size()];
+        private Player[] players = new Player[0];
+        private long game;
+        private int rows = 0;
+
+        // The row being filled in, which is added once the player's choice is known.
+        private Player rowPlayer;
+        private int seat;
+        private int turn;
+        private int roll;
+        private int dice;
+        private int turnScore;
+        private int rollScore;
+        private char decision;
+        private boolean zilch;
+        private boolean freeRoll;
+
+        // Called by newSink.
+        private Sink() {
+            for (int column = 0; column < encoded.length; column++)
+                encoded[column] = ByteBuffer.allocate(COLUMN_HEADER_SIZE + CHUNK_ROWS);
+        } // end Constructor
+
+        /**
+         * Starts a new game.  The sink must be the turn listener of every player.
+         * @param game The number of the game, written to the game column of its rows.
+         * @param players The players, in seat order.
+         */
+        public void startGame(long game, Player... players) {
+            addRow();
+            this.players = players;
+            this.game = game;
+        } // end startGame
+
+        // Returns the seat of a player in the current game.
+        private int seatOf(Player player) {
+            for (int i = 0; i < players.length; i++)
+                if (players[i] == player)
+                    return i;
+            return -1;
+        } // end seatOf
+
+        // Adds the row being filled in, if there is one, writing the chunk if it is full.
+        private void addRow() {
+            if (rowPlayer == null)
+                return;
+            rowPlayer = null;
+            columns[0][rows] = game;
+            columns[1][rows] = seat;
+            columns[2][rows] = turn;
+            columns[3][rows] = roll;
+            columns[4][rows] = dice;
+            columns[5][rows] = turnScore;
+            columns[6][rows] = rollScore;
+            columns[7][rows] = decision;
+            columns[8][rows] = zilch ? 1 : 0;
+            columns[9][rows] = freeRoll ? 1 : 0;
+            if (++rows == CHUNK_ROWS)
+                writeRows();
+        } // end addRow
+
+        // Encodes the rows collected so far and writes them as a chunk.
+        private void writeRows() {
+            if (rows == 0)
+                return;
+            for (int column = 0; column < columns.length; column++)
+                encoded[column] = encode(columns[column], rows, encoded[column]);
+            try {
+                writeChunk(rows, encoded);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } // end try/catch
+            rows = 0;
+        } // end writeRows
+
+        /**
+         * Writes the rows the sink is holding.
+         */
+        public void close() {
+            addRow();
+            writeRows();
+        } // end close
+
+        // Use the Javadoc comments from TurnListener
+        public void rolling(Player player, int numDice, int rollNumber) {
+            addRow();
+            rowPlayer = player;
+            seat = seatOf(player);
+            turn = player.getTurnCount();
+            roll = rollNumber;
+            dice = numDice;
+            turnScore = player.getTurnScore();
+            rollScore = 0;
+            decision = NO_CHOICE;
+            zilch = false;
+            freeRoll = false;
+        } // end rolling
+
+        public void scored(Player player, ScoreResult result) {
+            rollScore = result.getScore();
+        } // end scored
+
+        public void zilch(Player player, int zilchCount) {
+            zilch = true;
+        } // end zilch
+
+        public void freeRoll(Player player) {
+            freeRoll = true;
+        } // end freeRoll
+
+        public void rollAgain(Player player) {
+            decision = 'r';
+        } // end rollAgain
+
+        public void bank(Player player, int turnScore) {
+            decision = 'b';
+        } // end bank
+
+        public void quit(Player player) {
+            if (player == rowPlayer)
+                decision = 'q';
+        } // end quit
+
+        public void turnOver(Player player) {
+            addRow();
+        } // end turnOver
+
+    } // end Sink class
+
+} // end TurnExport class
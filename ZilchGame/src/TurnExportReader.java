@@ -0,0 +1,173 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Reads a file written by TurnExport a column at a time.  Only the chunks of the
+ * column being scanned are read and unpacked, so a scan of one column of hundreds
+ * of millions of rows reads a small part of the file.
+ */
+public class TurnExportReader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final List<String> columns = new ArrayList<>();
+    private final int[] chunkRows;
+    private final long[][] offsets;
+    private final int[][] lengths;
+    private long rowCount = 0;
+
+    /**
+     * Opens an export file and reads its footer.
+     * @param file The file written by TurnExport.
+     * @throws IOException If the file cannot be read, or is not a complete export.
+     */
+    public TurnExportReader(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            ByteBuffer trailer = read(size - 12, 12);
+            long footerOffset = trailer.getLong();
+            if (size < 20 || trailer.getInt() != TurnExport.MAGIC || footerOffset < 8 || footerOffset > size - 12)
+                throw new IOException(file + " is not a complete Zilch turn export.");
+            ByteBuffer header = read(0, 8);
+            if (header.getInt() != TurnExport.MAGIC || header.getInt() != TurnExport.FORMAT_VERSION)
+                throw new IOException(file + " is not a Zilch turn export.");
+            ByteBuffer footer = read(footerOffset, (int)(size - 12 - footerOffset));
+            int columnCount = footer.getInt();
+            for (int column = 0; column < columnCount; column++) {
+                byte[] name = new byte[footer.getShort()];
+                footer.get(name);
+                columns.add(new String(name, StandardCharsets.UTF_8));
+            }
+            int chunks = footer.getInt();
+            chunkRows = new int[chunks];
+            offsets = new long[chunks][columnCount];
+            lengths = new int[chunks][columnCount];
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                chunkRows[chunk] = footer.getInt();
+                rowCount += chunkRows[chunk];
+                for (int column = 0; column < columnCount; column++) {
+                    offsets[chunk][column] = footer.getLong();
+                    lengths[chunk][column] = footer.getInt();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e instanceof IOException ? (IOException)e : new IOException(file + " has a bad footer.");
+        } // end try/catch
+    } // end Constructor
+
+    // Reads part of the file.
+    private ByteBuffer read(long at, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining())
+            if (channel.read(buffer, at + buffer.position()) < 0)
+                throw new IOException("Unexpected end of file.");
+        return buffer.flip();
+    } // end read
+
+    /**
+     * Returns the names of the columns in the file.
+     * @return The column names.
+     */
+    public List<String> getColumns() {
+        return columns;
+    } // end getColumns
+
+    /**
+     * Returns the number of rows in the file.
+     * @return The row count.
+     */
+    public long getRowCount() {
+        return rowCount;
+    } // end getRowCount
+
+    /**
+     * Passes every value of a column to an action, in row order.
+     * @param name The name of the column.
+     * @param action Called with each value.
+     * @throws IOException If the file cannot be read or the column is unknown.
+     */
+    public void scan(String name, LongConsumer action) throws IOException {
+        int column = columns.indexOf(name);
+        if (column < 0)
+            throw new IOException("No column named " + name + ".");
+        for (int chunk = 0; chunk < chunkRows.length; chunk++) {
+            ByteBuffer packed = read(offsets[chunk][column], lengths[chunk][column]);
+            try {
+                unpack(packed, chunkRows[chunk], action);
+            } catch (RuntimeException e) {
+                throw new IOException("Chunk " + chunk + " of column " + name + " is corrupt.");
+            } // end try/catch
+        }
+    } // end scan
+
+    // Unpacks the values of a column of a chunk written by TurnExport.encode.
+    private static void unpack(ByteBuffer packed, int rows, LongConsumer action) {
+        boolean deltas = packed.get() == 1;
+        int bits = packed.get();
+        long value = packed.getLong();
+        long base = packed.getLong();
+        long scale = packed.getLong();
+        long mask = bits == 64 ? -1 : (1L << bits) - 1;
+        long word = 0;
+        int available = 0;
+        for (int row = 0; row < rows; row++) {
+            long bitsValue = 0;
+            if (bits > 0) {
+                if (available == 0) {
+                    word = packed.getLong();
+                    available = 64;
+                }
+                bitsValue = word >>> (64 - available);
+                if (available < bits) {
+                    word = packed.getLong();
+                    bitsValue |= word << available;
+                    available += 64;
+                }
+                available -= bits;
+                bitsValue &= mask;
+            }
+            long decoded = base + scale * bitsValue;
+            if (!deltas)
+                value = decoded;
+            else if (row > 0)
+                value += decoded;
+            action.accept(value);
+        }
+    } // end unpack
+
+    /**
+     * Closes the file.
+     * @throws IOException If the file cannot be closed.
+     */
+    public void close() throws IOException {
+        channel.close();
+    } // end close
+
+    // Shows the number of rows and the mean of every column of the export file
+    // named on the command line, scanning one column at a time.
+    public static void main(String[] args) {
+        String fileName = args.length > 0 ? args[0] : "zilch-turns.zx";
+        try (TurnExportReader reader = new TurnExportReader(new File(fileName))) {
+            System.out.println(reader.getRowCount() + " rolls in " + fileName);
+            for (String column : reader.getColumns()) {
+                long[] sum = new long[1];
+                long start = System.nanoTime();
+                reader.scan(column, value -> sum[0] += value);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%-10s mean %12.3f  (%.0f million values per second)%n", column,
+                        (double)sum[0] / reader.getRowCount(), reader.getRowCount() / seconds / 1e6);
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot read export: " + e.getMessage());
+        } // end try/catch
+    } // end main method
+
+} // end TurnExportReader class
@@ -0,0 +1,105 @@
+/**
+ * Receives the events of a player's turn in the game of Zilch.  Player.takeTurn
+ * only applies the rules of the game and reports what happens to its listener, which
+ * decides how, or whether, the turn is shown to the user.
+ *
+ * Every method does nothing by default, so a listener only needs to implement the
+ * events it is interested in.  The NONE listener ignores every event and is used
+ * when games are played without any console output.
+ */
+public interface TurnListener {
+
+    /**
+     * A listener that ignores every event.
+     */
+    TurnListener NONE = new TurnListener() {};
+
+    /**
+     * Called before the dice are rolled.
+     * @param player The player who is rolling.
+     * @param numDice The number of dice about to be rolled.
+     * @param rollNumber The player's cumulative roll count, including this roll.
+     */
+    default void rolling(Player player, int numDice, int rollNumber) {
+    } // end rolling
+
+    /**
+     * Called once a roll has been scored.
+     * @param player The player who rolled.
+     * @param result The score of the roll.  The result is reused for the player's
+     * next roll, so it should not be kept.
+     */
+    default void scored(Player player, ScoreResult result) {
+    } // end scored
+
+    /**
+     * Called when the roll scored nothing and the turn score is lost.
+     * @param player The player who rolled.
+     * @param zilchCount The number of zilches in a row, including this one.
+     */
+    default void zilch(Player player, int zilchCount) {
+    } // end zilch
+
+    /**
+     * Called when the zilch penalty costs the player points, after three zilches
+     * in a row under the standard rules.
+     * @param player The player who was penalised.
+     */
+    default void penalty(Player player) {
+    } // end penalty
+
+    /**
+     * Called when the player has earned a free roll of all six dice.
+     * @param player The player who earned the free roll.
+     */
+    default void freeRoll(Player player) {
+    } // end freeRoll
+
+    /**
+     * Called when the turn score is below the minimum and the player must roll again.
+     * @param player The player who must roll.
+     * @param turnScore The current turn score.
+     */
+    default void mustRoll(Player player, int turnScore) {
+    } // end mustRoll
+
+    /**
+     * Called before the player chooses to roll or bank.
+     * @param player The player who is choosing.
+     * @param turnScore The current turn score.
+     * @param diceAvailable The number of dice that can be rolled.
+     */
+    default void choosing(Player player, int turnScore, int diceAvailable) {
+    } // end choosing
+
+    /**
+     * Called when the player chooses to roll again.
+     * @param player The player who is rolling again.
+     */
+    default void rollAgain(Player player) {
+    } // end rollAgain
+
+    /**
+     * Called when the player banks the turn score.
+     * @param player The player who banked.
+     * @param turnScore The turn score that was added to the player's bank.
+     */
+    default void bank(Player player, int turnScore) {
+    } // end bank
+
+    /**
+     * Called when the player quits the game.  This may happen during another
+     * player's turn.
+     * @param player The player who quit.
+     */
+    default void quit(Player player) {
+    } // end quit
+
+    /**
+     * Called once the turn is over.
+     * @param player The player whose turn has ended.
+     */
+    default void turnOver(Player player) {
+    } // end turnOver
+
+} // end TurnListener interface
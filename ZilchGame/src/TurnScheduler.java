@@ -0,0 +1,89 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Plays many games of Zilch at the same time on a small, fixed number of threads.
+ * A game whose current player has not made a choice yet is put aside without
+ * holding a thread, and is picked up again as soon as the player chooses.
+ *
+ * Players are asked for their choices with Player.pollPlayChoice.  Players that
+ * answer immediately, such as AI players, never hold up a game; players that need
+ * to wait for a person must return the null character until the choice is
+ * available and then call Player.wakeUp.
+ */
+public class TurnScheduler {
+
+    private ExecutorService pool;
+
+    /**
+     * The constructor creates the threads that play the games.
+     * @param threads The number of threads.
+     */
+    public TurnScheduler(int threads) {
+        pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "zilch-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    } // end Constructor
+
+    /**
+     * Starts playing a game.
+     * @param game The game to play.  It must not be played in any other way.
+     * @return A future that completes with the winner, or null if everyone quit,
+     * once the game is over.
+     */
+    public CompletableFuture<Player> play(ZilchGame game) {
+        GameTask task = new GameTask(game);
+        game.setWakeUp(task::wake);
+        task.wake();
+        return task.winner;
+    } // end play
+
+    /**
+     * Stops the threads once the games that are ready to play have been put aside
+     * or finished.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    } // end shutdown
+
+    // Plays a game until it finishes or has to wait for a player.
+    private class GameTask implements Runnable {
+
+        private final ZilchGame game;
+        private final CompletableFuture<Player> winner = new CompletableFuture<>();
+        private final AtomicBoolean queued = new AtomicBoolean();
+
+        GameTask(ZilchGame game) {
+            this.game = game;
+        } // end Constructor
+
+        // Queues the game to be played, unless it is queued already.
+        void wake() {
+            if (queued.compareAndSet(false, true))
+                pool.execute(this);
+        } // end wake
+
+        // The flag is cleared before the game looks for a choice, so a choice made
+        // after that always queues the game again.  Only one thread plays the game at
+        // a time.
+        public void run() {
+            queued.set(false);
+            synchronized (game) {
+                if (winner.isDone())
+                    return;
+                try {
+                    if (game.advance())
+                        winner.complete(game.getWinner());
+                } catch (RuntimeException e) {
+                    winner.completeExceptionally(e);
+                } // end try/catch
+            } // end synchronized
+        } // end run
+
+    } // end GameTask class
+
+} // end TurnScheduler class
@@ -0,0 +1,342 @@
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Measures the speed of the Zilch engine so that changes can be checked for
+ * regressions.  Each benchmark is warmed up and then timed over several iterations,
+ * and the throughput in operations per second and the bytes allocated per operation
+ * are reported.
+ *
+ * The benchmarks cover Scoring.score for each number of dice, over random rolls and
+ * over every possible roll in turn, Scoring.scoreBatch over packed rolls and rolls
+ * held a byte per die, a single AI turn, complete AI-vs-AI games at several game
+ * limits on one thread, games shown as text by an asynchronous ConsoleRenderer, and
+ * game throughput on all processors.
+ *
+ * The benchmark can also run ScoringCheck, and check that scoring and AI turns
+ * allocate nothing once they are compiled, so that bulk simulation creates no
+ * garbage beyond the players of each game.
+ */
+// The project has no build tool and all of its classes are in the unnamed package,
+// which a benchmark framework such as JMH cannot import from, so this class does a
+// simple version of the same job with no dependencies.  The allocation figures come
+// from the JVM's per-thread allocation counter and are only reported for the
+// single-threaded benchmarks.
+public class ZilchBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURED_ITERATIONS = 5;
+    private static final int ROLLS = 4096;
+
+    private static com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+    // A piece of work to be timed.  It performs the supplied number of operations
+    // and returns a value computed from them so the work cannot be optimised away.
+    private interface Workload {
+        long run(long operations);
+    } // end Workload interface
+
+    private long iterationNanos;
+    private boolean measureAllocation = true;
+    private long sink;
+
+    /**
+     * The constructor sets how long each iteration of a benchmark runs for.
+     * @param iterationMillis The length of an iteration in milliseconds.
+     */
+    public ZilchBenchmark(long iterationMillis) {
+        iterationNanos = iterationMillis * 1000000L;
+    } // end Constructor
+
+    // Runs and reports a single benchmark.
+    private void measure(String name, Workload workload) {
+        long batch = 1;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+            batch = iterate(workload, batch)[2];
+        long operations = 0;
+        long nanos = 0;
+        long bytes = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long[] iteration = iterate(workload, batch);
+            operations += iteration[0];
+            nanos += iteration[1];
+            bytes += iteration[3];
+        }
+        String allocation = measureAllocation ? String.format("%10.1f", (double)bytes / operations) : "         -";
+        System.out.printf("%-32s %16.0f ops/s %s B/op%n", name, operations * 1e9 / nanos, allocation);
+    } // end measure
+
+    // Runs batches of the workload until an iteration's time is up.  Returns the
+    // number of operations, the time taken, a batch size that takes about a tenth of
+    // the iteration, and the bytes allocated.
+    private long[] iterate(Workload workload, long batch) {
+        long thread = Thread.currentThread().getId();
+        long startBytes = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        long operations = 0;
+        long elapsed;
+        do {
+            sink += workload.run(batch);
+            operations += batch;
+            elapsed = System.nanoTime() - start;
+            if (elapsed < iterationNanos / 10)
+                batch *= 2;
+        } while (elapsed < iterationNanos);
+        long bytes = threads.getThreadAllocatedBytes(thread) - startBytes;
+        return new long[] {operations, elapsed, batch, bytes};
+    } // end iterate
+
+    // Returns random rolls of the supplied number of dice.
+    private static int[][] randomRolls(int numDice) {
+        DiceSource dice = new SplittableDice(numDice);
+        int[][] rolls = new int[ROLLS][numDice];
+        for (int[] roll : rolls)
+            dice.roll(roll);
+        return rolls;
+    } // end randomRolls
+
+    // Returns every possible roll of the supplied number of dice, so that every
+    // scoring combination is seen in proportion to how often it can occur.
+    private static int[][] allRolls(int numDice) {
+        int[][] rolls = new int[(int)Math.pow(6, numDice)][numDice];
+        for (int code = 0; code < rolls.length; code++) {
+            int remainder = code;
+            for (int i = 0; i < numDice; i++) {
+                rolls[code][i] = remainder % 6 + 1;
+                remainder /= 6;
+            }
+        }
+        return rolls;
+    } // end allRolls
+
+    // Returns a workload that scores the supplied rolls in turn.
+    private static Workload scoring(int[][] rolls) {
+        ScoreResult result = new ScoreResult();
+        return operations -> {
+            long total = 0;
+            try {
+                for (long i = 0; i < operations; i++)
+                    total += Scoring.score(rolls[(int)(i % rolls.length)], result).getScore();
+            } catch (ZilchException e) {
+                throw new IllegalArgumentException(e.getMessage());
+            } // end try/catch
+            return total;
+        };
+    } // end scoring
+
+    // Returns a workload that scores random rolls of one to six dice given only as
+    // the counts of each value, as a turn that is not shown to anyone scores them.
+    private static Workload countScoring() {
+        DiceSource dice = new SplittableDice(8);
+        int[] counts = new int[ROLLS];
+        int[] numDice = new int[ROLLS];
+        for (int i = 0; i < ROLLS; i++) {
+            numDice[i] = dice.nextInt(6) + 1;
+            counts[i] = dice.rollCounts(numDice[i]);
+        }
+        ScoreResult result = new ScoreResult();
+        return operations -> {
+            long total = 0;
+            try {
+                for (long i = 0; i < operations; i++) {
+                    int roll = (int)(i % ROLLS);
+                    total += RuleSet.STANDARD.scoreCounts(counts[roll], numDice[roll], result).getScore();
+                }
+            } catch (ZilchException e) {
+                throw new IllegalArgumentException(e.getMessage());
+            } // end try/catch
+            return total;
+        };
+    } // end countScoring
+
+    // Returns a workload that scores random rolls of one to six dice a batch at a
+    // time, either packed or held a byte per die.  Every operation is one roll.
+    private static Workload batchScoring(boolean packed) {
+        DiceSource dice = new SplittableDice(7);
+        int[] packedRolls = new int[ROLLS];
+        byte[] bytes = new byte[ROLLS * Scoring.BATCH_STRIDE];
+        byte[] numDice = new byte[ROLLS];
+        for (int i = 0; i < ROLLS; i++) {
+            int[] roll = new int[dice.nextInt(6) + 1];
+            dice.roll(roll);
+            packedRolls[i] = Scoring.packRoll(roll);
+            numDice[i] = (byte)roll.length;
+            for (int j = 0; j < roll.length; j++)
+                bytes[i * Scoring.BATCH_STRIDE + j] = (byte)roll[j];
+        }
+        int[] scores = new int[ROLLS];
+        byte[] diceLeft = new byte[ROLLS];
+        boolean[] rollAgain = new boolean[ROLLS];
+        return operations -> {
+            long total = 0;
+            for (long done = 0; done < operations; done += ROLLS) {
+                int count = (int)Math.min(ROLLS, operations - done);
+                if (packed)
+                    Scoring.scoreBatch(packedRolls, 0, count, scores, diceLeft, rollAgain);
+                else
+                    Scoring.scoreBatch(bytes, numDice, 0, count, scores, diceLeft, rollAgain);
+                total += scores[count - 1];
+            }
+            return total;
+        };
+    } // end batchScoring
+
+    // Returns a workload in which every operation is one AI turn.
+    private static Workload aiTurn() {
+        return turn(new AIPlayer("Bot", 1000, 1));
+    } // end aiTurn
+
+    // Returns a workload in which every operation is one turn of a player that
+    // needs no input from the user.
+    private static Workload turn(Player bot) {
+        bot.setTurnListener(TurnListener.NONE);
+        return operations -> {
+            for (long i = 0; i < operations; i++)
+                bot.takeTurn();
+            return bot.getScore();
+        };
+    } // end turn
+
+    // Returns a simulation between two AI players with the default strategy.
+    private static Simulation simulation(int gameLimit) {
+        try {
+            return new Simulation(seed -> new AIPlayer("Bot 1", 1000, seed),
+                    seed -> new AIPlayer("Bot 2", 1000, seed), gameLimit);
+        } catch (ZilchException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        } // end try/catch
+    } // end simulation
+
+    // Returns a workload in which every operation is one game on this thread.
+    private static Workload game(int gameLimit) {
+        Simulation simulation = simulation(gameLimit);
+        long[] game = new long[1];
+        return operations -> {
+            SimulationResult result = new SimulationResult();
+            for (long i = 0; i < operations; i++)
+                simulation.playGame(gameLimit, game[0]++, result, null);
+            return result.getWins(0);
+        };
+    } // end game
+
+    // Returns a workload in which every operation is one game on this thread, with
+    // every turn shown by an asynchronous renderer that discards the text.  The time
+    // includes the renderer keeping up, since flush waits for it after each batch.
+    private static Workload renderedGame(int gameLimit) {
+        ConsoleRenderer renderer;
+        try {
+            renderer = new ConsoleRenderer(OutputStream.nullOutputStream(), ConsoleRenderer.DEFAULT_CAPACITY);
+        } catch (ZilchException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        } // end try/catch
+        SplittableRandom random = new SplittableRandom(gameLimit);
+        return operations -> {
+            long wins = 0;
+            for (long i = 0; i < operations; i++) {
+                Player first = new AIPlayer("Bot 1", 1000, random.nextLong());
+                Player second = new AIPlayer("Bot 2", 1000, random.nextLong());
+                first.setTurnListener(renderer);
+                second.setTurnListener(renderer);
+                try {
+                    if (new ZilchGame(List.of(first, second), gameLimit, random).play() == first)
+                        wins++;
+                } catch (ZilchException e) {
+                    throw new IllegalArgumentException(e.getMessage());
+                } // end try/catch
+            }
+            renderer.flush();
+            return wins;
+        };
+    } // end renderedGame
+
+    // Returns a workload in which every operation is one game, played on all the
+    // processors.
+    private static Workload parallelGames(int gameLimit) {
+        Simulation simulation = simulation(gameLimit);
+        return operations -> simulation.run(operations, operations).getWins(0);
+    } // end parallelGames
+
+    /**
+     * Runs all the benchmarks and prints the results.
+     */
+    public void runAll() {
+        for (int numDice = 1; numDice <= 6; numDice++)
+            measure("score random " + numDice + " dice", scoring(randomRolls(numDice)));
+        for (int numDice = 1; numDice <= 6; numDice++)
+            measure("score all rolls " + numDice + " dice", scoring(allRolls(numDice)));
+        measure("score batch packed", batchScoring(true));
+        measure("score batch bytes", batchScoring(false));
+        measure("AI turn", aiTurn());
+        for (int gameLimit : new int[] {1000, 10000, 100000})
+            measure("AI game limit " + gameLimit, game(gameLimit));
+        measure("rendered AI game limit 10000", renderedGame(10000));
+        measureAllocation = false;
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int gameLimit : new int[] {1000, 10000, 100000})
+            measure("AI games x" + processors + " limit " + gameLimit, parallelGames(gameLimit));
+        if (sink == 42)
+            System.out.println();
+    } // end runAll
+
+    /**
+     * Checks that scoring, scoring by counts, batch scoring and the turns of each
+     * kind of AI player allocate nothing once they have been compiled, and prints the
+     * result of each.  The check fails if the JVM cannot count the bytes a thread
+     * allocates, rather than passing without having measured anything.
+     * @return True if the allocations were counted and none of them allocated.
+     */
+    public boolean checkAllocationFree() {
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.out.printf("%-32s FAILED: this JVM cannot count allocated bytes%n", "allocation check");
+            return false;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        StrategySolver solver = new StrategySolver();
+        solver.solve();
+        boolean free = allocationFree("score random 6 dice", scoring(randomRolls(6)));
+        free &= allocationFree("score counts", countScoring());
+        free &= allocationFree("score batch packed", batchScoring(true));
+        free &= allocationFree("score batch bytes", batchScoring(false));
+        free &= allocationFree("AI turn", aiTurn());
+        free &= allocationFree("optimal AI turn", turn(new PolicyAIPlayer("Bot", solver.buildPolicy(), 1)));
+        return free;
+    } // end checkAllocationFree
+
+    // Runs a workload for two iterations so that it is compiled, then counts the
+    // bytes a million more operations allocate.  Returns true if there were none.
+    private boolean allocationFree(String name, Workload workload) {
+        iterate(workload, 1);
+        iterate(workload, 1);
+        long thread = Thread.currentThread().getId();
+        long startBytes = threads.getThreadAllocatedBytes(thread);
+        sink += workload.run(1000000);
+        long bytes = threads.getThreadAllocatedBytes(thread) - startBytes;
+        if (startBytes < 0 || bytes != 0) {
+            System.out.printf("%-32s FAILED: allocated %d bytes in 1000000 operations%n", name, bytes);
+            return false;
+        }
+        System.out.printf("%-32s allocates nothing%n", name);
+        return true;
+    } // end allocationFree
+
+    // Runs the benchmarks.  The optional argument is the length of an iteration in
+    // milliseconds.  If the first argument is check, ScoringCheck and the allocation
+    // check are run instead, and the program exits with status 1 if a roll scored
+    // differently from the reference, anything allocated or the allocations could
+    // not be counted, so that the check can be run as a regression test.
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("check")) {
+            long iterationMillis = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+            ZilchBenchmark benchmark = new ZilchBenchmark(iterationMillis);
+            boolean passed = new ScoringCheck().check();
+            passed &= benchmark.checkAllocationFree();
+            System.exit(passed ? 0 : 1);
+        }
+        long iterationMillis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        new ZilchBenchmark(iterationMillis).runAll();
+    } // end main method
+
+} // end ZilchBenchmark class
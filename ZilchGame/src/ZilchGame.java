@@ -1,20 +1,39 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
 /**
- * Plays the game of Zilch with a human and an AI player.
+ * Plays the game of Zilch with any number of players.
  * @author Alan McLeod
  * @version 1.0
  */
+// The players take turns in order from a randomly chosen first seat.  Once a
+// player's bank reaches the game limit, every other player gets one final turn and
+// the highest bank wins.  Players who quit are skipped.
+//
+// A game can be played from start to finish on one thread with playGame or play,
+// or a turn at a time by TurnScheduler, which puts the game aside while it waits for
+// a player's choice.
 public class ZilchGame {
 
     private int gameLimit;
-    private HumanPlayer human;
-    private AIPlayer bot;
+    private RuleSet rules;
+    private List<Player> players;
+    private int turn;
+    private int firstSeat;
+    private int finalSeat = -1;
+    private boolean midTurn = false;
+    private boolean gameOver = false;
+    private ConsoleRenderer renderer = ConsoleRenderer.CONSOLE;
 
     /**
      * Constructor accepts the two game players - a human and an AI as well as the
      * game limit value.
      * @param human Represents the human player.
      * @param bot Represents the AI player.
-     * @param gameLimit Once a player gets over this limit they have won.
+     * @param gameLimit Once a player gets over this limit the game ends after every
+     * other player has had one more turn.
      * @throws ZilchException If either player object is null, or the gameLimit is illegal.
      */
     public ZilchGame (HumanPlayer human, AIPlayer bot, int gameLimit) throws ZilchException {
@@ -22,12 +41,81 @@ public class ZilchGame {
             throw new ZilchException("Human player not defined!");
         if (bot == null)
             throw new ZilchException("AI player not defined!");
+        init(List.of(human, bot), gameLimit, RuleSet.STANDARD, new SplittableRandom().nextInt(2));
+    } // end constructor
+
+    /**
+     * Constructor accepts any number of players, the game limit value and the
+     * random number generator used to pick the first player.
+     * @param players The players, in the order they take turns.
+     * @param gameLimit Once a player gets over this limit the game ends after every
+     * other player has had one more turn.
+     * @param random Chooses the player who goes first.
+     * @throws ZilchException If there are fewer than two players, any player is null,
+     * or the gameLimit is illegal.
+     */
+    public ZilchGame(List<? extends Player> players, int gameLimit, RandomGenerator random) throws ZilchException {
+        this(players, gameLimit, random, RuleSet.STANDARD);
+    } // end list constructor
+
+    /**
+     * Constructor accepts any number of players, the game limit value, the random
+     * number generator used to pick the first player and the rules of the game.
+     * @param players The players, in the order they take turns.
+     * @param gameLimit Once a player gets over this limit the game ends after every
+     * other player has had one more turn.
+     * @param random Chooses the player who goes first.
+     * @param rules The rules every turn of the game is played under.
+     * @throws ZilchException If there are fewer than two players, any player or the
+     * rules are null, or the gameLimit is illegal.
+     */
+    public ZilchGame(List<? extends Player> players, int gameLimit, RandomGenerator random, RuleSet rules)
+            throws ZilchException {
+        if (players == null || players.size() < 2)
+            throw new ZilchException("At least two players are needed!");
+        for (Player player : players)
+            if (player == null)
+                throw new ZilchException("Player not defined!");
+        if (rules == null)
+            throw new ZilchException("Rules not defined!");
+        init(players, gameLimit, rules, random.nextInt(players.size()));
+    } // end rules constructor
+
+    // Sets up a game in which the player in the supplied seat goes first, as when a
+    // game is replayed from its journal.
+    ZilchGame(List<? extends Player> players, int gameLimit, int firstSeat) throws ZilchException {
+        this(players, gameLimit, RuleSet.STANDARD, firstSeat);
+    } // end first seat constructor
+
+    // Sets up a game under the supplied rules in which the player in the supplied
+    // seat goes first.
+    private ZilchGame(List<? extends Player> players, int gameLimit, RuleSet rules, int firstSeat)
+            throws ZilchException {
+        if (firstSeat < 0 || firstSeat >= players.size())
+            throw new ZilchException("First seat: " + firstSeat + " not legal.");
+        init(players, gameLimit, rules, firstSeat);
+    } // end first seat and rules constructor
+
+    // Checks the game limit, seats the players under the rules and sets the first
+    // player.
+    private void init(List<? extends Player> players, int gameLimit, RuleSet rules, int firstSeat)
+            throws ZilchException {
         if (gameLimit < 300 || gameLimit > 100000)
             throw new ZilchException("Game limit: " + gameLimit + " not legal (Between 300 and 100000).");
         this.gameLimit = gameLimit;
-        this.human = human;
-        this.bot = bot;
-    } // end constructor
+        this.rules = rules;
+        this.players = new ArrayList<>(players);
+        for (Player player : players) {
+            player.setRules(rules);
+            List<Player> opponents = new ArrayList<>(players);
+            opponents.remove(player);
+            player.setOpponents(opponents.toArray(new Player[0]));
+        }
+        this.firstSeat = firstSeat;
+        turn = firstSeat;
+        if (ZilchMetrics.ENABLED)
+            ZilchMetrics.GAMES_STARTED.increment();
+    } // end init
 
     // Displays instructions as to how to interact with the game.
     private void displayIntro() {
@@ -37,53 +125,188 @@ public class ZilchGame {
         out += "\n\nPossible responses at a prompt are \"r\" to roll again, \"b\" to";
         out += "\nbank your points, just <enter> and \"q\" to quit the game early. Otherwise";
         out += "\nthe session will run until one player wins.\n";
-        System.out.println(out);
+        renderer.line(out);
     } // end displayIntro
 
     /**
-     * Plays the game of Zilch.  A random choice is made to see which player goes
-     * first.
+     * Plays the game of Zilch on the console.  A random choice is made to see which
+     * player goes first.  The introduction, the scores at the start of each round and
+     * the winner are shown by the game's renderer.
      */
     public void playGame() {
         displayIntro();
-        boolean gameOver = false;
-        if (Math.random() > 0.5) {
-            System.out.println("Human goes first!");
-            while (!gameOver) {
-                displayScores();
-                human.takeTurn();
-                if (human.getScore() < gameLimit) {
-                    bot.takeTurn();
-                    if (bot.getScore() >= gameLimit)
-                        gameOver = true;
-                } else
-                    gameOver = true;
-            } // end while
-        } else {
-            System.out.println("AI goes first!");
-            while (!gameOver) {
+        renderer.line(players.get(turn).getName() + " goes first!");
+        while (!gameOver) {
+            if (turn == firstSeat && !midTurn)
                 displayScores();
-                bot.takeTurn();
-                if (bot.getScore() < gameLimit) {
-                    human.takeTurn();
-                    if (human.getScore() >= gameLimit)
-                        gameOver = true;
-                } else
-                    gameOver = true;
-            } // end while
-        } // end else
-        if (human.getScore() >= gameLimit)
-            System.out.println("\n" + human.getName() + " wins with " + human.getScore() +
-                    " points, after " + human.getRollCount() + " dice rolls!");
-        else
-            System.out.println("\n" + bot.getName() + " wins with " + bot.getScore() +
-                    " points, after " + bot.getRollCount() + " dice rolls!");
+            playTurn(true);
+        } // end while
+        Player winner = getWinner();
+        if (winner != null)
+            renderer.winner(winner);
     } // end playGame
 
-    // Displays the scores of both players.
+    /**
+     * Sets the renderer that playGame shows the game with.  By default it is
+     * ConsoleRenderer.CONSOLE, which writes straight to the console.
+     * @param renderer The renderer.
+     * @throws ZilchException If the renderer is null.
+     */
+    public void setRenderer(ConsoleRenderer renderer) throws ZilchException {
+        if (renderer == null)
+            throw new ZilchException("Renderer not defined!");
+        this.renderer = renderer;
+    } // end setRenderer
+
+    /**
+     * Plays the whole game without displaying anything beyond what the players'
+     * turn listeners show.
+     * @return The winner, or null if every player quit.
+     */
+    public Player play() {
+        while (!gameOver)
+            playTurn(true);
+        return getWinner();
+    } // end play
+
+    // Plays turns until the game is over, and returns true.  If a player has not
+    // made a choice yet, returns false instead of waiting; calling the method again
+    // carries on from the same point.
+    boolean advance() {
+        while (!gameOver)
+            if (!playTurn(false))
+                return false;
+        return true;
+    } // end advance
+
+    // Plays the current player's turn, or the rest of it, and moves on to the next
+    // player.  Returns false if the turn is waiting for the player's choice.
+    private boolean playTurn(boolean wait) {
+        Player player = players.get(turn);
+        if (!midTurn) {
+            if (player.hasQuit()) {
+                nextTurn();
+                return true;
+            }
+            player.startTurn(6, 0);
+            midTurn = true;
+        }
+        if (!player.playTurn(wait))
+            return false;
+        midTurn = false;
+        if (finalSeat < 0 && player.getScore() >= gameLimit)
+            finalSeat = turn;
+        nextTurn();
+        return true;
+    } // end playTurn
+
+    // Plays the next turn, skipping players who have quit, and returns the seat of
+    // the player who took it, or -1 if the game is over.  Used to replay a game from
+    // its journal one turn at a time.
+    int playNextTurn() {
+        while (!gameOver && !midTurn && players.get(turn).hasQuit())
+            nextTurn();
+        if (gameOver)
+            return -1;
+        int seat = turn;
+        playTurn(true);
+        return seat;
+    } // end playNextTurn
+
+    // Returns a new game in the same position as this one between turns, with the
+    // supplied players taking over the scores and counts of the players in the same
+    // seats.  Used to carry on a game recovered from its journal.
+    ZilchGame resume(List<? extends Player> newPlayers) throws ZilchException {
+        if (newPlayers.size() != players.size())
+            throw new ZilchException("The game needs " + players.size() + " players.");
+        ZilchGame resumed = new ZilchGame(newPlayers, gameLimit, rules, firstSeat);
+        for (int seat = 0; seat < players.size(); seat++)
+            newPlayers.get(seat).restoreState(players.get(seat));
+        resumed.turn = turn;
+        resumed.finalSeat = finalSeat;
+        resumed.gameOver = gameOver;
+        return resumed;
+    } // end resume
+
+    // Returns the seat of the player who went first.
+    int getFirstSeat() {
+        return firstSeat;
+    } // end getFirstSeat
+
+    /**
+     * Returns the game limit.
+     * @return The score at which the final turns begin.
+     */
+    public int getGameLimit() {
+        return gameLimit;
+    } // end getGameLimit
+
+    /**
+     * Returns the rules the game is played under.
+     * @return The rules.
+     */
+    public RuleSet getRules() {
+        return rules;
+    } // end getRules
+
+    // Moves on to the next player and checks whether the game is over.
+    private void nextTurn() {
+        turn = (turn + 1) % players.size();
+        if (turn == finalSeat)
+            gameOver = true;
+        boolean everyoneQuit = true;
+        for (Player player : players)
+            if (!player.hasQuit())
+                everyoneQuit = false;
+        if (everyoneQuit)
+            gameOver = true;
+        if (ZilchMetrics.ENABLED && gameOver)
+            ZilchMetrics.GAMES_FINISHED.increment();
+    } // end nextTurn
+
+    /**
+     * Returns true once the game is over.
+     * @return True if the game is over, false otherwise.
+     */
+    public boolean isOver() {
+        return gameOver;
+    } // end isOver
+
+    /**
+     * Returns the winner of the game: the player still in the game with the highest
+     * bank once the final turns have been played.  On a tie the player who reached
+     * the game limit first, or who sits nearest after them, wins.
+     * @return The winner, or null if the game is not over or nobody reached the limit.
+     */
+    public Player getWinner() {
+        if (!gameOver || finalSeat < 0)
+            return null;
+        Player winner = null;
+        for (int i = 0; i < players.size(); i++) {
+            Player player = players.get((finalSeat + i) % players.size());
+            if (!player.hasQuit() && (winner == null || player.getScore() > winner.getScore()))
+                winner = player;
+        }
+        return winner;
+    } // end getWinner
+
+    /**
+     * Returns the players in seat order.
+     * @return The players.
+     */
+    public List<Player> getPlayers() {
+        return players;
+    } // end getPlayers
+
+    // Sets the action each player runs when its choice becomes available.
+    void setWakeUp(Runnable wakeUp) {
+        for (Player player : players)
+            player.setWakeUp(wakeUp);
+    } // end setWakeUp
+
+    // Displays the scores of all players.
     private void displayScores() {
-        System.out.println("\n" + human.getName() + " has " + human.getScore() + " points, " +
-                bot.getName() + " has " + bot.getScore() + " points.");
+        renderer.scores(players);
     } // end displayScores
 
 } // end ZilchGame
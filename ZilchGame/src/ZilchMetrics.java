@@ -0,0 +1,88 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts what happens in games of Zilch and times turns and decisions, for every
+ * game in the program.  Scoring, Player and ZilchGame update the metrics as they
+ * play, and snapshot returns their values so far.
+ *
+ * The metrics are only collected if the program is started with the system
+ * property zilch.metrics set to true.  Otherwise ENABLED is a constant false and the
+ * code that updates them is removed when it is compiled, so it costs nothing.
+ */
+// The counters are LongAdders, which spread updates from different threads over
+// separate cells, so threads playing games at the same time do not contend.  Reading
+// the clock takes longer than the rest of a simulated turn, so only one turn in
+// TIMING_SAMPLE is timed.  A choice that a game had to wait for is always timed.
+public class ZilchMetrics {
+
+    /**
+     * True if metrics are being collected.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("zilch.metrics");
+
+    /**
+     * One turn in this many is timed.  It must be a power of two.
+     */
+    public static final int TIMING_SAMPLE = 8;
+
+    static final LongAdder SCORES = new LongAdder();
+    static final LongAdder ROLLS = new LongAdder();
+    static final LongAdder TURNS = new LongAdder();
+    static final LongAdder ZILCHES = new LongAdder();
+    static final LongAdder FREE_ROLLS = new LongAdder();
+    static final LongAdder PENALTIES = new LongAdder();
+    static final LongAdder BANKS = new LongAdder();
+    static final LongAdder GAMES_STARTED = new LongAdder();
+    static final LongAdder GAMES_FINISHED = new LongAdder();
+    static final LatencyHistogram TURN_TIME = new LatencyHistogram();
+    static final LatencyHistogram DECISION_WAIT = new LatencyHistogram();
+
+    // The names and descriptions of the counters, in the same order as counters().
+    private static final String[][] COUNTERS = {
+            {"zilch_scores_total", "Dice rolls scored."},
+            {"zilch_rolls_total", "Dice rolls made by players."},
+            {"zilch_turns_total", "Turns played."},
+            {"zilch_zilches_total", "Rolls that scored nothing."},
+            {"zilch_free_rolls_total", "Free rolls of all six dice earned."},
+            {"zilch_penalties_total", "Three zilch penalties."},
+            {"zilch_banks_total", "Turn scores banked."},
+            {"zilch_games_started_total", "Games set up."},
+            {"zilch_games_finished_total", "Games finished."}};
+
+    // The names and descriptions of the histograms, in the same order as histograms().
+    private static final String[][] HISTOGRAMS = {
+            {"zilch_turn_duration_seconds", "Time from the start to the end of a turn."},
+            {"zilch_decision_wait_seconds", "Time a player took to choose to roll or bank."}};
+
+    // The metrics are only used through the static methods.
+    private ZilchMetrics() {
+    } // end Constructor
+
+    // Returns the counters in the same order as COUNTERS.
+    private static LongAdder[] counters() {
+        return new LongAdder[] {SCORES, ROLLS, TURNS, ZILCHES, FREE_ROLLS, PENALTIES, BANKS, GAMES_STARTED,
+                GAMES_FINISHED};
+    } // end counters
+
+    // Returns the histograms in the same order as HISTOGRAMS.
+    private static LatencyHistogram[] histograms() {
+        return new LatencyHistogram[] {TURN_TIME, DECISION_WAIT};
+    } // end histograms
+
+    /**
+     * Returns the values of all the metrics so far.
+     * @return The snapshot.  Its values are all zero if metrics are not enabled.
+     */
+    public static MetricsSnapshot snapshot() {
+        LongAdder[] counters = counters();
+        long[] values = new long[counters.length];
+        for (int i = 0; i < counters.length; i++)
+            values[i] = counters[i].sum();
+        LatencyHistogram[] histograms = histograms();
+        LatencyHistogram.Snapshot[] snapshots = new LatencyHistogram.Snapshot[histograms.length];
+        for (int i = 0; i < histograms.length; i++)
+            snapshots[i] = histograms[i].snapshot();
+        return new MetricsSnapshot(System.currentTimeMillis(), COUNTERS, values, HISTOGRAMS, snapshots);
+    } // end snapshot
+
+} // end ZilchMetrics class
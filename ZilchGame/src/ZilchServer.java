@@ -0,0 +1,404 @@
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hosts many independent games of Zilch at once for players connecting over a
+ * local socket.  Each game is played at a ServerTable.
+ *
+ * Players send one command per line:
+ *
+ *     JOIN table name     sit at a table, which is created if it does not exist
+ *     START [bots]        start the game at your table, adding AI players
+ *     ROLL                roll again when asked to choose
+ *     BANK                bank the turn score when asked to choose
+ *     QUIT                leave the table
+ *
+ * The server answers OK or ERROR followed by a message, sends CHOOSE with the turn
+ * score and dice available when the player must choose, and sends every event of
+ * the game to everyone at the table.  Closing the connection is the same as QUIT.
+ *
+ * A server with a GameJournal records every game, and when it starts again carries
+ * on the games that were being played when it stopped.  The players of those games
+ * rejoin them with JOIN, using the same table and name.
+ */
+// The games at all the tables are played by one TurnScheduler with a thread per
+// processor, so a table waiting for a player's choice holds no thread.  Every
+// connection is served by a single thread waiting on a Selector, which reads the
+// players' commands and writes what is sent to them without blocking; the project is
+// built for Java 17, which has no virtual threads, so this event loop is what lets
+// one server hold many thousands of tables.  A line sent to a player is only added
+// to the connection's outbox, so a game never waits for a player's network.  A
+// player who stops reading lets their outbox fill up, and is then disconnected
+// rather than holding up their table.
+public class ZilchServer {
+
+    private static final int MAX_LINE = 200;
+    private static final int OUTBOX_LINES = 1024;
+    private static final int WRITE_BATCH = 16;
+
+    private int gameLimit;
+    private ConcurrentMap<String, ServerTable> tables = new ConcurrentHashMap<>();
+    private TurnScheduler scheduler = new TurnScheduler(Runtime.getRuntime().availableProcessors());
+    private GameJournal journal;
+    private PlayerStatsStore stats;
+    private volatile Selector selector;
+    private final Queue<Connection> requests = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The constructor accepts the game limit used at every table.
+     * @param gameLimit Once a player gets over this limit the game ends after every
+     * other player has had one more turn.
+     * @throws ZilchException If the gameLimit is illegal.
+     */
+    public ZilchServer(int gameLimit) throws ZilchException {
+        if (gameLimit < 300 || gameLimit > 100000)
+            throw new ZilchException("Game limit: " + gameLimit + " not legal (Between 300 and 100000).");
+        this.gameLimit = gameLimit;
+    } // end constructor
+
+    /**
+     * A constructor for a server that records its games in a journal.  The games in
+     * the journal that had not finished are recovered and carried on.
+     * @param gameLimit The game limit used at every new table.
+     * @param journal The journal to record the games in.
+     * @throws ZilchException If the gameLimit is illegal, or a recorded game cannot
+     * be carried on.
+     */
+    public ZilchServer(int gameLimit, GameJournal journal) throws ZilchException {
+        this(gameLimit);
+        this.journal = journal;
+        for (GameReplay replay : journal.getUnfinishedGames()) {
+            ServerTable table = new ServerTable(this, replay.getTableId(), replay.getGame().getGameLimit());
+            if (tables.putIfAbsent(replay.getTableId(), table) != null)
+                throw new ZilchException("Two unfinished games were recorded at table " + replay.getTableId() + ".");
+            table.recover(replay);
+        }
+    } // end journal constructor
+
+    /**
+     * Accepts connections on the local computer and serves them until the program
+     * is stopped.  The calling thread serves every connection.
+     * @param port The port to listen on.
+     * @throws IOException If the port cannot be opened.
+     */
+    public void serve(int port) throws IOException {
+        try (ServerSocketChannel server = ServerSocketChannel.open(); Selector selector = Selector.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+            this.selector = selector;
+            while (true) {
+                selector.select();
+                Connection requested;
+                while ((requested = requests.poll()) != null)
+                    requested.serviceRequest();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid())
+                        continue;
+                    if (key.isAcceptable())
+                        accept(server);
+                    else {
+                        Connection connection = (Connection)key.attachment();
+                        if (key.isReadable())
+                            connection.read();
+                        if (key.isValid() && key.isWritable())
+                            connection.flush();
+                    }
+                } // end for
+                selector.selectedKeys().clear();
+            } // end while
+        } // end try
+    } // end serve
+
+    // Accepts a waiting connection, if there is one, and starts reading from it.
+    private void accept(ServerSocketChannel server) throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null)
+            return;
+        channel.configureBlocking(false);
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+    } // end accept
+
+    // Asks the thread serving the connections to flush or close a connection.
+    private void request(Connection connection) {
+        requests.add(connection);
+        selector.wakeup();
+    } // end request
+
+    // Returns the journal the games are recorded in, or null if they are not recorded.
+    GameJournal getJournal() {
+        return journal;
+    } // end getJournal
+
+    /**
+     * Sets a store that every game won at the server's tables is recorded in.
+     * @param stats The store, or null to keep no statistics.
+     */
+    public void setStats(PlayerStatsStore stats) {
+        this.stats = stats;
+    } // end setStats
+
+    /**
+     * Returns the store the games are recorded in.
+     * @return The store, or null if no statistics are kept.
+     */
+    public PlayerStatsStore getStats() {
+        return stats;
+    } // end getStats
+
+    // Returns the scheduler that plays the games at every table.
+    TurnScheduler getScheduler() {
+        return scheduler;
+    } // end getScheduler
+
+    // Called by a table when its game is over.
+    void removeTable(String id, ServerTable table) {
+        tables.remove(id, table);
+    } // end removeTable
+
+    /**
+     * Returns the number of tables that are waiting to start or playing.
+     * @return The number of tables.
+     */
+    public int getTableCount() {
+        return tables.size();
+    } // end getTableCount
+
+    /**
+     * A player's connection to the server.
+     */
+    // Everything but send is only called by the thread serving the connections.
+    public class Connection {
+
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private final ByteBuffer input = ByteBuffer.allocate(MAX_LINE + 2);
+        private final StringBuilder line = new StringBuilder();
+        private final BlockingQueue<String> outbox = new LinkedBlockingQueue<>(OUTBOX_LINES);
+        private final ByteBuffer[] writing = new ByteBuffer[WRITE_BATCH];
+        private int writeFrom = 0;
+        private int writeTo = 0;
+        private final AtomicBoolean requested = new AtomicBoolean();
+        private volatile boolean dropped = false;
+        private boolean closed = false;
+        private ServerTable table;
+        private RemotePlayer player;
+
+        // Called when a player connects.
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        } // end Constructor
+
+        /**
+         * Sends a line to the player.  The line is added to the connection's outbox
+         * and written when the player's network can take it, so it never waits.  A
+         * player whose outbox is full has stopped reading, and is disconnected and
+         * removed from their table.
+         * @param line The line to send.
+         */
+        public void send(String line) {
+            if (dropped)
+                return;
+            if (!outbox.offer(line))
+                dropped = true;
+            if (requested.compareAndSet(false, true))
+                request(this);
+        } // end send
+
+        // Carries out a request made by send.  The flag is cleared first, so a line
+        // sent after that always makes a new request.
+        private void serviceRequest() {
+            requested.set(false);
+            if (dropped)
+                close();
+            else
+                flush();
+        } // end serviceRequest
+
+        // Writes as much of the outbox as the network will take, a few lines at a
+        // time, and waits to be told it can take more if any is left.
+        private void flush() {
+            if (closed)
+                return;
+            try {
+                while (true) {
+                    if (writeFrom == writeTo) {
+                        writeFrom = 0;
+                        writeTo = 0;
+                        String next;
+                        while (writeTo < WRITE_BATCH && (next = outbox.poll()) != null)
+                            writing[writeTo++] = ByteBuffer.wrap((next + "\n").getBytes(StandardCharsets.UTF_8));
+                        if (writeTo == 0)
+                            break;
+                    }
+                    channel.write(writing, writeFrom, writeTo - writeFrom);
+                    while (writeFrom < writeTo && !writing[writeFrom].hasRemaining())
+                        writing[writeFrom++] = null;
+                    if (writeFrom < writeTo)
+                        break;
+                } // end while
+            } catch (IOException e) {
+                close();
+                return;
+            } // end try/catch
+            key.interestOps(writeFrom < writeTo ? SelectionKey.OP_READ | SelectionKey.OP_WRITE :
+                    SelectionKey.OP_READ);
+        } // end flush
+
+        // Reads what the player has sent and carries out every complete command.
+        // Lines are limited to MAX_LINE characters, so that a player cannot use up
+        // the server's memory.
+        private void read() {
+            int count;
+            try {
+                count = channel.read(input);
+            } catch (IOException e) {
+                close();
+                return;
+            } // end try/catch
+            input.flip();
+            while (input.hasRemaining() && !closed) {
+                char c = (char)(input.get() & 0xFF);
+                if (c == '\n') {
+                    String command = line.toString().trim();
+                    line.setLength(0);
+                    if (!handle(command))
+                        close();
+                } else if (line.length() == MAX_LINE)
+                    close();
+                else if (c != '\r')
+                    line.append(c);
+            } // end while
+            input.clear();
+            if (count == -1 && !closed) {
+                if (line.length() > 0)
+                    handle(line.toString().trim());
+                close();
+            }
+        } // end read
+
+        // Carries out a command.  Returns false if the player has left.  The seat is
+        // only changed while the connection is locked, as the table unseats the player
+        // from another thread when the game is over.
+        private synchronized boolean handle(String line) {
+            String[] words = line.split("\\s+");
+            String command = words[0].toUpperCase();
+            try {
+                if (command.equals("JOIN") && words.length == 3) {
+                    if (player != null)
+                        throw new ZilchException("Already seated at table " + table.getId() + ".");
+                    // A table can close between being found and being joined, and is
+                    // then replaced by a new one.
+                    ServerTable joined;
+                    RemotePlayer seated;
+                    do {
+                        joined = tables.computeIfAbsent(words[1],
+                                id -> new ServerTable(ZilchServer.this, id, gameLimit));
+                        seated = joined.join(words[2], this);
+                        if (seated == null)
+                            tables.remove(words[1], joined);
+                    } while (seated == null);
+                    player = seated;
+                    table = joined;
+                    send("OK");
+                }
+                else if (command.equals("START") && words.length <= 2) {
+                    if (table == null)
+                        throw new ZilchException("Not seated at a table.");
+                    table.start(words.length == 2 ? Integer.parseInt(words[1]) : 0);
+                    send("OK");
+                }
+                else if ((command.equals("ROLL") || command.equals("BANK")) && player != null)
+                    player.offer(command.equals("ROLL") ? 'r' : 'b');
+                else if (command.equals("QUIT"))
+                    return false;
+                else
+                    throw new ZilchException("Unknown command: " + line);
+            } catch (ZilchException | NumberFormatException e) {
+                send("ERROR " + e.getMessage());
+            } // end try/catch
+            return true;
+        } // end handle
+
+        /**
+         * Frees the player's seat once the game at their table is over, so that
+         * they can join another table.
+         * @param seated The player whose game is over.  Nothing is done if the
+         * connection has since taken another seat.
+         */
+        public synchronized void unseat(RemotePlayer seated) {
+            if (player == seated) {
+                player = null;
+                table = null;
+            }
+        } // end unseat
+
+        // Gives up the player's seat and closes the connection.
+        private synchronized void close() {
+            if (closed)
+                return;
+            closed = true;
+            dropped = true;
+            outbox.clear();
+            if (player != null)
+                table.leave(player);
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Already closed.
+            } // end try/catch
+        } // end close
+
+    } // end Connection class
+
+    // Starts the server.  The optional arguments are the port, the game limit, a
+    // journal directory or - for none, and a player statistics file, which is created
+    // with room for 786432 players.  The journal is forced to disk once a second.  If
+    // metrics are enabled they are served on the port in the zilch.metrics.port
+    // property.
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        int gameLimit = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        try {
+            ZilchServer server;
+            if (args.length > 2 && !args[2].equals("-")) {
+                GameJournal journal = new GameJournal(new File(args[2]), GameJournal.DEFAULT_SEGMENT_SIZE, 1000);
+                server = new ZilchServer(gameLimit, journal);
+                System.out.println("Recovered " + server.getTableCount() + " games from " + args[2]);
+            }
+            else
+                server = new ZilchServer(gameLimit);
+            if (args.length > 3) {
+                server.setStats(new PlayerStatsStore(new File(args[3]), 1 << 20));
+                System.out.println(server.getStats().getPlayerCount() + " players in " + args[3]);
+            }
+            if (ZilchMetrics.ENABLED) {
+                int metricsPort = Integer.getInteger("zilch.metrics.port", 9464);
+                new MetricsExporter(metricsPort);
+                System.out.println("Metrics served on port " + metricsPort);
+            }
+            System.out.println("Zilch server listening on port " + port);
+            server.serve(port);
+        } catch (ZilchException | IOException e) {
+            System.err.println("Cannot start server: " + e.getMessage());
+        } // end try/catch
+    } // end main method
+
+} // end ZilchServer class